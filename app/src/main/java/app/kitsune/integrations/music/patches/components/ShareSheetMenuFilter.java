@@ -23,6 +23,11 @@ public final class ShareSheetMenuFilter extends Filter {
         );
     }
 
+    @Override
+    public boolean isResultCacheable() {
+        return false; // Updates the menu visibility state.
+    }
+
     @Override
     public boolean isFiltered(String path, @Nullable String identifier, String allValue, byte[] protobufBufferArray,
                               StringFilterGroup matchedGroup, FilterContentType contentType, int contentIndex) {
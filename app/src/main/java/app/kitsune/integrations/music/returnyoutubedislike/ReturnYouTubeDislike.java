@@ -26,11 +26,9 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import java.text.NumberFormat;
-import java.util.HashMap;
-import java.util.Iterator;
 import java.util.Locale;
-import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -41,6 +39,7 @@ import java.util.concurrent.TimeoutException;
 import app.kitsune.integrations.music.settings.Settings;
 import app.kitsune.integrations.shared.returnyoutubedislike.requests.RYDVoteData;
 import app.kitsune.integrations.shared.returnyoutubedislike.requests.ReturnYouTubeDislikeApi;
+import app.kitsune.integrations.shared.utils.ExpiringCache;
 import app.kitsune.integrations.shared.utils.Logger;
 import app.kitsune.integrations.shared.utils.Utils;
 
@@ -76,11 +75,21 @@ public class ReturnYouTubeDislike {
 
     private static final int SEPARATOR_COLOR = 872415231;
 
+    /**
+     * Maximum number of video ids to cache.
+     */
+    private static final int CACHE_MAXIMUM_SIZE = 200;
+
     /**
      * Cached lookup of all video ids.
+     * Unsuccessful fetches expire after the failure timeout, and successful fetches after the success timeout.
      */
-    @GuardedBy("itself")
-    private static final Map<String, ReturnYouTubeDislike> fetchCache = new HashMap<>();
+    private static final ExpiringCache<String, ReturnYouTubeDislike> fetchCache = new ExpiringCache<>(
+            "RYD fetch cache",
+            CACHE_MAXIMUM_SIZE,
+            CACHE_TIMEOUT_FAILURE_MILLISECONDS,
+            CACHE_TIMEOUT_SUCCESS_MILLISECONDS,
+            ReturnYouTubeDislike::fetchSucceeded);
 
     /**
      * Used to send votes, one by one, in the same order the user created them.
@@ -300,45 +309,14 @@ public class ReturnYouTubeDislike {
     @NonNull
     public static ReturnYouTubeDislike getFetchForVideoId(@Nullable String videoId) {
         Objects.requireNonNull(videoId);
-        synchronized (fetchCache) {
-            // Remove any expired entries.
-            final long now = System.currentTimeMillis();
-            if (isSDKAbove(24)) {
-                fetchCache.values().removeIf(value -> {
-                    final boolean expired = value.isExpired(now);
-                    if (expired)
-                        Logger.printDebug(() -> "Removing expired fetch: " + value.videoId);
-                    return expired;
-                });
-            } else {
-                final Iterator<Map.Entry<String, ReturnYouTubeDislike>> itr = fetchCache.entrySet().iterator();
-                while (itr.hasNext()) {
-                    final Map.Entry<String, ReturnYouTubeDislike> entry = itr.next();
-                    if (entry.getValue().isExpired(now)) {
-                        Logger.printDebug(() -> "Removing expired fetch: " + entry.getValue().videoId);
-                        itr.remove();
-                    }
-                }
-            }
-
-            ReturnYouTubeDislike fetch = fetchCache.get(videoId);
-            if (fetch == null) {
-                fetch = new ReturnYouTubeDislike(videoId);
-                fetchCache.put(videoId, fetch);
-            }
-            return fetch;
-        }
+        return fetchCache.get(videoId, ReturnYouTubeDislike::new);
     }
 
     /**
      * Should be called if the user changes dislikes appearance settings.
      */
     public static void clearAllUICaches() {
-        synchronized (fetchCache) {
-            for (ReturnYouTubeDislike fetch : fetchCache.values()) {
-                fetch.clearUICache();
-            }
-        }
+        fetchCache.forEachValue(ReturnYouTubeDislike::clearUICache);
     }
 
     private ReturnYouTubeDislike(@NonNull String videoId) {
@@ -347,16 +325,11 @@ public class ReturnYouTubeDislike {
         this.future = Utils.submitOnBackgroundThread(() -> ReturnYouTubeDislikeApi.fetchVotes(videoId));
     }
 
-    private boolean isExpired(long now) {
-        final long timeSinceCreation = now - timeFetched;
-        if (timeSinceCreation < CACHE_TIMEOUT_FAILURE_MILLISECONDS) {
-            return false; // Not expired, even if the API call failed.
-        }
-        if (timeSinceCreation > CACHE_TIMEOUT_SUCCESS_MILLISECONDS) {
-            return true; // Always expired.
-        }
-        // Only expired if the fetch failed (API null response).
-        return (!fetchCompleted() || getFetchData(MAX_MILLISECONDS_TO_BLOCK_UI_WAITING_FOR_FETCH) == null);
+    /**
+     * @return If the fetch completed and returned data. Does not wait for the fetch to complete.
+     */
+    private boolean fetchSucceeded() {
+        return fetchCompleted() && getFetchData(MAX_MILLISECONDS_TO_BLOCK_UI_WAITING_FOR_FETCH) != null;
     }
 
     @Nullable
@@ -365,7 +338,7 @@ public class ReturnYouTubeDislike {
             return future.get(maxTimeToWait, TimeUnit.MILLISECONDS);
         } catch (TimeoutException ex) {
             Logger.printDebug(() -> "Waited but future was not complete after: " + maxTimeToWait + "ms");
-        } catch (ExecutionException | InterruptedException ex) {
+        } catch (ExecutionException | CancellationException | InterruptedException ex) {
             Logger.printException(() -> "Future failure ", ex); // will never happen
         }
         return null;
@@ -15,8 +15,10 @@ import java.util.Objects;
 import app.kitsune.integrations.music.settings.Settings;
 import app.kitsune.integrations.music.shared.VideoInformation;
 import app.kitsune.integrations.music.sponsorblock.objects.CategoryBehaviour;
+import app.kitsune.integrations.music.sponsorblock.objects.SegmentCategory;
 import app.kitsune.integrations.music.sponsorblock.objects.SponsorSegment;
 import app.kitsune.integrations.music.sponsorblock.requests.SBRequester;
+import app.kitsune.integrations.shared.sponsorblock.SegmentBarRenderer;
 import app.kitsune.integrations.shared.utils.Logger;
 import app.kitsune.integrations.shared.utils.Utils;
 
@@ -56,6 +58,7 @@ public class SegmentPlaybackController {
     private static int sponsorBarAbsoluteLeft;
     private static int sponsorAbsoluteBarRight;
     private static int sponsorBarThickness = 7;
+    private static final SegmentBarRenderer<SponsorSegment[]> segmentBarRenderer = new SegmentBarRenderer<>();
     private static SponsorSegment lastSegmentSkipped;
     private static long lastSegmentSkippedTime;
     private static int toastNumberOfSegmentsSkipped;
@@ -449,24 +452,29 @@ public class SegmentPlaybackController {
      */
     public static void drawSponsorTimeBars(final Canvas canvas, final float posY) {
         try {
-            if (segments == null) return;
+            final SponsorSegment[] currentSegments = segments;
+            if (currentSegments == null) return;
             final long videoLength = VideoInformation.getVideoLength();
             if (videoLength <= 0) return;
 
-            final int thicknessDiv2 = sponsorBarThickness / 2; // rounds down
-            final float top = posY - (sponsorBarThickness - thicknessDiv2);
-            final float bottom = posY + thicknessDiv2;
-            final float videoMillisecondsToPixels = (1f / videoLength) * (sponsorAbsoluteBarRight - sponsorBarAbsoluteLeft);
-            final float leftPadding = sponsorBarAbsoluteLeft;
-
-            for (SponsorSegment segment : segments) {
-                final float left = leftPadding + segment.start * videoMillisecondsToPixels;
-                final float right = leftPadding + segment.end * videoMillisecondsToPixels;
-                canvas.drawRect(left, top, right, bottom, segment.category.paint);
-            }
+            segmentBarRenderer.draw(canvas, posY, currentSegments, SegmentCategory.getColorVersion(), videoLength,
+                    sponsorBarAbsoluteLeft, sponsorAbsoluteBarRight, sponsorBarThickness,
+                    SegmentPlaybackController::drawSegments);
         } catch (Exception ex) {
             Logger.printException(() -> "drawSponsorTimeBars failure", ex);
         }
     }
 
+    /**
+     * Draws the segments to the seekbar image of {@link #segmentBarRenderer}.
+     */
+    private static void drawSegments(Canvas imageCanvas, SponsorSegment[] segments,
+                                     float videoMillisecondsToPixels, float imageHeight) {
+        for (SponsorSegment segment : segments) {
+            final float left = segment.start * videoMillisecondsToPixels;
+            final float right = segment.end * videoMillisecondsToPixels;
+            imageCanvas.drawRect(left, 0, right, imageHeight, segment.category.paint);
+        }
+    }
+
 }
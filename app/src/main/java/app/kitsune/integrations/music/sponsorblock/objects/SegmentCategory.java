@@ -92,6 +92,18 @@ public enum SegmentCategory {
         return mValuesMap.get(key);
     }
 
+    /**
+     * Incremented each time the color of any category is changed.
+     */
+    private static int colorVersion;
+
+    /**
+     * @return A value that changes every time the color of any category is changed.
+     */
+    public static int getColorVersion() {
+        return colorVersion;
+    }
+
     /**
      * Must be called if behavior of any category is changed
      */
@@ -246,6 +258,7 @@ public enum SegmentCategory {
         this.color = color;
         paint.setColor(color);
         paint.setAlpha(255);
+        colorVersion++;
         colorSetting.save(colorString); // Save after parsing.
     }
 
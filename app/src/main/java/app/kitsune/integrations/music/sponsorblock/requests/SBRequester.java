@@ -23,6 +23,7 @@ import app.kitsune.integrations.music.sponsorblock.objects.SponsorSegment;
 import app.kitsune.integrations.shared.requests.Requester;
 import app.kitsune.integrations.shared.requests.Route;
 import app.kitsune.integrations.shared.sponsorblock.requests.SBRoutes;
+import app.kitsune.integrations.shared.utils.BackgroundLane;
 import app.kitsune.integrations.shared.utils.Logger;
 import app.kitsune.integrations.shared.utils.Utils;
 
@@ -116,7 +117,7 @@ public class SBRequester {
         if (now < (Settings.SB_LAST_VIP_CHECK.get() + TimeUnit.DAYS.toMillis(3))) {
             return;
         }
-        Utils.runOnBackgroundThread(() -> {
+        Utils.runOnBackgroundThread(BackgroundLane.HOUSEKEEPING, () -> {
             try {
                 JSONObject json = getJSONObject(SponsorBlockSettings.getSBPrivateUserID());
                 boolean vip = json.getBoolean("vip");
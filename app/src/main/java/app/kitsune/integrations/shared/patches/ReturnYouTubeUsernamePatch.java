@@ -8,6 +8,7 @@ import android.text.Spanned;
 
 import androidx.annotation.NonNull;
 
+import app.kitsune.integrations.shared.patches.components.ConversionContextClassifier;
 import app.kitsune.integrations.shared.returnyoutubeusername.requests.ChannelRequest;
 import app.kitsune.integrations.shared.settings.BaseSettings;
 import app.kitsune.integrations.shared.utils.Logger;
@@ -18,7 +19,7 @@ public class ReturnYouTubeUsernamePatch {
     private static final Boolean RETURN_YOUTUBE_USERNAME_DISPLAY_FORMAT = BaseSettings.RETURN_YOUTUBE_USERNAME_DISPLAY_FORMAT.get().userNameFirst;
     private static final String YOUTUBE_API_KEY = BaseSettings.RETURN_YOUTUBE_USERNAME_YOUTUBE_DATA_API_V3_DEVELOPER_KEY.get();
 
-    private static final String AUTHOR_BADGE_PATH = "|author_badge.eml|";
+    private static final long AUTHOR_BADGE_PATH = ConversionContextClassifier.registerPattern("|author_badge.eml|");
     private static volatile String lastFetchedHandle = "";
 
     /**
@@ -56,7 +57,7 @@ public class ReturnYouTubeUsernamePatch {
                 return original;
             }
             // In comments, the path to YouTube Handle(@youtube) always includes [AUTHOR_BADGE_PATH].
-            if (!conversionContext.toString().contains(AUTHOR_BADGE_PATH)) {
+            if (!ConversionContextClassifier.containsAny(conversionContext, AUTHOR_BADGE_PATH)) {
                 return original;
             }
             String handle = original.toString();
@@ -1,5 +1,7 @@
 package app.kitsune.integrations.shared.patches.components;
 
+import java.util.Arrays;
+
 import app.kitsune.integrations.shared.settings.BooleanSetting;
 import app.kitsune.integrations.shared.utils.ByteTrieSearch;
 import app.kitsune.integrations.shared.utils.Logger;
@@ -8,29 +10,137 @@ import app.kitsune.integrations.shared.utils.Logger;
  * If you have more than 1 filter patterns, then all instances of
  * this class should filtered using {@link ByteArrayFilterGroupList#check(byte[])},
  * which uses a prefix tree to give better performance.
+ * <p>
+ * The search method is chosen for each pattern on the first check.
+ * Short patterns are found by scanning for the first byte,
+ * periodic patterns use Knuth-Morris-Pratt,
+ * and all other patterns use Boyer-Moore-Horspool which can skip over most of the buffer.
+ * Groups with many patterns are instead searched in a single pass using a prefix tree.
  */
 @SuppressWarnings("unused")
 public class ByteArrayFilterGroup extends FilterGroup<byte[]> {
 
-    private volatile int[][] failurePatterns;
+    /**
+     * Patterns shorter than this are found by scanning for the first byte,
+     * since the skip distance of Boyer-Moore-Horspool can be at most the pattern length.
+     */
+    private static final int MINIMUM_SKIP_TABLE_PATTERN_LENGTH = 4;
 
-    // Modified implementation from https://stackoverflow.com/a/1507813
-    private static int indexOf(final byte[] data, final byte[] pattern, final int[] failure) {
-        // Finds the first occurrence of the pattern in the byte array using
-        // KMP matching algorithm.
-        int patternLength = pattern.length;
-        for (int i = 0, j = 0, dataLength = data.length; i < dataLength; i++) {
-            while (j > 0 && pattern[j] != data[i]) {
-                j = failure[j - 1];
+    /**
+     * Groups with this many or more patterns are searched using a prefix tree.
+     */
+    private static final int MINIMUM_PREFIX_TREE_PATTERN_COUNT = 4;
+
+    private abstract static class PatternMatcher {
+        final byte[] pattern;
+
+        PatternMatcher(byte[] pattern) {
+            this.pattern = pattern;
+        }
+
+        /**
+         * @return Index of the first occurrence of the pattern, or -1 if not found.
+         */
+        abstract int indexOf(byte[] data);
+    }
+
+    private static final class FirstByteMatcher extends PatternMatcher {
+        FirstByteMatcher(byte[] pattern) {
+            super(pattern);
+        }
+
+        @Override
+        int indexOf(byte[] data) {
+            final byte[] pattern = this.pattern;
+            final int patternLength = pattern.length;
+            if (patternLength == 0) {
+                return 0;
             }
-            if (pattern[j] == data[i]) {
-                j++;
+            final byte firstByte = pattern[0];
+            for (int i = 0, lastStartIndex = data.length - patternLength; i <= lastStartIndex; i++) {
+                if (data[i] != firstByte) {
+                    continue;
+                }
+                int j = 1;
+                while (j < patternLength && data[i + j] == pattern[j]) {
+                    j++;
+                }
+                if (j == patternLength) {
+                    return i;
+                }
             }
-            if (j == patternLength) {
-                return i - patternLength + 1;
+            return -1;
+        }
+    }
+
+    private static final class KnuthMorrisPrattMatcher extends PatternMatcher {
+        final int[] failure;
+
+        KnuthMorrisPrattMatcher(byte[] pattern, int[] failure) {
+            super(pattern);
+            this.failure = failure;
+        }
+
+        // Modified implementation from https://stackoverflow.com/a/1507813
+        @Override
+        int indexOf(byte[] data) {
+            // Finds the first occurrence of the pattern in the byte array using
+            // KMP matching algorithm.
+            final byte[] pattern = this.pattern;
+            final int[] failure = this.failure;
+            final int patternLength = pattern.length;
+            for (int i = 0, j = 0, dataLength = data.length; i < dataLength; i++) {
+                while (j > 0 && pattern[j] != data[i]) {
+                    j = failure[j - 1];
+                }
+                if (pattern[j] == data[i]) {
+                    j++;
+                }
+                if (j == patternLength) {
+                    return i - patternLength + 1;
+                }
             }
+            return -1;
+        }
+    }
+
+    private static final class BoyerMooreHorspoolMatcher extends PatternMatcher {
+        /**
+         * Distance to shift the pattern, indexed by the
+         * unsigned value of the data byte aligned with the last pattern byte.
+         */
+        final int[] skipTable = new int[256];
+
+        BoyerMooreHorspoolMatcher(byte[] pattern) {
+            super(pattern);
+            final int patternLength = pattern.length;
+            Arrays.fill(skipTable, patternLength);
+            for (int i = 0, last = patternLength - 1; i < last; i++) {
+                skipTable[pattern[i] & 0xFF] = last - i;
+            }
+        }
+
+        @Override
+        int indexOf(byte[] data) {
+            final byte[] pattern = this.pattern;
+            final int[] skipTable = this.skipTable;
+            final int last = pattern.length - 1;
+            final byte lastByte = pattern[last];
+            for (int i = 0, lastStartIndex = data.length - pattern.length; i <= lastStartIndex; ) {
+                final byte value = data[i + last];
+                if (value == lastByte) {
+                    int j = last - 1;
+                    while (j >= 0 && data[i + j] == pattern[j]) {
+                        j--;
+                    }
+                    if (j < 0) {
+                        return i;
+                    }
+                }
+                i += skipTable[value & 0xFF];
+            }
+            return -1;
         }
-        return -1;
     }
 
     private static int[] createFailurePattern(byte[] pattern) {
@@ -51,48 +161,118 @@ public class ByteArrayFilterGroup extends FilterGroup<byte[]> {
         return failure;
     }
 
+    private static PatternMatcher createMatcher(byte[] pattern) {
+        final int patternLength = pattern.length;
+        if (patternLength < MINIMUM_SKIP_TABLE_PATTERN_LENGTH) {
+            return new FirstByteMatcher(pattern);
+        }
+        // Horspool can degrade to comparing every byte many times if the pattern repeats itself,
+        // such as "aaaa" or "abab", and KMP is always linear.
+        int[] failure = createFailurePattern(pattern);
+        if (2 * failure[patternLength - 1] >= patternLength) {
+            return new KnuthMorrisPrattMatcher(pattern, failure);
+        }
+        return new BoyerMooreHorspoolMatcher(pattern);
+    }
+
+    /**
+     * Returned if nothing matched, so checks that do not match never allocate.
+     */
+    private final FilterGroupResult notMatchedResult;
+
+    /**
+     * Search of each pattern, or null if not yet built or if {@link #prefixTreeSearch} is used.
+     */
+    private volatile PatternMatcher[] matchers;
+
+    private volatile ByteTrieSearch prefixTreeSearch;
+
     public ByteArrayFilterGroup(BooleanSetting setting, byte[]... filters) {
         super(setting, filters);
+        notMatchedResult = new FilterGroupResult(setting, -1, 0);
     }
 
     /**
      * Converts the Strings into byte arrays. Used to search for text in binary data.
      */
     public ByteArrayFilterGroup(BooleanSetting setting, String... filters) {
-        super(setting, ByteTrieSearch.convertStringsToBytes(filters));
+        this(setting, ByteTrieSearch.convertStringsToBytes(filters));
     }
 
-    private synchronized void buildFailurePatterns() {
-        if (failurePatterns != null)
+    private synchronized void buildSearch() {
+        if (matchers != null || prefixTreeSearch != null)
             return; // Thread race and another thread already initialized the search.
-        Logger.printDebug(() -> "Building failure array for: " + this);
-        int[][] failurePatterns = new int[filters.length][];
+        Logger.printDebug(() -> "Building search for: " + this);
+        if (filters.length >= MINIMUM_PREFIX_TREE_PATTERN_COUNT) {
+            ByteTrieSearch search = new ByteTrieSearch();
+            for (byte[] pattern : filters) {
+                search.addPattern(pattern, (textSearched, matchedStartIndex, matchedLength, callbackParameter) -> {
+                    ((SearchMatch) callbackParameter).set(setting, matchedStartIndex, matchedLength);
+                    return true;
+                });
+            }
+            prefixTreeSearch = search; // Must set after initialization finishes.
+            return;
+        }
+        PatternMatcher[] matchers = new PatternMatcher[filters.length];
         int i = 0;
         for (byte[] pattern : filters) {
-            failurePatterns[i++] = createFailurePattern(pattern);
+            matchers[i++] = createMatcher(pattern);
         }
-        this.failurePatterns = failurePatterns; // Must set after initialization finishes.
+        this.matchers = matchers; // Must set after initialization finishes.
     }
 
+    /**
+     * If more than one pattern matches, then the result may be for any of the matching patterns.
+     */
     @Override
     public FilterGroupResult check(final byte[] bytes) {
-        int matchedLength = 0;
-        int matchedIndex = -1;
-        if (isEnabled()) {
-            int[][] failures = failurePatterns;
-            if (failures == null) {
-                buildFailurePatterns(); // Lazy load.
-                failures = failurePatterns;
+        if (!isEnabled()) {
+            return notMatchedResult;
+        }
+        PatternMatcher[] matchers = this.matchers;
+        ByteTrieSearch search = prefixTreeSearch;
+        if (matchers == null && search == null) {
+            buildSearch(); // Lazy load.
+            matchers = this.matchers;
+            search = prefixTreeSearch;
+        }
+
+        ProtoBufferIndex bufferIndex = ProtoBufferIndex.forBuffer(bytes);
+        if (search != null) {
+            return checkPrefixTree(search, bufferIndex, bytes);
+        }
+
+        for (PatternMatcher matcher : matchers) {
+            byte[] filter = matcher.pattern;
+            if (bufferIndex != null && !bufferIndex.mayContain(filter)) {
+                continue; // Pattern is not in the buffer, and the buffer does not need to be searched.
             }
-            for (int i = 0, length = filters.length; i < length; i++) {
-                byte[] filter = filters[i];
-                matchedIndex = indexOf(bytes, filter, failures[i]);
-                if (matchedIndex >= 0) {
-                    matchedLength = filter.length;
-                    break;
-                }
+            final int matchedIndex = matcher.indexOf(bytes);
+            if (matchedIndex >= 0) {
+                return new FilterGroupResult(setting, matchedIndex, filter.length);
+            }
+        }
+        return notMatchedResult;
+    }
+
+    private FilterGroupResult checkPrefixTree(ByteTrieSearch search, ProtoBufferIndex bufferIndex, byte[] bytes) {
+        if (bufferIndex != null && !anyPatternMayMatch(bufferIndex)) {
+            return notMatchedResult;
+        }
+        SearchMatch match = SearchMatch.get();
+        if (!search.matches(bytes, match)) {
+            return notMatchedResult;
+        }
+        return match.toResult();
+    }
+
+    private boolean anyPatternMayMatch(ProtoBufferIndex bufferIndex) {
+        for (byte[] pattern : filters) {
+            if (bufferIndex.mayContain(pattern)) {
+                return true;
             }
         }
-        return new FilterGroupResult(setting, matchedIndex, matchedLength);
+        return false;
     }
 }
@@ -11,4 +11,31 @@ public final class ByteArrayFilterGroupList extends FilterGroupList<byte[], Byte
     protected ByteTrieSearch createSearchGraph() {
         return new ByteTrieSearch();
     }
+
+    /**
+     * If the bytes are the litho buffer currently being filtered, then the buffer index is used
+     * to skip searching if no enabled pattern can be in the buffer.
+     */
+    @Override
+    public FilterGroup.FilterGroupResult check(byte[] bytes) {
+        ProtoBufferIndex bufferIndex = ProtoBufferIndex.forBuffer(bytes);
+        if (bufferIndex != null && !anyPatternMayMatch(bufferIndex)) {
+            return FilterGroup.FilterGroupResult.NOT_MATCHED;
+        }
+        return super.check(bytes);
+    }
+
+    private boolean anyPatternMayMatch(ProtoBufferIndex bufferIndex) {
+        for (ByteArrayFilterGroup group : this) {
+            if (!group.isEnabled()) {
+                continue;
+            }
+            for (byte[] pattern : group.filters) {
+                if (bufferIndex.mayContain(pattern)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
 }
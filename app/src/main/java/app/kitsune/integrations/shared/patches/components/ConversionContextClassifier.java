@@ -0,0 +1,133 @@
+package app.kitsune.integrations.shared.patches.components;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import app.kitsune.integrations.shared.utils.StringTrieSearch;
+
+/**
+ * Classifies litho ConversionContext objects, for hooks that check the path of a text or span.
+ * <p>
+ * Many hooks are called for the same ConversionContext, and comment threads can have hundreds of spans.
+ * Instead of each hook converting the context to a String and searching the String,
+ * each hook registers its patterns once and then checks the bits of the patterns found in the context.
+ * <p>
+ * The last context of each thread is remembered by identity, so the context is converted to a String
+ * and searched only once no matter how many hooks are called for it.
+ * ConversionContext objects are not changed after they are created.
+ */
+public final class ConversionContextClassifier {
+
+    /**
+     * Maximum number of patterns, as the found patterns are bits of a long.
+     */
+    private static final int MAXIMUM_PATTERN_COUNT = Long.SIZE;
+
+    private static final StringTrieSearch searchTree = new StringTrieSearch();
+
+    @GuardedBy("patternBits")
+    private static final Map<String, Long> patternBits = new HashMap<>();
+
+    /**
+     * Number of registered patterns.  Classifications made with fewer patterns are searched again.
+     */
+    private static volatile int patternCount;
+
+    /**
+     * The last context classified by a thread.
+     */
+    private static final class Classification {
+        @Nullable
+        Object conversionContext;
+        @NonNull
+        String conversionContextString = "";
+        /**
+         * Bits of the patterns found.
+         */
+        long matchedPatterns;
+        /**
+         * Value of {@link #patternCount} when this was searched.
+         */
+        int searchedPatternCount;
+    }
+
+    private static final ThreadLocal<Classification> lastClassification = ThreadLocal.withInitial(Classification::new);
+
+    private ConversionContextClassifier() {
+    } // utility class
+
+    /**
+     * Registers a pattern to find in all contexts.  Should be called once per pattern, such as from a static field.
+     *
+     * @param pattern Text to find anywhere in the ConversionContext String.
+     * @return The bit of the pattern. Registering the same pattern again returns the same bit.
+     */
+    public static long registerPattern(@NonNull String pattern) {
+        if (pattern.isEmpty()) {
+            throw new IllegalArgumentException("Empty pattern");
+        }
+        synchronized (patternBits) {
+            Long existingBit = patternBits.get(pattern);
+            if (existingBit != null) {
+                return existingBit;
+            }
+            final int count = patternCount;
+            if (count == MAXIMUM_PATTERN_COUNT) {
+                throw new IllegalStateException("Too many conversion context patterns: " + pattern);
+            }
+            final long bit = 1L << count;
+            patternBits.put(pattern, bit);
+            searchTree.addPattern(pattern, (textSearched, matchedStartIndex, matchedLength, callbackParameter) -> {
+                ((Classification) callbackParameter).matchedPatterns |= bit;
+                return false; // Find all patterns.
+            });
+            patternCount = count + 1;
+            return bit;
+        }
+    }
+
+    @NonNull
+    private static Classification getClassification(@NonNull Object conversionContext) {
+        Classification classification = lastClassification.get();
+        //noinspection ConstantConditions
+        if (classification.conversionContext != conversionContext) {
+            classification.conversionContext = conversionContext;
+            classification.conversionContextString = conversionContext.toString();
+            classification.searchedPatternCount = -1;
+        }
+        final int count = patternCount;
+        if (classification.searchedPatternCount != count) {
+            classification.matchedPatterns = 0;
+            searchTree.matches(classification.conversionContextString, classification);
+            classification.searchedPatternCount = count;
+        }
+        return classification;
+    }
+
+    /**
+     * @return The String of the context.
+     */
+    @NonNull
+    public static String toString(@NonNull Object conversionContext) {
+        return getClassification(conversionContext).conversionContextString;
+    }
+
+    /**
+     * @return Bits of all registered patterns found in the context.
+     */
+    public static long classify(@NonNull Object conversionContext) {
+        return getClassification(conversionContext).matchedPatterns;
+    }
+
+    /**
+     * @param patterns Bits of registered patterns.
+     * @return If any of the patterns are found in the context.
+     */
+    public static boolean containsAny(@NonNull Object conversionContext, long patterns) {
+        return (classify(conversionContext) & patterns) != 0;
+    }
+}
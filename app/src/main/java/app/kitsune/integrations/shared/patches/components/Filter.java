@@ -73,6 +73,32 @@ public abstract class Filter {
         allValueCallbacks.addAll(Arrays.asList(groups));
     }
 
+    /**
+     * Results of {@link #isFiltered(String, String, String, byte[], StringFilterGroup, FilterContentType, int)}
+     * are cached and reused when the same component is filtered again.
+     * Cached results are discarded when any boolean setting changes.
+     * <p>
+     * Filters must override this and return false if the result depends on anything other than
+     * the path, identifier, buffer and boolean settings (such as the current player type or navigation tab),
+     * or if filtering has side effects (such as updating state or statistics).
+     */
+    public boolean isResultCacheable() {
+        return true;
+    }
+
+    /**
+     * If {@link #isFiltered(String, String, String, byte[], StringFilterGroup, FilterContentType, int)}
+     * reads the all value when an identifier or path callback is matched.
+     * <p>
+     * Creating the all value converts the entire litho object to a String,
+     * and the all value is not part of the cached result.
+     * So for identifier and path callbacks of filters that do not override this,
+     * the all value is not created and is null.
+     */
+    public boolean usesAllValue() {
+        return false;
+    }
+
     /**
      * Called after an enabled filter has been matched.
      * Default implementation is to always filter the matched component and log the action.
@@ -84,12 +110,16 @@ public abstract class Filter {
      * <p>
      * Method is called off the main thread.
      *
+     * @param allValue     The all value of the component. Always set for all value callbacks.
+     *                     For identifier and path callbacks the all value is created only if
+     *                     {@link #usesAllValue()} returns true, and is otherwise null.
+     *                     Filters that read the all value in those callbacks must override {@link #usesAllValue()}.
      * @param matchedGroup The actual filter that matched.
      * @param contentType  The type of content matched.
      * @param contentIndex Matched index of the identifier or path.
      * @return True if the litho component should be filtered out.
      */
-    public boolean isFiltered(String path, @Nullable String identifier, String allValue, byte[] protobufBufferArray,
+    public boolean isFiltered(String path, @Nullable String identifier, @Nullable String allValue, byte[] protobufBufferArray,
                               StringFilterGroup matchedGroup, FilterContentType contentType, int contentIndex) {
         if (BaseSettings.ENABLE_DEBUG_LOGGING.get()) {
             String filterSimpleName = getClass().getSimpleName();
@@ -98,7 +128,9 @@ public abstract class Filter {
             } else if (contentType == FilterContentType.PATH) {
                 Logger.printDebug(() -> filterSimpleName + " Filtered path: " + path);
             } else if (contentType == FilterContentType.ALLVALUE) {
-                Logger.printDebug(() -> filterSimpleName + " Filtered object: " + allValue);
+                // The all value is null if it was not created, see usesAllValue().
+                Logger.printDebug(() -> filterSimpleName + " Filtered object: "
+                        + (allValue != null ? allValue : (identifier != null ? identifier : path)));
             }
         }
         return true;
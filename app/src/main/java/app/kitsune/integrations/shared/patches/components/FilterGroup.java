@@ -6,22 +6,22 @@ import app.kitsune.integrations.shared.settings.BooleanSetting;
 
 @SuppressWarnings("unused")
 public abstract class FilterGroup<T> {
+    /**
+     * Result of a check. Results are immutable, so the same result can be returned by many checks.
+     */
     public final static class FilterGroupResult {
-        private BooleanSetting setting;
-        private int matchedIndex;
-        private int matchedLength;
+        /**
+         * Result if nothing matched, for checks that have no setting.
+         */
+        static final FilterGroupResult NOT_MATCHED = new FilterGroupResult(null, -1, 0);
+
+        private final BooleanSetting setting;
+        private final int matchedIndex;
+        private final int matchedLength;
         // In the future it might be useful to include which pattern matched,
         // but for now that is not needed.
 
-        FilterGroupResult() {
-            this(null, -1, 0);
-        }
-
         FilterGroupResult(BooleanSetting setting, int matchedIndex, int matchedLength) {
-            setValues(setting, matchedIndex, matchedLength);
-        }
-
-        public void setValues(BooleanSetting setting, int matchedIndex, int matchedLength) {
             this.setting = setting;
             this.matchedIndex = matchedIndex;
             this.matchedLength = matchedLength;
@@ -54,6 +54,39 @@ public abstract class FilterGroup<T> {
         }
     }
 
+    /**
+     * Pattern matched by a search, passed to the search callbacks.
+     * Each thread reuses the same instance, and the match is returned as a {@link FilterGroupResult}.
+     */
+    static final class SearchMatch {
+        private static final ThreadLocal<SearchMatch> threadMatch = ThreadLocal.withInitial(SearchMatch::new);
+
+        private BooleanSetting setting;
+        private int matchedIndex;
+        private int matchedLength;
+
+        /**
+         * @return The match of the calling thread, cleared of any previous match.
+         */
+        static SearchMatch get() {
+            SearchMatch match = threadMatch.get();
+            match.set(null, -1, 0);
+            return match;
+        }
+
+        void set(BooleanSetting setting, int matchedIndex, int matchedLength) {
+            this.setting = setting;
+            this.matchedIndex = matchedIndex;
+            this.matchedLength = matchedLength;
+        }
+
+        FilterGroupResult toResult() {
+            return matchedIndex < 0
+                    ? FilterGroupResult.NOT_MATCHED
+                    : new FilterGroupResult(setting, matchedIndex, matchedLength);
+        }
+    }
+
     protected final BooleanSetting setting;
     protected final T[] filters;
 
@@ -29,8 +29,7 @@ public abstract class FilterGroupList<V, T extends FilterGroup<V>> implements It
             for (V pattern : group.filters) {
                 search.addPattern(pattern, (textSearched, matchedStartIndex, matchedLength, callbackParameter) -> {
                     if (group.isEnabled()) {
-                        FilterGroup.FilterGroupResult result = (FilterGroup.FilterGroupResult) callbackParameter;
-                        result.setValues(group.setting, matchedStartIndex, matchedLength);
+                        ((FilterGroup.SearchMatch) callbackParameter).set(group.setting, matchedStartIndex, matchedLength);
                         return true;
                     }
                     return false;
@@ -59,10 +58,9 @@ public abstract class FilterGroupList<V, T extends FilterGroup<V>> implements It
     }
 
     public FilterGroup.FilterGroupResult check(V stack) {
-        FilterGroup.FilterGroupResult result = new FilterGroup.FilterGroupResult();
-        search.matches(stack, result);
-        return result;
-
+        FilterGroup.SearchMatch match = FilterGroup.SearchMatch.get();
+        search.matches(stack, match);
+        return match.toResult();
     }
 
     protected abstract TrieSearch<V> createSearchGraph();
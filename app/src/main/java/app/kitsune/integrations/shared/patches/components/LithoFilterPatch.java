@@ -4,6 +4,7 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.List;
 
 import app.kitsune.integrations.shared.settings.BaseSettings;
@@ -14,19 +15,64 @@ import app.kitsune.integrations.shared.utils.StringTrieSearch;
 public final class LithoFilterPatch {
     /**
      * Simple wrapper to pass the litho parameters through the prefix search.
+     * <p>
+     * The path and all value Strings are only created if a search or a filter uses them.
+     * <p>
+     * Each filtering thread reuses the same instance, so no objects are allocated
+     * when filtering components that do not match any filter.
      */
     private static final class LithoFilterParameters {
         @Nullable
-        final String identifier;
-        final String path;
-        final String allValue;
-        final byte[] protoBuffer;
+        String identifier;
+        StringBuilder pathBuilder;
+        Object object;
+        byte[] protoBuffer;
+        @Nullable
+        private String path;
+        @Nullable
+        private String allValue;
+        /**
+         * If the filter result depends only on the identifier, path, buffer and settings.
+         */
+        boolean resultIsCacheable;
+        /**
+         * If any filter was called, and the result may depend on the buffer.
+         * If no filter is called, then the result depends only on the identifier, path and settings.
+         */
+        boolean resultDependsOnBuffer;
 
-        LithoFilterParameters(String lithoPath, @Nullable String lithoIdentifier, String allValues, byte[] bufferArray) {
-            this.path = lithoPath;
+        void setValues(StringBuilder lithoPathBuilder, @Nullable String lithoIdentifier, Object lithoObject, byte[] bufferArray) {
+            this.pathBuilder = lithoPathBuilder;
             this.identifier = lithoIdentifier;
-            this.allValue = allValues;
+            this.object = lithoObject;
             this.protoBuffer = bufferArray;
+            this.path = null;
+            this.allValue = null;
+            this.resultIsCacheable = true;
+            this.resultDependsOnBuffer = false;
+        }
+
+        /**
+         * Clears references to the litho objects, so they are not kept in memory after filtering completes.
+         */
+        void clear() {
+            setValues(null, null, null, null);
+        }
+
+        String getPath() {
+            if (path == null) {
+                path = pathBuilder.toString();
+            }
+            return path;
+        }
+
+        String getAllValue() {
+            // The all value is not part of the cache key.
+            resultIsCacheable = false;
+            if (allValue == null) {
+                allValue = object.toString();
+            }
+            return allValue;
         }
 
         @NonNull
@@ -37,7 +83,7 @@ public final class LithoFilterPatch {
             builder.append("\nID: ");
             builder.append(identifier);
             builder.append("\nPath: ");
-            builder.append(path);
+            builder.append(getPath());
             if (BaseSettings.ENABLE_DEBUG_BUFFER_LOGGING.get()) {
                 builder.append("\nBufferStrings: ");
                 findAsciiStrings(builder, protoBuffer);
@@ -79,9 +125,108 @@ public final class LithoFilterPatch {
             new DummyFilter() // Replaced by patch.
     };
 
-    private static final StringTrieSearch pathSearchTree = new StringTrieSearch();
-    private static final StringTrieSearch identifierSearchTree = new StringTrieSearch();
-    private static final StringTrieSearch allValueSearchTree = new StringTrieSearch();
+    /**
+     * Searches the identifier, path and all value of a component
+     * using patterns tagged with the {@link Filter.FilterContentType} they apply to.
+     * <p>
+     * Content is searched in order of how cheap it is to obtain:
+     * the identifier is already a String, the path must be copied from the path builder,
+     * and the all value requires converting the entire litho object to a String.
+     * Content that is not needed by any pattern is never created.
+     */
+    private static final class LithoContentSearch {
+        private final StringTrieSearch identifierSearchTree = new StringTrieSearch();
+        private final StringTrieSearch pathSearchTree = new StringTrieSearch();
+        private final StringTrieSearch allValueSearchTree = new StringTrieSearch();
+
+        /**
+         * Groups with all value patterns.
+         * Used to skip creating the all value if no group is currently enabled.
+         */
+        private final List<StringFilterGroup> allValueGroups = new ArrayList<>();
+
+        private StringTrieSearch getSearchTree(Filter.FilterContentType type) {
+            switch (type) {
+                case IDENTIFIER:
+                    return identifierSearchTree;
+                case PATH:
+                    return pathSearchTree;
+                case ALLVALUE:
+                    return allValueSearchTree;
+                default:
+                    throw new IllegalArgumentException("Unsupported content type: " + type);
+            }
+        }
+
+        void addFilterGroups(Filter filter, List<StringFilterGroup> groups, Filter.FilterContentType type) {
+            StringTrieSearch searchTree = getSearchTree(type);
+            for (StringFilterGroup group : groups) {
+                if (!group.includeInSearch()) {
+                    continue;
+                }
+                if (type == Filter.FilterContentType.ALLVALUE) {
+                    allValueGroups.add(group);
+                }
+                LithoFilterStatistics.Counters filterCounters = statistics.getFilterCounters(filter);
+                LithoFilterStatistics.Counters groupCounters = statistics.createGroupCounters(filter, group, type);
+                for (String pattern : group.filters) {
+                    searchTree.addPattern(pattern, (textSearched, matchedStartIndex, matchedLength, callbackParameter) -> {
+                                if (!group.isEnabled()) return false;
+                                LithoFilterParameters parameters = (LithoFilterParameters) callbackParameter;
+                                parameters.resultDependsOnBuffer = true;
+                                if (!filter.isResultCacheable()) {
+                                    parameters.resultIsCacheable = false;
+                                }
+                                // The all value of an all value callback was already created by the search.
+                                final String allValue = (type == Filter.FilterContentType.ALLVALUE || filter.usesAllValue())
+                                        ? parameters.getAllValue()
+                                        : null;
+                                if (!LithoFilterStatistics.isEnabled()) {
+                                    return filter.isFiltered(parameters.getPath(), parameters.identifier, allValue,
+                                            parameters.protoBuffer, group, type, matchedStartIndex);
+                                }
+
+                                final long startTime = System.nanoTime();
+                                final boolean filtered = filter.isFiltered(parameters.getPath(), parameters.identifier,
+                                        allValue, parameters.protoBuffer, group, type, matchedStartIndex);
+                                final long elapsedTime = System.nanoTime() - startTime;
+                                filterCounters.record(elapsedTime, filtered);
+                                groupCounters.record(elapsedTime, filtered);
+                                return filtered;
+                            }
+                    );
+                }
+            }
+        }
+
+        private boolean allValueSearchIsActive() {
+            for (StringFilterGroup group : allValueGroups) {
+                if (group.isEnabled()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        boolean matches(LithoFilterParameters parameters) {
+            if (parameters.identifier != null && identifierSearchTree.matches(parameters.identifier, parameters)) {
+                return true;
+            }
+
+            // Search the path builder directly, and the path String is created only if a filter is matched.
+            if (pathSearchTree.matches(parameters.pathBuilder, parameters)) {
+                return true;
+            }
+
+            return allValueSearchIsActive() && allValueSearchTree.matches(parameters.getAllValue(), parameters);
+        }
+    }
+
+    private static final LithoFilterStatistics statistics = new LithoFilterStatistics();
+
+    private static final LithoContentSearch contentSearch = new LithoContentSearch();
+
+    private static final LithoFilterResultCache resultCache = new LithoFilterResultCache();
 
     private static final byte[] EMPTY_BYTE_ARRAY = new byte[0];
 
@@ -91,40 +236,23 @@ public final class LithoFilterPatch {
      */
     private static final ThreadLocal<ByteBuffer> bufferThreadLocal = new ThreadLocal<>();
 
+    private static final ThreadLocal<LithoFilterParameters> parametersThreadLocal =
+            ThreadLocal.withInitial(LithoFilterParameters::new);
+
     static {
         for (Filter filter : filters) {
-            filterUsingCallbacks(identifierSearchTree, filter,
-                    filter.identifierCallbacks, Filter.FilterContentType.IDENTIFIER);
-            filterUsingCallbacks(pathSearchTree, filter,
-                    filter.pathCallbacks, Filter.FilterContentType.PATH);
-            filterUsingCallbacks(allValueSearchTree, filter,
-                    filter.allValueCallbacks, Filter.FilterContentType.ALLVALUE);
+            contentSearch.addFilterGroups(filter, filter.identifierCallbacks, Filter.FilterContentType.IDENTIFIER);
+            contentSearch.addFilterGroups(filter, filter.pathCallbacks, Filter.FilterContentType.PATH);
+            contentSearch.addFilterGroups(filter, filter.allValueCallbacks, Filter.FilterContentType.ALLVALUE);
         }
 
         Logger.printDebug(() -> "Using: "
-                + identifierSearchTree.numberOfPatterns() + " identifier filters"
-                + " (" + identifierSearchTree.getEstimatedMemorySize() + " KB), "
-                + pathSearchTree.numberOfPatterns() + " path filters"
-                + " (" + pathSearchTree.getEstimatedMemorySize() + " KB)");
-    }
-
-    private static void filterUsingCallbacks(StringTrieSearch pathSearchTree,
-                                             Filter filter, List<StringFilterGroup> groups,
-                                             Filter.FilterContentType type) {
-        for (StringFilterGroup group : groups) {
-            if (!group.includeInSearch()) {
-                continue;
-            }
-            for (String pattern : group.filters) {
-                pathSearchTree.addPattern(pattern, (textSearched, matchedStartIndex, matchedLength, callbackParameter) -> {
-                            if (!group.isEnabled()) return false;
-                            LithoFilterParameters parameters = (LithoFilterParameters) callbackParameter;
-                            return filter.isFiltered(parameters.path, parameters.identifier, parameters.allValue, parameters.protoBuffer,
-                                    group, type, matchedStartIndex);
-                        }
-                );
-            }
-        }
+                + contentSearch.identifierSearchTree.numberOfPatterns() + " identifier filters"
+                + " (" + contentSearch.identifierSearchTree.getEstimatedMemorySize() + " KB), "
+                + contentSearch.pathSearchTree.numberOfPatterns() + " path filters"
+                + " (" + contentSearch.pathSearchTree.getEstimatedMemorySize() + " KB), "
+                + contentSearch.allValueSearchTree.numberOfPatterns() + " all value filters"
+                + " (" + contentSearch.allValueSearchTree.getEstimatedMemorySize() + " KB)");
     }
 
     /**
@@ -136,12 +264,54 @@ public final class LithoFilterPatch {
         // The buffer will be cleared from memory after a new buffer is set by the same thread,
         // or when the calling thread eventually dies.
         bufferThreadLocal.set(protobufBuffer);
+        // The index is created lazily when the buffer is filtered.
+        ProtoBufferIndex.clearCurrentThreadBuffer();
+    }
+
+    /**
+     * Logs the time spent and hit rate of each filter.
+     * Statistics are collected and periodically logged only while
+     * {@link BaseSettings#ENABLE_DEBUG_LITHO_FILTER_STATISTICS} is enabled.
+     * <p>
+     * Called from the debug settings by
+     * {@link app.kitsune.integrations.shared.settings.preference.LithoFilterStatisticsPreference}.
+     */
+    public static void printFilterStatistics() {
+        statistics.print();
+    }
+
+    public static void resetFilterStatistics() {
+        statistics.reset();
+    }
+
+    private static boolean filterComponent(LithoFilterParameters parameter) {
+        final String identifier = parameter.identifier;
+        final StringBuilder pathBuilder = parameter.pathBuilder;
+        final int settingsChangeCount = resultCache.getSettingsChangeCount();
+        // The buffer fingerprint is calculated only if a cached result depends on the buffer.
+        final ProtoBufferIndex bufferIndex = ProtoBufferIndex.setCurrentThreadBuffer(parameter.protoBuffer);
+        final long cacheKey = LithoFilterResultCache.key(identifier, pathBuilder);
+        Boolean cachedResult = resultCache.get(cacheKey, identifier, pathBuilder, bufferIndex);
+        if (cachedResult != null) {
+            if (cachedResult && BaseSettings.ENABLE_DEBUG_LOGGING.get()) {
+                Logger.printDebug(() -> "Filtered using cached result");
+            }
+            return cachedResult;
+        }
+
+        final boolean filtered = contentSearch.matches(parameter);
+        if (parameter.resultIsCacheable) {
+            resultCache.put(cacheKey, identifier, parameter.getPath(), parameter.resultDependsOnBuffer,
+                    bufferIndex, filtered, settingsChangeCount);
+        }
+        return filtered;
     }
 
     /**
      * Injection point.  Called off the main thread, and commonly called by multiple threads at the same time.
      */
     public static boolean filter(@NonNull StringBuilder pathBuilder, @Nullable String identifier, @NonNull Object object) {
+        LithoFilterParameters parameter = null;
         try {
             if (pathBuilder.length() == 0) {
                 return false;
@@ -161,23 +331,28 @@ public final class LithoFilterPatch {
                 bufferArray = protobufBuffer.array();
             }
 
-            LithoFilterParameters parameter = new LithoFilterParameters(pathBuilder.toString(), identifier,
-                    object.toString(), bufferArray);
-            Logger.printDebug(() -> "Searching " + parameter);
-
-            if (parameter.identifier != null && identifierSearchTree.matches(parameter.identifier, parameter)) {
-                return true;
+            parameter = parametersThreadLocal.get();
+            parameter.setValues(pathBuilder, identifier, object, bufferArray);
+            if (BaseSettings.ENABLE_DEBUG_LOGGING.get()) {
+                // Check the setting before logging, otherwise the lambda that captures the parameter is always created.
+                LithoFilterParameters parameterToLog = parameter;
+                Logger.printDebug(() -> "Searching " + parameterToLog);
             }
 
-            if (pathSearchTree.matches(parameter.path, parameter)) {
-                return true;
+            if (!LithoFilterStatistics.isEnabled()) {
+                return filterComponent(parameter);
             }
 
-            if (allValueSearchTree.matches(parameter.allValue, parameter)) {
-                return true;
-            }
+            final long startTime = System.nanoTime();
+            final boolean filtered = filterComponent(parameter);
+            statistics.recordComponent(System.nanoTime() - startTime, filtered);
+            return filtered;
         } catch (Exception ex) {
             Logger.printException(() -> "Litho filter failure", ex);
+        } finally {
+            if (parameter != null) {
+                parameter.clear();
+            }
         }
 
         return false;
@@ -0,0 +1,198 @@
+package app.kitsune.integrations.shared.patches.components;
+
+import androidx.annotation.Nullable;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import app.kitsune.integrations.shared.settings.BaseSettings;
+import app.kitsune.integrations.shared.settings.BooleanSetting;
+import app.kitsune.integrations.shared.utils.Logger;
+
+/**
+ * Bounded cache of litho filter results, keyed by the component identifier and path.
+ * <p>
+ * Feed rows are frequently rebound and inflated again,
+ * and each time the same components with the same buffer are filtered again.
+ * <p>
+ * Most components do not match any filter, and that result depends only on the identifier and path.
+ * Only if a filter was called does the result also depend on the buffer,
+ * and only then is a fingerprint of the buffer calculated and compared.
+ * <p>
+ * The cache is a fixed size direct mapped table of immutable entries.
+ * Lookups are lock free and do not allocate, and entries that map to the same index replace each other.
+ * <p>
+ * Filter results depend on the enabled state of the filter groups, and some filters also check other settings.
+ * All entries are discarded if any {@link BooleanSetting} is changed.
+ */
+final class LithoFilterResultCache {
+
+    /**
+     * Number of cached results. Must be a power of 2.
+     */
+    private static final int CACHE_SIZE = 512;
+
+    /**
+     * How often to log the hit and miss counts, if debug logging is enabled.
+     */
+    private static final int LOG_STATISTICS_INTERVAL = 1000;
+
+    private static final class Entry {
+        final long key;
+        @Nullable
+        final String identifier;
+        final String path;
+        final boolean dependsOnBuffer;
+        /**
+         * Fingerprint of the buffer, or zero if the result does not depend on the buffer.
+         */
+        final long bufferFingerprint;
+        final boolean filtered;
+
+        Entry(long key, @Nullable String identifier, String path,
+              boolean dependsOnBuffer, long bufferFingerprint, boolean filtered) {
+            this.key = key;
+            this.identifier = identifier;
+            this.path = path;
+            this.dependsOnBuffer = dependsOnBuffer;
+            this.bufferFingerprint = bufferFingerprint;
+            this.filtered = filtered;
+        }
+
+        boolean matches(long key, @Nullable String identifier, CharSequence path, ProtoBufferIndex bufferIndex) {
+            return this.key == key
+                    && Objects.equals(this.identifier, identifier)
+                    && contentEquals(this.path, path)
+                    && (!dependsOnBuffer || bufferFingerprint == bufferIndex.getFingerprint());
+        }
+    }
+
+    private volatile AtomicReferenceArray<Entry> entries = new AtomicReferenceArray<>(CACHE_SIZE);
+
+    /**
+     * The {@link BooleanSetting#getValueChangeCount()} the current entries were filtered with.
+     */
+    private volatile int settingsChangeCount = BooleanSetting.getValueChangeCount();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Compares without creating a String of the path builder.
+     */
+    private static boolean contentEquals(String string, CharSequence sequence) {
+        final int length = string.length();
+        if (length != sequence.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (string.charAt(i) != sequence.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return A 64-bit hash of the buffer contents.
+     * The buffer is hashed 8 bytes at a time, as buffers are commonly many kilobytes.
+     */
+    static long fingerprint(byte[] buffer) {
+        final ByteBuffer longs = ByteBuffer.wrap(buffer).order(ByteOrder.LITTLE_ENDIAN);
+        final int length = buffer.length;
+        final int longsEndIndex = length & ~(Long.BYTES - 1);
+        long hash = 0xcbf29ce484222325L ^ length;
+        for (int i = 0; i < longsEndIndex; i += Long.BYTES) {
+            hash = (hash ^ longs.getLong(i)) * 0x100000001b3L;
+            hash ^= hash >>> 29;
+        }
+        for (int i = longsEndIndex; i < length; i++) {
+            hash = (hash ^ buffer[i]) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    static long key(@Nullable String identifier, CharSequence path) {
+        long hash = (identifier == null) ? 0 : identifier.hashCode();
+        for (int i = 0, length = path.length(); i < length; i++) {
+            hash = 31 * hash + path.charAt(i);
+        }
+        // Mix the bits so the lower bits used for the table index depend on all parts of the key.
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private static int indexOf(long key) {
+        return (int) key & (CACHE_SIZE - 1);
+    }
+
+    /**
+     * @return The current settings change count, which must be passed to {@link #put}.
+     */
+    int getSettingsChangeCount() {
+        final int changeCount = BooleanSetting.getValueChangeCount();
+        if (changeCount != settingsChangeCount) {
+            clear(changeCount);
+        }
+        return changeCount;
+    }
+
+    private synchronized void clear(int changeCount) {
+        if (changeCount == settingsChangeCount) {
+            return; // Another thread already cleared.
+        }
+        Logger.printDebug(() -> "Settings changed, clearing cached results. " + getStatistics());
+        entries = new AtomicReferenceArray<>(CACHE_SIZE);
+        settingsChangeCount = changeCount;
+    }
+
+    /**
+     * @return The cached result, or null if the result is not cached.
+     */
+    @Nullable
+    Boolean get(long key, @Nullable String identifier, CharSequence path, ProtoBufferIndex bufferIndex) {
+        Entry entry = entries.get(indexOf(key));
+        if (entry != null && entry.matches(key, identifier, path, bufferIndex)) {
+            hits.increment();
+            logStatisticsIfNeeded();
+            return entry.filtered;
+        }
+        misses.increment();
+        logStatisticsIfNeeded();
+        return null;
+    }
+
+    /**
+     * @param dependsOnBuffer     If any filter was called, and the result may depend on the buffer.
+     * @param settingsChangeCount The change count from {@link #getSettingsChangeCount()},
+     *                            before the component was filtered.
+     */
+    void put(long key, @Nullable String identifier, String path, boolean dependsOnBuffer,
+             ProtoBufferIndex bufferIndex, boolean filtered, int settingsChangeCount) {
+        if (settingsChangeCount != this.settingsChangeCount) {
+            return; // Settings changed while filtering, and the result may be out of date.
+        }
+        final long bufferFingerprint = dependsOnBuffer ? bufferIndex.getFingerprint() : 0;
+        entries.lazySet(indexOf(key), new Entry(key, identifier, path, dependsOnBuffer, bufferFingerprint, filtered));
+    }
+
+    private String getStatistics() {
+        final long hitCount = hits.sum();
+        final long missCount = misses.sum();
+        final long total = hitCount + missCount;
+        return "Cache hits: " + hitCount + " misses: " + missCount
+                + " hit rate: " + (total == 0 ? 0 : (100 * hitCount / total)) + "%";
+    }
+
+    private void logStatisticsIfNeeded() {
+        if (BaseSettings.ENABLE_DEBUG_LOGGING.get()
+                && (hits.sum() + misses.sum()) % LOG_STATISTICS_INTERVAL == 0) {
+            Logger.printDebug(this::getStatistics);
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package app.kitsune.integrations.shared.patches.components;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import app.kitsune.integrations.shared.settings.BaseSettings;
+import app.kitsune.integrations.shared.utils.Logger;
+
+/**
+ * Time spent and hit rate of each litho filter and filter group.
+ * <p>
+ * Statistics are collected only if {@link BaseSettings#ENABLE_DEBUG_LITHO_FILTER_STATISTICS} is enabled,
+ * and otherwise the only cost is checking the setting.
+ * <p>
+ * The counters of each filter and group are created when the filters are added to the search,
+ * so collecting statistics does not look up any maps. Counters are {@link LongAdder},
+ * so the multiple litho threads do not contend when recording the same filter.
+ */
+final class LithoFilterStatistics {
+
+    /**
+     * How often to log the statistics while statistics are enabled.
+     */
+    private static final int LOG_STATISTICS_INTERVAL = 5000;
+
+    /**
+     * Latency histogram buckets. Bucket n counts times less than 2^n microseconds,
+     * and the last bucket also counts all longer times.
+     */
+    private static final int HISTOGRAM_BUCKET_COUNT = 20;
+
+    static final class Counters {
+        private final String name;
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder filtered = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAdder[] histogram = new LongAdder[HISTOGRAM_BUCKET_COUNT];
+
+        Counters(String name) {
+            this.name = name;
+            for (int i = 0; i < HISTOGRAM_BUCKET_COUNT; i++) {
+                histogram[i] = new LongAdder();
+            }
+        }
+
+        void record(long elapsedNanos, boolean wasFiltered) {
+            calls.increment();
+            if (wasFiltered) {
+                filtered.increment();
+            }
+            totalNanos.add(elapsedNanos);
+            final long micros = TimeUnit.NANOSECONDS.toMicros(elapsedNanos);
+            final int bucket = Long.SIZE - Long.numberOfLeadingZeros(micros);
+            histogram[Math.min(bucket, HISTOGRAM_BUCKET_COUNT - 1)].increment();
+        }
+
+        long getCalls() {
+            return calls.sum();
+        }
+
+        long getTotalNanos() {
+            return totalNanos.sum();
+        }
+
+        void reset() {
+            calls.reset();
+            filtered.reset();
+            totalNanos.reset();
+            for (LongAdder bucket : histogram) {
+                bucket.reset();
+            }
+        }
+
+        /**
+         * @return Upper bound in microseconds of the percentile, from the histogram.
+         */
+        private long getPercentileMicros(long callCount, double percentile) {
+            final long target = (long) Math.ceil(callCount * percentile);
+            long count = 0;
+            for (int i = 0; i < HISTOGRAM_BUCKET_COUNT; i++) {
+                count += histogram[i].sum();
+                if (count >= target) {
+                    return 1L << i;
+                }
+            }
+            return 1L << (HISTOGRAM_BUCKET_COUNT - 1);
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            final long callCount = calls.sum();
+            if (callCount == 0) {
+                return name + ": no calls";
+            }
+            final long filteredCount = filtered.sum();
+            final long totalMicros = TimeUnit.NANOSECONDS.toMicros(totalNanos.sum());
+            return name
+                    + ": calls: " + callCount
+                    + " filtered: " + filteredCount + " (" + (100 * filteredCount / callCount) + "%)"
+                    + " total: " + (totalMicros / 1000) + "ms"
+                    + " average: " + (totalMicros / callCount) + "µs"
+                    + " p50: <" + getPercentileMicros(callCount, 0.5) + "µs"
+                    + " p99: <" + getPercentileMicros(callCount, 0.99) + "µs";
+        }
+    }
+
+    private final Counters components = new Counters("All components");
+
+    /**
+     * Filter to it's counters. Only modified while the filters are added to the search.
+     */
+    private final Map<Filter, Counters> filterCounters = new IdentityHashMap<>();
+
+    private final List<Counters> groupCounters = new ArrayList<>();
+
+    static boolean isEnabled() {
+        return BaseSettings.ENABLE_DEBUG_LITHO_FILTER_STATISTICS.get();
+    }
+
+    synchronized Counters getFilterCounters(Filter filter) {
+        Counters counters = filterCounters.get(filter);
+        if (counters == null) {
+            counters = new Counters(filter.getClass().getSimpleName());
+            filterCounters.put(filter, counters);
+        }
+        return counters;
+    }
+
+    synchronized Counters createGroupCounters(Filter filter, StringFilterGroup group, Filter.FilterContentType type) {
+        Counters counters = new Counters(filter.getClass().getSimpleName() + " " + type
+                + " " + group + " '" + group.filters[0] + (group.filters.length > 1 ? "'..." : "'"));
+        groupCounters.add(counters);
+        return counters;
+    }
+
+    /**
+     * Records the time to filter a component, including the result cache.
+     */
+    void recordComponent(long elapsedNanos, boolean filtered) {
+        components.record(elapsedNanos, filtered);
+        if (components.getCalls() % LOG_STATISTICS_INTERVAL == 0) {
+            print();
+        }
+    }
+
+    /**
+     * Logs all statistics, sorted by the total time spent.
+     */
+    synchronized void print() {
+        List<Counters> filters = new ArrayList<>(filterCounters.values());
+        filters.sort((first, second) -> Long.compare(second.getTotalNanos(), first.getTotalNanos()));
+        List<Counters> groups = new ArrayList<>(groupCounters);
+        groups.sort((first, second) -> Long.compare(second.getTotalNanos(), first.getTotalNanos()));
+
+        StringBuilder builder = new StringBuilder("Litho filter statistics\n");
+        builder.append(components).append("\n\nFilters:\n");
+        for (Counters counters : filters) {
+            builder.append(counters).append('\n');
+        }
+        builder.append("\nFilter groups:\n");
+        for (Counters counters : groups) {
+            if (counters.getCalls() > 0) {
+                builder.append(counters).append('\n');
+            }
+        }
+        Logger.printInfo(builder::toString);
+    }
+
+    synchronized void reset() {
+        components.reset();
+        for (Counters counters : filterCounters.values()) {
+            counters.reset();
+        }
+        for (Counters counters : groupCounters) {
+            counters.reset();
+        }
+    }
+}
@@ -0,0 +1,425 @@
+package app.kitsune.integrations.shared.patches.components;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Index of the litho proto buffer currently being filtered by the calling thread.
+ * <p>
+ * The same buffer is commonly filtered many times, and many filters search the same buffer.
+ * Instead of each filter scanning the entire buffer, the buffer is decoded once
+ * and filters query this index.
+ * <p>
+ * The index contains:
+ * <ul>
+ * <li>The presence of every pair of adjacent bytes (bigrams).
+ *     If any bigram of a pattern is not present, then the pattern cannot be in the buffer
+ *     and no search of the buffer is needed. Most filter patterns are not found in most buffers,
+ *     so most searches are rejected in time proportional to the pattern length.</li>
+ * <li>The offset, length and field number of all protobuf wire format string fields.
+ *     Only available if every field of the buffer is decoded.</li>
+ * </ul>
+ * All parts of the index are created lazily when first used,
+ * and the index is reset when {@link LithoFilterPatch} sets a new buffer.
+ * <p>
+ * Instances are confined to a single thread, and each thread reuses the same instance.
+ */
+public final class ProtoBufferIndex {
+
+    private static final ThreadLocal<ProtoBufferIndex> threadIndex = ThreadLocal.withInitial(ProtoBufferIndex::new);
+
+    private static final int WIRE_TYPE_VARINT = 0;
+    private static final int WIRE_TYPE_FIXED_64 = 1;
+    private static final int WIRE_TYPE_LENGTH_DELIMITED = 2;
+    private static final int WIRE_TYPE_FIXED_32 = 5;
+
+    /**
+     * Maximum depth of nested messages to decode.
+     */
+    private static final int MAXIMUM_MESSAGE_DEPTH = 16;
+
+    private static final int BIGRAM_BITS_LENGTH = (256 * 256) / Long.SIZE;
+    private static final int UNIGRAM_BITS_LENGTH = 256 / Long.SIZE;
+
+    /**
+     * @param buffer A proto buffer.
+     * @return The index of the buffer, if it is the buffer the calling thread is currently filtering.
+     * Returns null if the buffer is not a litho buffer,
+     * in which case the caller should search the buffer directly.
+     */
+    @Nullable
+    public static ProtoBufferIndex forBuffer(@NonNull byte[] buffer) {
+        ProtoBufferIndex index = threadIndex.get();
+        return index.buffer == buffer ? index : null;
+    }
+
+    /**
+     * Sets the buffer the calling thread is filtering. Does nothing if the same buffer is already set.
+     */
+    static ProtoBufferIndex setCurrentThreadBuffer(@NonNull byte[] buffer) {
+        ProtoBufferIndex index = threadIndex.get();
+        if (index.buffer != buffer) {
+            index.reset(buffer);
+        }
+        return index;
+    }
+
+    /**
+     * Must be called when a new buffer is set, as the contents of the same array may have changed.
+     */
+    static void clearCurrentThreadBuffer() {
+        threadIndex.get().reset(null);
+    }
+
+    @Nullable
+    private byte[] buffer;
+
+    private boolean fingerprintCalculated;
+    private long fingerprint;
+
+    private boolean bigramsIndexed;
+    private final long[] bigramBits = new long[BIGRAM_BITS_LENGTH];
+    private final long[] unigramBits = new long[UNIGRAM_BITS_LENGTH];
+
+    private boolean stringFieldsIndexed;
+    /**
+     * If the buffer was decoded as a protobuf message.
+     */
+    private boolean stringFieldsAvailable;
+    private int stringFieldCount;
+    private int[] stringFieldOffsets = new int[16];
+    private int[] stringFieldLengths = new int[16];
+    private int[] stringFieldNumbers = new int[16];
+
+    private ProtoBufferIndex() {
+    }
+
+    private void reset(@Nullable byte[] buffer) {
+        this.buffer = buffer;
+        fingerprintCalculated = false;
+        bigramsIndexed = false;
+        stringFieldsIndexed = false;
+        stringFieldsAvailable = false;
+        stringFieldCount = 0;
+    }
+
+    private byte[] getBuffer() {
+        byte[] buffer = this.buffer;
+        if (buffer == null) throw new IllegalStateException("Buffer not set");
+        return buffer;
+    }
+
+    /**
+     * @return A fingerprint of the buffer contents.
+     */
+    public long getFingerprint() {
+        if (!fingerprintCalculated) {
+            fingerprint = LithoFilterResultCache.fingerprint(getBuffer());
+            fingerprintCalculated = true;
+        }
+        return fingerprint;
+    }
+
+    // region Bigrams
+
+    private void indexBigrams() {
+        final byte[] buffer = getBuffer();
+        final long[] bigramBits = this.bigramBits;
+        final long[] unigramBits = this.unigramBits;
+        Arrays.fill(bigramBits, 0);
+        Arrays.fill(unigramBits, 0);
+
+        int previous = -1;
+        for (byte value : buffer) {
+            final int current = value & 0xFF;
+            unigramBits[current >>> 6] |= 1L << current;
+            if (previous >= 0) {
+                final int bigram = (previous << 8) | current;
+                bigramBits[bigram >>> 6] |= 1L << bigram;
+            }
+            previous = current;
+        }
+        bigramsIndexed = true;
+    }
+
+    private boolean containsBigram(int first, int second) {
+        final int bigram = ((first & 0xFF) << 8) | (second & 0xFF);
+        return (bigramBits[bigram >>> 6] & (1L << bigram)) != 0;
+    }
+
+    /**
+     * @return False if the pattern is definitely not in the buffer.
+     * True if the pattern may be in the buffer, and the buffer must be searched to know for sure.
+     */
+    public boolean mayContain(@NonNull byte[] pattern) {
+        return mayContain(pattern, 0, pattern.length);
+    }
+
+    /**
+     * @param patternStartIndex Start index of the pattern, inclusive.
+     * @param patternEndIndex   End index of the pattern, exclusive.
+     * @see #mayContain(byte[])
+     */
+    public boolean mayContain(@NonNull byte[] pattern, int patternStartIndex, int patternEndIndex) {
+        final int patternLength = patternEndIndex - patternStartIndex;
+        if (patternLength > getBuffer().length) {
+            return false;
+        }
+        if (patternLength == 0) {
+            return true;
+        }
+        if (!bigramsIndexed) {
+            indexBigrams(); // Lazy load.
+        }
+        if (patternLength == 1) {
+            final int value = pattern[patternStartIndex] & 0xFF;
+            return (unigramBits[value >>> 6] & (1L << value)) != 0;
+        }
+        for (int i = patternStartIndex + 1; i < patternEndIndex; i++) {
+            if (!containsBigram(pattern[i - 1], pattern[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Same as {@link #mayContain(byte[])}, but for text that contains only ASCII characters.
+     */
+    public boolean mayContainAscii(@NonNull String text) {
+        final int length = text.length();
+        if (length > getBuffer().length) {
+            return false;
+        }
+        if (length < 2) {
+            return mayContain(text.getBytes(StandardCharsets.US_ASCII));
+        }
+        if (!bigramsIndexed) {
+            indexBigrams(); // Lazy load.
+        }
+        for (int i = 1; i < length; i++) {
+            if (!containsBigram(text.charAt(i - 1), text.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // endregion
+
+    // region String fields
+
+    /**
+     * @return If the buffer was decoded as a protobuf message,
+     * and the string field methods of this class can be used.
+     * If false, the buffer is not a complete protobuf message or any field of the buffer
+     * could not be decoded, and the caller should search the buffer directly.
+     */
+    public boolean hasStringFields() {
+        if (!stringFieldsIndexed) {
+            indexStringFields(); // Lazy load.
+        }
+        return stringFieldsAvailable;
+    }
+
+    /**
+     * @return Number of string fields in the buffer, including all nested messages.
+     */
+    public int getStringFieldCount() {
+        if (!stringFieldsIndexed) {
+            indexStringFields(); // Lazy load.
+        }
+        return stringFieldCount;
+    }
+
+    /**
+     * @return The buffer offset of the string field contents.
+     */
+    public int getStringFieldOffset(int stringFieldIndex) {
+        checkStringFieldIndex(stringFieldIndex);
+        return stringFieldOffsets[stringFieldIndex];
+    }
+
+    /**
+     * @return The byte length of the string field contents.
+     */
+    public int getStringFieldLength(int stringFieldIndex) {
+        checkStringFieldIndex(stringFieldIndex);
+        return stringFieldLengths[stringFieldIndex];
+    }
+
+    /**
+     * @return The protobuf field number of the string field.
+     */
+    public int getStringFieldNumber(int stringFieldIndex) {
+        checkStringFieldIndex(stringFieldIndex);
+        return stringFieldNumbers[stringFieldIndex];
+    }
+
+    /**
+     * @return The contents of the string field, decoded as UTF-8.
+     */
+    @NonNull
+    public String getStringField(int stringFieldIndex) {
+        checkStringFieldIndex(stringFieldIndex);
+        return new String(getBuffer(), stringFieldOffsets[stringFieldIndex],
+                stringFieldLengths[stringFieldIndex], StandardCharsets.UTF_8);
+    }
+
+    private void checkStringFieldIndex(int stringFieldIndex) {
+        if (stringFieldIndex < 0 || stringFieldIndex >= getStringFieldCount()) {
+            throw new IndexOutOfBoundsException("Index: " + stringFieldIndex + " count: " + stringFieldCount);
+        }
+    }
+
+    private void indexStringFields() {
+        final byte[] buffer = getBuffer();
+        stringFieldCount = 0;
+        stringFieldsAvailable = decodeMessage(buffer, 0, buffer.length, 0);
+        if (!stringFieldsAvailable) {
+            stringFieldCount = 0;
+        }
+        stringFieldsIndexed = true;
+    }
+
+    private void addStringField(int offset, int length, int fieldNumber) {
+        if (stringFieldCount == stringFieldOffsets.length) {
+            final int replacementLength = stringFieldCount * 2;
+            stringFieldOffsets = Arrays.copyOf(stringFieldOffsets, replacementLength);
+            stringFieldLengths = Arrays.copyOf(stringFieldLengths, replacementLength);
+            stringFieldNumbers = Arrays.copyOf(stringFieldNumbers, replacementLength);
+        }
+        stringFieldOffsets[stringFieldCount] = offset;
+        stringFieldLengths[stringFieldCount] = length;
+        stringFieldNumbers[stringFieldCount] = fieldNumber;
+        stringFieldCount++;
+    }
+
+    /**
+     * Decoding position of {@link #readVarint(byte[], int, int)}.
+     */
+    private int varintEndIndex;
+
+    /**
+     * @return The decoded varint, or a negative value if the varint is malformed.
+     */
+    private long readVarint(byte[] buffer, int index, int endIndex) {
+        long value = 0;
+        for (int shift = 0; shift < 64 && index < endIndex; shift += 7) {
+            final byte b = buffer[index++];
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                varintEndIndex = index;
+                return value;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Decodes a message and adds all string fields of the message and any nested messages.
+     *
+     * @return If the entire range was decoded as a message,
+     * and every length delimited field was decoded as either text or a message.
+     */
+    private boolean decodeMessage(byte[] buffer, int index, int endIndex, int depth) {
+        while (index < endIndex) {
+            final long tag = readVarint(buffer, index, endIndex);
+            final int fieldNumber = (int) (tag >>> 3);
+            if (fieldNumber == 0 || tag > Integer.MAX_VALUE) {
+                return false; // Malformed tag, or not a protobuf message.
+            }
+            index = varintEndIndex;
+            switch ((int) (tag & 0x7)) {
+                case WIRE_TYPE_VARINT:
+                    // Value is not needed, and negative values cannot be decoded by readVarint().
+                    index = skipVarint(buffer, index, endIndex);
+                    if (index < 0) {
+                        return false;
+                    }
+                    break;
+                case WIRE_TYPE_FIXED_64:
+                    index += 8;
+                    break;
+                case WIRE_TYPE_FIXED_32:
+                    index += 4;
+                    break;
+                case WIRE_TYPE_LENGTH_DELIMITED:
+                    final long length = readVarint(buffer, index, endIndex);
+                    if (length < 0 || length > endIndex - varintEndIndex) {
+                        return false;
+                    }
+                    index = varintEndIndex;
+                    final int fieldEndIndex = index + (int) length;
+                    if (isText(buffer, index, fieldEndIndex)) {
+                        addStringField(index, (int) length, fieldNumber);
+                    } else if (depth == MAXIMUM_MESSAGE_DEPTH
+                            || !decodeMessage(buffer, index, fieldEndIndex, depth + 1)) {
+                        // Binary data that is not a message, or text that is not valid UTF-8.
+                        // The field may still contain text, so the index cannot be used.
+                        return false;
+                    }
+                    index = fieldEndIndex;
+                    break;
+                default:
+                    // Deprecated group wire types, or not a protobuf message.
+                    return false;
+            }
+        }
+        return index == endIndex;
+    }
+
+    /**
+     * @return The index after the varint, or -1 if the varint is malformed.
+     */
+    private static int skipVarint(byte[] buffer, int index, int endIndex) {
+        for (int i = 0; i < 10 && index < endIndex; i++) {
+            if (buffer[index++] >= 0) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return If the range is valid UTF-8 text with no control characters other than whitespace.
+     */
+    private static boolean isText(byte[] buffer, int index, int endIndex) {
+        if (index == endIndex) {
+            return false; // Empty fields are not useful to search.
+        }
+        while (index < endIndex) {
+            final int value = buffer[index++] & 0xFF;
+            if (value < 0x80) {
+                if (value < 0x20 && value != '\t' && value != '\n' && value != '\r' || value == 0x7F) {
+                    return false;
+                }
+                continue;
+            }
+            final int continuationBytes;
+            if ((value & 0xE0) == 0xC0 && value >= 0xC2) {
+                continuationBytes = 1;
+            } else if ((value & 0xF0) == 0xE0) {
+                continuationBytes = 2;
+            } else if ((value & 0xF8) == 0xF0 && value <= 0xF4) {
+                continuationBytes = 3;
+            } else {
+                return false;
+            }
+            if (endIndex - index < continuationBytes) {
+                return false;
+            }
+            for (int i = 0; i < continuationBytes; i++) {
+                if ((buffer[index++] & 0xC0) != 0x80) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    // endregion
+}
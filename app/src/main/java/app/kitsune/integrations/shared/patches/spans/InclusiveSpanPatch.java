@@ -11,12 +11,13 @@ import android.text.style.TypefaceSpan;
 
 import androidx.annotation.NonNull;
 
+import java.util.ArrayList;
 import java.util.List;
 
+import app.kitsune.integrations.shared.patches.components.ConversionContextClassifier;
 import app.kitsune.integrations.shared.settings.BaseSettings;
 import app.kitsune.integrations.shared.settings.BooleanSetting;
 import app.kitsune.integrations.shared.utils.Logger;
-import app.kitsune.integrations.shared.utils.StringTrieSearch;
 
 
 /**
@@ -29,7 +30,7 @@ public final class InclusiveSpanPatch {
     private static final BooleanSetting ENABLE_DEBUG_LOGGING = BaseSettings.ENABLE_DEBUG_LOGGING;
 
     /**
-     * Simple wrapper to pass the litho parameters through the prefix search.
+     * Simple wrapper to pass the litho parameters to the filters.
      */
     private static final class LithoFilterParameters {
         final String conversionContext;
@@ -111,14 +112,33 @@ public final class InclusiveSpanPatch {
             new DummyFilter() // Replaced by patch.
     };
 
-    private static final StringTrieSearch searchTree = new StringTrieSearch();
+    /**
+     * A filter group and the {@link ConversionContextClassifier} bits of its patterns.
+     */
+    private static final class FilterCallback {
+        final Filter filter;
+        final StringFilterGroup group;
+        final long patterns;
+
+        FilterCallback(Filter filter, StringFilterGroup group, long patterns) {
+            this.filter = filter;
+            this.group = group;
+            this.patterns = patterns;
+        }
+    }
+
+    private static final List<FilterCallback> filterCallbacks = new ArrayList<>();
 
+    /**
+     * Bits of the patterns of all filter groups.
+     */
+    private static long allFilterPatterns;
 
     /**
-     * Because litho filtering is multi-threaded and the buffer is passed in from a different injection point,
-     * the buffer is saved to a ThreadLocal so each calling thread does not interfere with other threads.
+     * Because litho filtering is multi-threaded and the conversion context is passed in from a different injection point,
+     * the conversion context is saved to a ThreadLocal so each calling thread does not interfere with other threads.
      */
-    private static final ThreadLocal<String> conversionContextThreadLocal = new ThreadLocal<>();
+    private static final ThreadLocal<Object> conversionContextThreadLocal = new ThreadLocal<>();
 
     static {
         for (Filter filter : filters) {
@@ -126,9 +146,7 @@ public final class InclusiveSpanPatch {
         }
 
         if (ENABLE_DEBUG_LOGGING.get()) {
-            Logger.printDebug(() -> "Using: "
-                    + searchTree.numberOfPatterns() + " conversion context filters"
-                    + " (" + searchTree.getEstimatedMemorySize() + " KB)");
+            Logger.printDebug(() -> "Using: " + Long.bitCount(allFilterPatterns) + " conversion context filters");
         }
     }
 
@@ -137,15 +155,12 @@ public final class InclusiveSpanPatch {
             if (!group.includeInSearch()) {
                 continue;
             }
+            long patterns = 0;
             for (String pattern : group.filters) {
-                InclusiveSpanPatch.searchTree.addPattern(pattern, (textSearched, matchedStartIndex, matchedLength, callbackParameter) -> {
-                            if (!group.isEnabled()) return false;
-                            LithoFilterParameters parameters = (LithoFilterParameters) callbackParameter;
-                            return filter.skip(parameters.conversionContext, parameters.spannableString, parameters.span,
-                                    parameters.start, parameters.end, parameters.flags, parameters.isWord, parameters.spanType, group);
-                        }
-                );
+                patterns |= ConversionContextClassifier.registerPattern(pattern);
             }
+            filterCallbacks.add(new FilterCallback(filter, group, patterns));
+            allFilterPatterns |= patterns;
         }
     }
 
@@ -156,25 +171,40 @@ public final class InclusiveSpanPatch {
      */
     public static CharSequence setConversionContext(@NonNull Object conversionContext,
                                                     @NonNull CharSequence original) {
-        conversionContextThreadLocal.set(conversionContext.toString());
+        // Classify now, as other hooks may classify the same context before any span is set.
+        ConversionContextClassifier.classify(conversionContext);
+        conversionContextThreadLocal.set(conversionContext);
         return original;
     }
 
     private static boolean returnEarly(SpannableString spannableString, Object span, int start, int end, int flags) {
         try {
-            final String conversionContext = conversionContextThreadLocal.get();
-            if (conversionContext == null || conversionContext.isEmpty()) {
+            final Object conversionContext = conversionContextThreadLocal.get();
+            if (conversionContext == null) {
+                return false;
+            }
+            final long contextPatterns = ConversionContextClassifier.classify(conversionContext) & allFilterPatterns;
+            if (contextPatterns == 0) {
                 return false;
             }
 
-            LithoFilterParameters parameter =
-                    new LithoFilterParameters(conversionContext, spannableString, span, start, end, flags);
+            LithoFilterParameters parameter = new LithoFilterParameters(
+                    ConversionContextClassifier.toString(conversionContext), spannableString, span, start, end, flags);
 
             if (ENABLE_DEBUG_LOGGING.get()) {
                 Logger.printDebug(() -> "Searching...\n\u200B\n" + parameter);
             }
 
-            return searchTree.matches(parameter.conversionContext, parameter);
+            for (FilterCallback callback : filterCallbacks) {
+                if ((contextPatterns & callback.patterns) == 0 || !callback.group.isEnabled()) {
+                    continue;
+                }
+                if (callback.filter.skip(parameter.conversionContext, parameter.spannableString, parameter.span,
+                        parameter.start, parameter.end, parameter.flags, parameter.isWord, parameter.spanType, callback.group)) {
+                    return true;
+                }
+            }
+            return false;
         } catch (Exception ex) {
             Logger.printException(() -> "Spans filter failure", ex);
         }
@@ -0,0 +1,206 @@
+package app.kitsune.integrations.shared.returnyoutubedislike.requests;
+
+import androidx.annotation.NonNull;
+
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Solves the RYD proof of work puzzle, used for user registration and voting.
+ * <p>
+ * The puzzle is to find a 4 byte nonce where the SHA-512 hash of the nonce followed by the 16 byte challenge
+ * has at least 'difficulty' leading zero bits.
+ * <p>
+ * The nonces are divided into ranges and searched using all cores.
+ * Once any thread finds a solution, all other ranges stop searching.
+ * Each thread reuses the same digest and buffers, so searching does not allocate memory.
+ */
+final class PuzzleSolver {
+
+    /**
+     * Puzzles with less nonces than this are solved on the calling thread.
+     */
+    private static final int MINIMUM_PARALLEL_NONCES = 1 << 15;
+
+    /**
+     * Number of nonces each task searches, before splitting into smaller tasks.
+     */
+    private static final int NONCES_PER_TASK = 1 << 12;
+
+    private static final int SHA_512_LENGTH = 64;
+
+    private static final int NOT_SOLVED = -1;
+
+    private static volatile ForkJoinPool pool;
+
+    /**
+     * Per thread digest and buffers.
+     */
+    private static final class Hasher {
+        final MessageDigest digest;
+        final byte[] input = new byte[20];
+        final byte[] output = new byte[SHA_512_LENGTH];
+
+        Hasher() {
+            try {
+                digest = MessageDigest.getInstance("SHA-512");
+            } catch (NoSuchAlgorithmException ex) {
+                throw new IllegalStateException(ex); // should never happen
+            }
+        }
+
+        /**
+         * @return Number of leading zero bits of the hash.
+         */
+        int hash(int nonce) throws DigestException {
+            input[0] = (byte) nonce;
+            input[1] = (byte) (nonce >> 8);
+            input[2] = (byte) (nonce >> 16);
+            input[3] = (byte) (nonce >> 24);
+            digest.update(input);
+            digest.digest(output, 0, SHA_512_LENGTH);
+            return countLeadingZeroes(output);
+        }
+    }
+
+    private static final ThreadLocal<Hasher> hasher = ThreadLocal.withInitial(Hasher::new);
+
+    private final byte[] challenge;
+    private final int difficulty;
+    private final int maxCount;
+    private final AtomicInteger solution = new AtomicInteger(NOT_SOLVED);
+    private final LongAdder hashCount = new LongAdder();
+
+    /**
+     * @param challenge  16 byte decoded challenge.
+     * @param difficulty Required number of leading zero bits.
+     */
+    PuzzleSolver(@NonNull byte[] challenge, int difficulty) {
+        if (challenge.length != 16 || difficulty < 0) {
+            throw new IllegalArgumentException("Invalid puzzle challenge length: " + challenge.length
+                    + " difficulty: " + difficulty);
+        }
+        this.challenge = challenge;
+        this.difficulty = difficulty;
+        maxCount = (int) (Math.pow(2, difficulty + 1) * 5);
+    }
+
+    private static ForkJoinPool getPool() {
+        ForkJoinPool forkJoinPool = pool;
+        if (forkJoinPool == null) {
+            synchronized (PuzzleSolver.class) {
+                forkJoinPool = pool;
+                if (forkJoinPool == null) {
+                    // Pool threads stop after some time of no use.
+                    forkJoinPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+                    pool = forkJoinPool;
+                }
+            }
+        }
+        return forkJoinPool;
+    }
+
+    @SuppressWarnings("serial")
+    private final class SearchTask extends RecursiveAction {
+        private final int start;
+        private final int end;
+
+        SearchTask(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (solution.get() != NOT_SOLVED) {
+                return;
+            }
+            if (end - start > NONCES_PER_TASK) {
+                final int middle = (start + end) >>> 1;
+                invokeAll(new SearchTask(start, middle), new SearchTask(middle, end));
+                return;
+            }
+            search(start, end);
+        }
+    }
+
+    private void search(int start, int end) {
+        Hasher threadHasher = hasher.get();
+        threadHasher.digest.reset();
+        System.arraycopy(challenge, 0, threadHasher.input, 4, 16);
+        int nonce = start;
+        try {
+            for (; nonce < end; nonce++) {
+                if (threadHasher.hash(nonce) >= difficulty) {
+                    solution.compareAndSet(NOT_SOLVED, nonce);
+                    nonce++;
+                    break;
+                }
+                if ((nonce & 0xFF) == 0 && solution.get() != NOT_SOLVED) {
+                    break; // Another thread found a solution.
+                }
+            }
+        } catch (DigestException ex) {
+            throw new IllegalStateException(ex); // should never happen
+        } finally {
+            hashCount.add(nonce - start);
+        }
+    }
+
+    /**
+     * @return The nonce that solves the puzzle, or -1 if no solution was found.
+     */
+    int solve() {
+        if (maxCount < MINIMUM_PARALLEL_NONCES) {
+            return solveSequentially();
+        }
+        getPool().invoke(new SearchTask(0, maxCount));
+        return solution.get();
+    }
+
+    /**
+     * Solves the puzzle using only the calling thread.
+     *
+     * @return The nonce that solves the puzzle, or -1 if no solution was found.
+     */
+    int solveSequentially() {
+        search(0, maxCount);
+        return solution.get();
+    }
+
+    /**
+     * @return Number of hashes calculated.
+     */
+    long getHashCount() {
+        return hashCount.sum();
+    }
+
+    static int countLeadingZeroes(byte[] uInt8View) {
+        int zeroes = 0;
+        int value;
+        for (byte b : uInt8View) {
+            value = b & 0xFF;
+            if (value == 0) {
+                zeroes += 8;
+            } else {
+                int count = 1;
+                if (value >>> 4 == 0) {
+                    count += 4;
+                    value <<= 4;
+                }
+                if (value >>> 6 == 0) {
+                    count += 2;
+                    value <<= 2;
+                }
+                zeroes += count - (value >>> 7);
+                break;
+            }
+        }
+        return zeroes;
+    }
+}
@@ -26,7 +26,7 @@ public final class RYDVoteData {
      */
     public final long viewCount;
 
-    private final long fetchedLikeCount;
+    final long fetchedLikeCount;
     private volatile long likeCount; // Read/write from different threads.
     /**
      * Like count can be hidden by video creator, but RYD still tracks the number
@@ -36,13 +36,13 @@ public final class RYDVoteData {
      * Raw values can be null, especially for older videos with little to no views.
      */
     @Nullable
-    private final Long fetchedRawLikeCount;
+    final Long fetchedRawLikeCount;
     private volatile float likePercentage;
 
-    private final long fetchedDislikeCount;
+    final long fetchedDislikeCount;
     private volatile long dislikeCount; // Read/write from different threads.
     @Nullable
-    private final Long fetchedRawDislikeCount;
+    final Long fetchedRawDislikeCount;
     private volatile float dislikePercentage;
 
     @Nullable
@@ -73,6 +73,23 @@ public final class RYDVoteData {
         updateUsingVote(Vote.LIKE_REMOVE); // Calculate percentages.
     }
 
+    /**
+     * Recreates previously fetched data, as saved by {@link RYDVoteStore}.
+     */
+    RYDVoteData(@NonNull String videoId, long viewCount,
+                long fetchedLikeCount, @Nullable Long fetchedRawLikeCount,
+                long fetchedDislikeCount, @Nullable Long fetchedRawDislikeCount) {
+        this.videoId = videoId;
+        this.viewCount = viewCount;
+        this.fetchedLikeCount = fetchedLikeCount;
+        this.fetchedRawLikeCount = fetchedRawLikeCount;
+        this.fetchedDislikeCount = fetchedDislikeCount;
+        this.fetchedRawDislikeCount = fetchedRawDislikeCount;
+        likeCount = fetchedLikeCount;
+        dislikeCount = fetchedDislikeCount;
+        updateUsingVote(Vote.LIKE_REMOVE); // Calculate percentages.
+    }
+
     /**
      * Public like count of the video, as reported by YT when RYD last updated it's data.
      * <p>
@@ -0,0 +1,270 @@
+package app.kitsune.integrations.shared.returnyoutubedislike.requests;
+
+import android.content.Context;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+import app.kitsune.integrations.shared.utils.BackgroundLane;
+import app.kitsune.integrations.shared.utils.Logger;
+import app.kitsune.integrations.shared.utils.Utils;
+
+/**
+ * Persistent store of previously fetched {@link RYDVoteData}, so votes of recently seen videos
+ * can be shown immediately after the app is restarted.
+ * <p>
+ * The store is a memory mapped file of fixed size records, and each video id can be saved in one of two slots.
+ * If both slots are in use, the older record is replaced.
+ * Records are never removed, and the store cannot grow larger than {@link #RECORD_COUNT} records.
+ * <p>
+ * Record format (64 bytes):
+ * <pre>
+ *  0  video id, 11 ASCII bytes
+ * 11  flags
+ * 12  fetch time, epoch milliseconds
+ * 20  view count
+ * 28  like count
+ * 36  raw like count
+ * 44  dislike count
+ * 52  raw dislike count
+ * 60  checksum of bytes 0-59
+ * </pre>
+ * The first record of the file is the header.
+ */
+public final class RYDVoteStore {
+
+    /**
+     * Previously fetched vote data, and when it was fetched.
+     */
+    public static final class StoredVoteData {
+        @NonNull
+        public final RYDVoteData voteData;
+        public final long timeFetched;
+
+        StoredVoteData(@NonNull RYDVoteData voteData, long timeFetched) {
+            this.voteData = voteData;
+            this.timeFetched = timeFetched;
+        }
+    }
+
+    private static final String FILE_NAME = "revanced_ryd_votes.bin";
+
+    private static final int MAGIC = 0x52594456; // 'RYDV'
+    private static final int VERSION = 1;
+
+    private static final int RECORD_SIZE = 64;
+    /**
+     * Number of records, including the header. Must be a power of 2.
+     */
+    private static final int RECORD_COUNT = 4096;
+
+    private static final int VIDEO_ID_LENGTH = 11;
+
+    private static final int FLAG_IN_USE = 1;
+    private static final int FLAG_HAS_RAW_LIKES = 1 << 1;
+    private static final int FLAG_HAS_RAW_DISLIKES = 1 << 2;
+
+    private static final int OFFSET_FLAGS = 11;
+    private static final int OFFSET_TIME_FETCHED = 12;
+    private static final int OFFSET_VIEWS = 20;
+    private static final int OFFSET_LIKES = 28;
+    private static final int OFFSET_RAW_LIKES = 36;
+    private static final int OFFSET_DISLIKES = 44;
+    private static final int OFFSET_RAW_DISLIKES = 52;
+    private static final int OFFSET_CHECKSUM = 60;
+
+    @GuardedBy("RYDVoteStore.class")
+    @Nullable
+    private static MappedByteBuffer records;
+
+    /**
+     * If the store was opened, or opening is in progress.
+     */
+    @GuardedBy("RYDVoteStore.class")
+    private static boolean openStarted;
+
+    private RYDVoteStore() {
+    } // utility class
+
+    /**
+     * Opens the store on a background thread, if not already open.
+     * Until the store is open all lookups return null and nothing is saved.
+     */
+    public static synchronized void open() {
+        if (openStarted) {
+            return;
+        }
+        openStarted = true;
+        Utils.runOnBackgroundThread(BackgroundLane.HOUSEKEEPING, RYDVoteStore::openFile);
+    }
+
+    private static void openFile() {
+        Context context = Utils.getContext();
+        if (context == null) {
+            Logger.printException(() -> "Cannot open vote store, context is null");
+            return;
+        }
+        File file = new File(context.getFilesDir(), FILE_NAME);
+        // Mapping remains valid after the file is closed.
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            final long fileSize = (long) RECORD_SIZE * RECORD_COUNT;
+            final boolean isNewFile = randomAccessFile.length() != fileSize;
+            if (isNewFile) {
+                randomAccessFile.setLength(0);
+                randomAccessFile.setLength(fileSize);
+            }
+            MappedByteBuffer buffer = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+
+            if (isNewFile || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                Logger.printDebug(() -> "Creating new vote store");
+                for (int i = 0; i < fileSize; i += Long.BYTES) {
+                    buffer.putLong(i, 0);
+                }
+                buffer.putInt(0, MAGIC);
+                buffer.putInt(4, VERSION);
+            }
+
+            synchronized (RYDVoteStore.class) {
+                records = buffer;
+            }
+        } catch (IOException ex) {
+            Logger.printException(() -> "Failed to open vote store", ex);
+        }
+    }
+
+    /**
+     * @return Index of the first of the two records the video can be saved in.
+     */
+    private static int getFirstRecordIndex(@NonNull String videoId) {
+        int hash = videoId.hashCode();
+        hash ^= (hash >>> 16);
+        // Each video id uses two consecutive records, and the header is skipped.
+        final int index = (hash * 2) & (RECORD_COUNT - 1);
+        return index == 0 ? 2 : index;
+    }
+
+    private static boolean recordHasVideoId(MappedByteBuffer buffer, int position, String videoId) {
+        for (int i = 0; i < VIDEO_ID_LENGTH; i++) {
+            if (buffer.get(position + i) != videoId.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int calculateChecksum(MappedByteBuffer buffer, int position) {
+        int checksum = 1;
+        for (int i = 0; i < OFFSET_CHECKSUM; i += Integer.BYTES) {
+            checksum = 31 * checksum + buffer.getInt(position + i);
+        }
+        return checksum;
+    }
+
+    /**
+     * @return The saved data, or null if the video is not saved, or the saved data is older than the max age.
+     */
+    @Nullable
+    public static synchronized StoredVoteData get(@NonNull String videoId, long maxAgeMilliseconds) {
+        MappedByteBuffer buffer = records;
+        if (buffer == null || videoId.length() != VIDEO_ID_LENGTH) {
+            return null;
+        }
+
+        final int firstIndex = getFirstRecordIndex(videoId);
+        for (int index = firstIndex; index <= firstIndex + 1; index++) {
+            final int position = index * RECORD_SIZE;
+            final int flags = buffer.get(position + OFFSET_FLAGS);
+            if ((flags & FLAG_IN_USE) == 0 || !recordHasVideoId(buffer, position, videoId)) {
+                continue;
+            }
+            if (buffer.getInt(position + OFFSET_CHECKSUM) != calculateChecksum(buffer, position)) {
+                Logger.printDebug(() -> "Ignoring corrupt vote store record: " + videoId);
+                return null;
+            }
+            final long timeFetched = buffer.getLong(position + OFFSET_TIME_FETCHED);
+            if (System.currentTimeMillis() - timeFetched > maxAgeMilliseconds) {
+                return null;
+            }
+
+            RYDVoteData voteData = new RYDVoteData(videoId,
+                    buffer.getLong(position + OFFSET_VIEWS),
+                    buffer.getLong(position + OFFSET_LIKES),
+                    (flags & FLAG_HAS_RAW_LIKES) == 0
+                            ? null
+                            : buffer.getLong(position + OFFSET_RAW_LIKES),
+                    buffer.getLong(position + OFFSET_DISLIKES),
+                    (flags & FLAG_HAS_RAW_DISLIKES) == 0
+                            ? null
+                            : buffer.getLong(position + OFFSET_RAW_DISLIKES));
+            return new StoredVoteData(voteData, timeFetched);
+        }
+        return null;
+    }
+
+    /**
+     * Saves the data as fetched from the API. Any user vote applied to the data is not saved.
+     */
+    public static synchronized void put(@NonNull RYDVoteData voteData) {
+        MappedByteBuffer buffer = records;
+        final String videoId = voteData.videoId;
+        if (buffer == null || videoId.length() != VIDEO_ID_LENGTH) {
+            return;
+        }
+
+        // Use the record already used by this video, otherwise any unused record, otherwise the oldest record.
+        final int firstIndex = getFirstRecordIndex(videoId);
+        int position = -1;
+        long oldestTimeFetched = Long.MAX_VALUE;
+        for (int index = firstIndex; index <= firstIndex + 1; index++) {
+            final int recordPosition = index * RECORD_SIZE;
+            if ((buffer.get(recordPosition + OFFSET_FLAGS) & FLAG_IN_USE) == 0) {
+                if (oldestTimeFetched != Long.MIN_VALUE) {
+                    position = recordPosition;
+                    oldestTimeFetched = Long.MIN_VALUE;
+                }
+                continue;
+            }
+            if (recordHasVideoId(buffer, recordPosition, videoId)) {
+                position = recordPosition;
+                break;
+            }
+            final long timeFetched = buffer.getLong(recordPosition + OFFSET_TIME_FETCHED);
+            if (timeFetched < oldestTimeFetched) {
+                position = recordPosition;
+                oldestTimeFetched = timeFetched;
+            }
+        }
+
+        byte[] videoIdBytes = videoId.getBytes(StandardCharsets.US_ASCII);
+        for (int i = 0; i < VIDEO_ID_LENGTH; i++) {
+            buffer.put(position + i, videoIdBytes[i]);
+        }
+        int flags = FLAG_IN_USE;
+        if (voteData.fetchedRawLikeCount != null) {
+            flags |= FLAG_HAS_RAW_LIKES;
+            buffer.putLong(position + OFFSET_RAW_LIKES, voteData.fetchedRawLikeCount);
+        } else {
+            buffer.putLong(position + OFFSET_RAW_LIKES, 0);
+        }
+        if (voteData.fetchedRawDislikeCount != null) {
+            flags |= FLAG_HAS_RAW_DISLIKES;
+            buffer.putLong(position + OFFSET_RAW_DISLIKES, voteData.fetchedRawDislikeCount);
+        } else {
+            buffer.putLong(position + OFFSET_RAW_DISLIKES, 0);
+        }
+        buffer.put(position + OFFSET_FLAGS, (byte) flags);
+        buffer.putLong(position + OFFSET_TIME_FETCHED, System.currentTimeMillis());
+        buffer.putLong(position + OFFSET_VIEWS, voteData.viewCount);
+        buffer.putLong(position + OFFSET_LIKES, voteData.fetchedLikeCount);
+        buffer.putLong(position + OFFSET_DISLIKES, voteData.fetchedDislikeCount);
+        buffer.putInt(position + OFFSET_CHECKSUM, calculateChecksum(buffer, position));
+    }
+}
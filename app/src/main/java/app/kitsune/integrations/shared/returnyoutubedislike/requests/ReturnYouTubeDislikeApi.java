@@ -17,8 +17,6 @@ import java.net.HttpURLConnection;
 import java.net.ProtocolException;
 import java.net.SocketTimeoutException;
 import java.nio.charset.StandardCharsets;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 import java.util.Objects;
 
@@ -112,6 +110,14 @@ public class ReturnYouTubeDislikeApi {
         return true;
     }
 
+    /**
+     * @return True, if API calls are paused because of a rate limit or a connection error.
+     */
+    public static boolean isRateLimitInEffect() {
+        final long resumeTime = timeToResumeAPICalls;
+        return resumeTime != 0 && System.currentTimeMillis() <= resumeTime;
+    }
+
     /**
      * @return True, if a client rate limit was requested
      */
@@ -412,34 +418,24 @@ public class ReturnYouTubeDislikeApi {
     private static String solvePuzzle(String challenge, int difficulty) {
         byte[] decodedChallenge = Base64.decode(challenge, Base64.NO_WRAP);
 
-        byte[] buffer = new byte[20];
-        System.arraycopy(decodedChallenge, 0, buffer, 4, 16);
-
-        MessageDigest md;
-        try {
-            md = MessageDigest.getInstance("SHA-512");
-        } catch (NoSuchAlgorithmException ex) {
-            throw new IllegalStateException(ex); // should never happen
+        final long startTime = System.currentTimeMillis();
+        PuzzleSolver solver = new PuzzleSolver(decodedChallenge, difficulty);
+        final int nonce = solver.solve();
+        if (nonce < 0) {
+            // should never be reached
+            throw new IllegalStateException("Failed to solve puzzle challenge: " + challenge + " of difficulty: " + difficulty);
         }
-
-        final int maxCount = (int) (Math.pow(2, difficulty + 1) * 5);
-        for (int i = 0; i < maxCount; i++) {
-            buffer[0] = (byte) i;
-            buffer[1] = (byte) (i >> 8);
-            buffer[2] = (byte) (i >> 16);
-            buffer[3] = (byte) (i >> 24);
-            byte[] messageDigest = md.digest(buffer);
-
-            if (countLeadingZeroes(messageDigest) >= difficulty) {
-                return Base64.encodeToString(new byte[]{buffer[0], buffer[1], buffer[2], buffer[3]}, Base64.NO_WRAP);
-            }
-        }
-
-        // should never be reached
-        throw new IllegalStateException("Failed to solve puzzle challenge: " + challenge + " of difficulty: " + difficulty);
+        Logger.printDebug(() -> "Solved puzzle of difficulty: " + difficulty + " using " + solver.getHashCount()
+                + " hashes in " + (System.currentTimeMillis() - startTime) + "ms");
+
+        return Base64.encodeToString(new byte[]{
+                (byte) nonce,
+                (byte) (nonce >> 8),
+                (byte) (nonce >> 16),
+                (byte) (nonce >> 24)
+        }, Base64.NO_WRAP);
     }
 
-    // https://stackoverflow.com/a/157202
     private static String randomString() {
         String AB = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
         SecureRandom rnd = new SecureRandom();
@@ -450,27 +446,4 @@ public class ReturnYouTubeDislikeApi {
         return sb.toString();
     }
 
-    private static int countLeadingZeroes(byte[] uInt8View) {
-        int zeroes = 0;
-        int value;
-        for (byte b : uInt8View) {
-            value = b & 0xFF;
-            if (value == 0) {
-                zeroes += 8;
-            } else {
-                int count = 1;
-                if (value >>> 4 == 0) {
-                    count += 4;
-                    value <<= 4;
-                }
-                if (value >>> 6 == 0) {
-                    count += 2;
-                    value <<= 2;
-                }
-                zeroes += count - (value >>> 7);
-                break;
-            }
-        }
-        return zeroes;
-    }
 }
@@ -18,6 +18,7 @@ import java.util.LinkedHashMap;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
@@ -152,7 +153,7 @@ public class ChannelRequest {
         } catch (InterruptedException ex) {
             Logger.printException(() -> "getStream interrupted", ex);
             Thread.currentThread().interrupt(); // Restore interrupt status flag.
-        } catch (ExecutionException ex) {
+        } catch (ExecutionException | CancellationException ex) {
             Logger.printException(() -> "getStream failure", ex);
         }
 
@@ -2,6 +2,7 @@ package app.kitsune.integrations.shared.settings;
 
 import static java.lang.Boolean.FALSE;
 import static java.lang.Boolean.TRUE;
+import static app.kitsune.integrations.shared.settings.Setting.parent;
 
 import app.kitsune.integrations.shared.patches.ReturnYouTubeUsernamePatch.DisplayFormat;
 
@@ -18,6 +19,10 @@ public class BaseSettings {
      * The buffer contains select user data, including the client ip address and information that could identify the end user.
      */
     public static final BooleanSetting ENABLE_DEBUG_BUFFER_LOGGING = new BooleanSetting("revanced_enable_debug_buffer_logging", FALSE);
+    /**
+     * Periodically logs the time spent and hit rate of each litho filter.
+     */
+    public static final BooleanSetting ENABLE_DEBUG_LITHO_FILTER_STATISTICS = new BooleanSetting("revanced_enable_debug_litho_filter_statistics", FALSE, parent(ENABLE_DEBUG_LOGGING));
     public static final BooleanSetting SETTINGS_INITIALIZED = new BooleanSetting("revanced_settings_initialized", FALSE, false, false);
 
     /**
@@ -0,0 +1,42 @@
+package app.kitsune.integrations.shared.settings.preference;
+
+import android.content.Context;
+import android.preference.Preference;
+import android.util.AttributeSet;
+
+import app.kitsune.integrations.shared.patches.components.LithoFilterPatch;
+import app.kitsune.integrations.shared.settings.BaseSettings;
+
+/**
+ * Debug settings action that logs the litho filter statistics collected since the last reset,
+ * and then starts collecting again.
+ * <p>
+ * Statistics are only collected while {@link BaseSettings#ENABLE_DEBUG_LITHO_FILTER_STATISTICS} is enabled,
+ * so the preference should depend on that setting.
+ */
+@SuppressWarnings({"unused", "deprecation"})
+public class LithoFilterStatisticsPreference extends Preference {
+    {
+        setOnPreferenceClickListener(pref -> {
+            LithoFilterPatch.printFilterStatistics();
+            LithoFilterPatch.resetFilterStatistics();
+            return true;
+        });
+    }
+
+    public LithoFilterStatisticsPreference(Context context, AttributeSet attrs, int defStyleAttr, int defStyleRes) {
+        super(context, attrs, defStyleAttr, defStyleRes);
+    }
+
+    public LithoFilterStatisticsPreference(Context context, AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+    }
+
+    public LithoFilterStatisticsPreference(Context context, AttributeSet attrs) {
+        super(context, attrs);
+    }
+
+    public LithoFilterStatisticsPreference(Context context) {
+        super(context);
+    }
+}
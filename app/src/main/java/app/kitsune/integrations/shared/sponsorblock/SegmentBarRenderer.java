@@ -0,0 +1,96 @@
+package app.kitsune.integrations.shared.sponsorblock;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Draws the segments of the seekbar using a cached image.
+ * <p>
+ * The seekbar is drawn every frame while it's visible, but the segments and the seekbar bounds rarely change.
+ * So the segments are drawn once to an image the size of the seekbar,
+ * and each frame draws only the image.
+ * The image is drawn again only if the segments, segment colors, video length or seekbar bounds change.
+ * <p>
+ * Class is not thread safe, and must be used only on the main thread.
+ */
+public final class SegmentBarRenderer<T> {
+
+    /**
+     * Draws all segments to the image.
+     */
+    public interface SegmentPainter<T> {
+        /**
+         * @param imageCanvas                Canvas of the image, where x zero is the left side of the seekbar.
+         * @param segments                   The segments to draw.
+         * @param videoMillisecondsToPixels  Scale of the video time to the image x coordinates.
+         * @param imageHeight                Height of the image.
+         */
+        void drawSegments(@NonNull Canvas imageCanvas, @NonNull T segments, float videoMillisecondsToPixels, float imageHeight);
+    }
+
+    @Nullable
+    private Bitmap image;
+    @Nullable
+    private Canvas imageCanvas;
+
+    @Nullable
+    private T imageSegments;
+    private int imageColorVersion;
+    private long imageVideoLength;
+    private int imageBarLeft;
+    private int imageBarRight;
+    private int imageBarThickness;
+
+    /**
+     * Draws the segments of the seekbar.
+     *
+     * @param segments     The segments to draw. Compared by identity to detect if the segments changed,
+     *                     so a new object must be used if the segments change.
+     * @param colorVersion Value that changes if any segment color changes.
+     * @param painter      Draws the segments to the image, if the image must be updated.
+     */
+    public void draw(@NonNull Canvas canvas, float posY, @NonNull T segments, int colorVersion,
+                     long videoLength, int barLeft, int barRight, int barThickness,
+                     @NonNull SegmentPainter<T> painter) {
+        final int width = barRight - barLeft;
+        if (videoLength <= 0 || width <= 0 || barThickness <= 0) {
+            return;
+        }
+
+        if (image == null || segments != imageSegments || colorVersion != imageColorVersion
+                || videoLength != imageVideoLength || barLeft != imageBarLeft
+                || barRight != imageBarRight || barThickness != imageBarThickness) {
+            updateImage(segments, colorVersion, videoLength, barLeft, barRight, barThickness, painter);
+        }
+
+        final int thicknessDiv2 = barThickness / 2; // rounds down
+        final float top = posY - (barThickness - thicknessDiv2);
+        canvas.drawBitmap(image, barLeft, top, null);
+    }
+
+    private void updateImage(@NonNull T segments, int colorVersion,
+                             long videoLength, int barLeft, int barRight, int barThickness,
+                             @NonNull SegmentPainter<T> painter) {
+        final int width = barRight - barLeft;
+        if (image == null || image.getWidth() != width || image.getHeight() != barThickness) {
+            // The previous image is not recycled, as it may still be used by the render thread.
+            image = Bitmap.createBitmap(width, barThickness, Bitmap.Config.ARGB_8888);
+            imageCanvas = new Canvas(image);
+        } else {
+            image.eraseColor(0);
+        }
+
+        final float videoMillisecondsToPixels = (1f / videoLength) * width;
+        painter.drawSegments(imageCanvas, segments, videoMillisecondsToPixels, barThickness);
+
+        imageSegments = segments;
+        imageColorVersion = colorVersion;
+        imageVideoLength = videoLength;
+        imageBarLeft = barLeft;
+        imageBarRight = barRight;
+        imageBarThickness = barThickness;
+    }
+}
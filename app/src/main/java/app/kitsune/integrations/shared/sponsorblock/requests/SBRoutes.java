@@ -8,6 +8,7 @@ import app.kitsune.integrations.shared.requests.Route;
 public class SBRoutes {
     public static final Route IS_USER_VIP = new Route(GET, "/api/isUserVIP?userID={user_id}");
     public static final Route GET_SEGMENTS = new Route(GET, "/api/skipSegments?videoID={video_id}&categories={categories}");
+    public static final Route GET_SEGMENTS_BY_HASH_PREFIX = new Route(GET, "/api/skipSegments/{hash_prefix}?categories={categories}");
     public static final Route VIEWED_SEGMENT = new Route(POST, "/api/viewedVideoSponsorTime?UUID={segment_id}");
     public static final Route GET_USER_STATS = new Route(GET, "/api/userInfo?userID={user_id}&values=[\"userID\",\"userName\",\"reputation\",\"segmentCount\",\"ignoredSegmentCount\",\"viewCount\",\"minutesSaved\"]");
     public static final Route CHANGE_USERNAME = new Route(POST, "/api/setUsername?userID={user_id}&username={username}");
@@ -0,0 +1,281 @@
+package app.kitsune.integrations.shared.utils;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import app.kitsune.integrations.shared.settings.BaseSettings;
+
+/**
+ * Background thread pools, separated by how soon the result is needed.
+ * <p>
+ * Each lane has a fixed maximum number of threads and a bounded queue,
+ * so a burst of requests during fast scrolling cannot create many threads
+ * that compete with the main thread.
+ * <p>
+ * Queued tasks are never cancelled, since a caller may be waiting for the result.
+ * If the queue of a lane is full, the new task is rejected instead:
+ * the future of a submitted task throws an {@link ExecutionException} caused by a {@link RejectedExecutionException},
+ * and a rejected task without a result is logged.
+ * <p>
+ * Tasks submitted using {@link Utils#submitOnBackgroundThread(BackgroundLane, Callable)}
+ * can be cancelled by the caller, and cancelled tasks that have not started are never run.
+ */
+public enum BackgroundLane {
+    /**
+     * Requests needed to start playback, such as the spoofed streaming data.
+     * Separate from {@link #USER_VISIBLE}, so slow requests for other content cannot delay playback.
+     */
+    PLAYBACK(2, Thread.NORM_PRIORITY, 16, 0),
+    /**
+     * Network requests for content the user is currently looking at,
+     * such as the dislikes or SponsorBlock segments of the current video.
+     */
+    USER_VISIBLE(4, Thread.NORM_PRIORITY, 64, 0),
+    /**
+     * Requests for content that may be shown soon. Tasks waiting longer than 10 seconds are stale and are not run,
+     * unless a caller is waiting for the result of the task.
+     */
+    PREFETCH(2, Thread.NORM_PRIORITY - 2, 32, 10_000),
+    /**
+     * Work with no immediately visible result, such as reporting statistics.
+     */
+    HOUSEKEEPING(1, Thread.MIN_PRIORITY, 64, 0);
+
+    /**
+     * How often to log the statistics of a lane, if debug logging is enabled.
+     */
+    private static final int LOG_STATISTICS_INTERVAL = 100;
+
+    /**
+     * Task has not started, and no caller has waited for the result.
+     */
+    private static final int TASK_QUEUED = 0;
+    /**
+     * A caller has waited for the result, and the task must run even if stale.
+     */
+    private static final int TASK_AWAITED = 1;
+    /**
+     * Task was stale and was not run. If a caller later waits for the result, the task is queued again.
+     */
+    private static final int TASK_STALE = 2;
+
+    private final class LaneTask<T> extends FutureTask<T> {
+        private final long queuedTime = System.nanoTime();
+        /**
+         * If the result is returned to the caller, and the caller is responsible for handling exceptions.
+         */
+        private final boolean returnsResult;
+        private final AtomicInteger state = new AtomicInteger(TASK_QUEUED);
+
+        LaneTask(Callable<T> callable) {
+            super(callable);
+            returnsResult = true;
+        }
+
+        LaneTask(Runnable runnable) {
+            super(runnable, null);
+            returnsResult = false;
+        }
+
+        @Override
+        public void run() {
+            final long waitMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - queuedTime);
+            startedCount.increment();
+            totalWaitMillis.add(waitMillis);
+            maximumWaitMillis.accumulate(waitMillis);
+            if (staleMillis > 0 && waitMillis > staleMillis && state.compareAndSet(TASK_QUEUED, TASK_STALE)) {
+                // The task is not cancelled, so a caller that later waits for the result does not fail.
+                staleCount.increment();
+                return;
+            }
+            super.run();
+        }
+
+        /**
+         * Called before waiting for the result. If the task was stale and was not run, then it's queued again.
+         */
+        private void awaitResult() {
+            if (!isDone() && state.getAndSet(TASK_AWAITED) == TASK_STALE) {
+                execute(this);
+            }
+        }
+
+        @Override
+        public T get() throws InterruptedException, ExecutionException {
+            awaitResult();
+            return super.get();
+        }
+
+        @Override
+        public T get(long timeout, @NonNull TimeUnit unit)
+                throws InterruptedException, ExecutionException, TimeoutException {
+            awaitResult();
+            return super.get(timeout, unit);
+        }
+
+        /**
+         * Called if the queue is full and the task cannot run.
+         */
+        void reject() {
+            discardedCount.increment();
+            if (returnsResult) {
+                Logger.printDebug(() -> name() + " queue is full, rejected task");
+                setException(new RejectedExecutionException(name() + " queue is full"));
+            } else if (staleMillis > 0) {
+                // Tasks of lanes with stale tasks are expected to not always run.
+                Logger.printDebug(() -> name() + " queue is full, task not run");
+            } else {
+                Logger.printException(() -> name() + " queue is full, task not run");
+            }
+        }
+
+        @Override
+        protected void done() {
+            if (isCancelled()) {
+                return;
+            }
+            if (!returnsResult) {
+                try {
+                    get();
+                } catch (ExecutionException | InterruptedException ex) {
+                    Logger.printException(() -> "Background task failure", ex.getCause());
+                }
+            }
+            if (completedCount.incrementAndGet() % LOG_STATISTICS_INTERVAL == 0) {
+                Logger.printDebug(BackgroundLane.this::getStatistics);
+            }
+        }
+    }
+
+    private final int maximumThreads;
+    private final int threadPriority;
+    private final int queueCapacity;
+    /**
+     * Tasks waiting longer than this are not run. Zero if tasks are never stale.
+     */
+    private final long staleMillis;
+
+    private volatile ThreadPoolExecutor executor;
+
+    private final LongAdder submittedCount = new LongAdder();
+    private final LongAdder startedCount = new LongAdder();
+    private final AtomicLong completedCount = new AtomicLong();
+    private final LongAdder discardedCount = new LongAdder();
+    private final LongAdder staleCount = new LongAdder();
+    private final LongAdder totalWaitMillis = new LongAdder();
+    private final LongAccumulator maximumWaitMillis = new LongAccumulator(Math::max, 0);
+    private final LongAccumulator maximumQueueDepth = new LongAccumulator(Math::max, 0);
+
+    BackgroundLane(int maximumThreads, int threadPriority, int queueCapacity, long staleMillis) {
+        this.maximumThreads = maximumThreads;
+        this.threadPriority = threadPriority;
+        this.queueCapacity = queueCapacity;
+        this.staleMillis = staleMillis;
+    }
+
+    /**
+     * @return How long a task can wait before it's stale and is not run, or zero if tasks are never stale.
+     */
+    public long getStaleMillis() {
+        return staleMillis;
+    }
+
+    private ThreadPoolExecutor getExecutor() {
+        ThreadPoolExecutor pool = executor;
+        if (pool == null) {
+            pool = createExecutor();
+        }
+        return pool;
+    }
+
+    private synchronized ThreadPoolExecutor createExecutor() {
+        if (executor != null) {
+            return executor; // Another thread already created the executor.
+        }
+        final String threadNamePrefix = "revanced-" + name().toLowerCase() + "-";
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(
+                maximumThreads,
+                maximumThreads,
+                10, // Keep threads alive 10 seconds after they go idle.
+                TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> { // ThreadFactory
+                    Thread t = new Thread(r, threadNamePrefix + threadCount.incrementAndGet());
+                    t.setPriority(threadPriority);
+                    return t;
+                },
+                (r, rejectedBy) -> { // Queue is full.
+                    // Queued tasks may have callers waiting for the result, so the new task is rejected instead.
+                    ((LaneTask<?>) r).reject();
+                });
+        pool.allowCoreThreadTimeOut(true);
+        executor = pool;
+        return pool;
+    }
+
+    private void execute(LaneTask<?> task) {
+        ThreadPoolExecutor pool = getExecutor();
+        submittedCount.increment();
+        pool.execute(task);
+        maximumQueueDepth.accumulate(pool.getQueue().size());
+    }
+
+    void run(@NonNull Runnable task) {
+        execute(new LaneTask<>(task));
+    }
+
+    @NonNull
+    <T> Future<T> submit(@NonNull Callable<T> call) {
+        LaneTask<T> task = new LaneTask<>(call);
+        execute(task);
+        return task;
+    }
+
+    /**
+     * @return Number of tasks waiting to run.
+     */
+    public int getQueueDepth() {
+        ThreadPoolExecutor pool = executor;
+        return pool == null ? 0 : pool.getQueue().size();
+    }
+
+    @NonNull
+    public String getStatistics() {
+        final long started = startedCount.sum();
+        return name()
+                + " submitted: " + submittedCount.sum()
+                + " completed: " + completedCount.get()
+                + " queued: " + getQueueDepth()
+                + " maximum queued: " + maximumQueueDepth.get()
+                + " discarded: " + discardedCount.sum()
+                + " stale: " + staleCount.sum()
+                + " average wait: " + (started == 0 ? 0 : totalWaitMillis.sum() / started) + "ms"
+                + " maximum wait: " + maximumWaitMillis.get() + "ms";
+    }
+
+    /**
+     * Logs the statistics of all lanes, if debug logging is enabled.
+     */
+    public static void printStatistics() {
+        if (!BaseSettings.ENABLE_DEBUG_LOGGING.get()) {
+            return;
+        }
+        for (BackgroundLane lane : values()) {
+            Logger.printDebug(lane::getStatistics);
+        }
+    }
+}
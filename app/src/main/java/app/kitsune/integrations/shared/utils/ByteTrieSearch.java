@@ -4,25 +4,40 @@ import androidx.annotation.NonNull;
 
 import java.nio.charset.StandardCharsets;
 
+/**
+ * Byte pattern searching using a prefix tree (trie).
+ * <p>
+ * If case insensitive, then both the patterns and the searched bytes are compared as case folded UTF-8.
+ * ASCII is folded in place, and other characters are folded only if the folded character
+ * has the same UTF-8 byte length (which is true for almost all languages that use letter case).
+ * Since the byte length never changes, the match indexes passed to the callbacks are always
+ * indexes of the original unmodified bytes.
+ */
 public final class ByteTrieSearch extends TrieSearch<byte[]> {
 
     private static final class ByteTrieNode extends TrieNode<byte[]> {
-        ByteTrieNode() {
+        private final boolean caseInsensitive;
+
+        ByteTrieNode(boolean caseInsensitive) {
             super();
+            this.caseInsensitive = caseInsensitive;
         }
 
-        ByteTrieNode(char nodeCharacterValue) {
+        ByteTrieNode(char nodeCharacterValue, boolean caseInsensitive) {
             super(nodeCharacterValue);
+            this.caseInsensitive = caseInsensitive;
         }
 
         @Override
         TrieNode<byte[]> createNode(char nodeCharacterValue) {
-            return new ByteTrieNode(nodeCharacterValue);
+            return new ByteTrieNode(nodeCharacterValue, caseInsensitive);
         }
 
         @Override
-        char getCharValue(byte[] text, int index) {
-            return (char) text[index];
+        public char getCharValue(byte[] text, int index) {
+            return (char) (caseInsensitive
+                    ? foldCase(text, index)
+                    : text[index]);
         }
 
         @Override
@@ -31,6 +46,109 @@ public final class ByteTrieSearch extends TrieSearch<byte[]> {
         }
     }
 
+    /**
+     * First byte bits of a UTF-8 character, indexed by the number of bytes of the character.
+     */
+    private static final int[] UTF8_LEADING_BYTE_PREFIX = {0, 0, 0xC0, 0xE0, 0xF0};
+
+    /**
+     * @return The case folded byte at the index.
+     * If the byte is part of a multi byte UTF-8 character, then the whole character is folded
+     * and the byte at the same position of the folded character is returned.
+     * Bytes that are not valid UTF-8 are not changed.
+     */
+    static byte foldCase(byte[] text, int index) {
+        final byte value = text[index];
+        if (value >= 0) { // ASCII.
+            return (value >= 'A' && value <= 'Z')
+                    ? (byte) (value + ('a' - 'A'))
+                    : value;
+        }
+
+        // Find the first byte of the character.
+        int startIndex = index;
+        final int minimumStartIndex = Math.max(0, index - 3);
+        while (startIndex > minimumStartIndex && (text[startIndex] & 0xC0) == 0x80) {
+            startIndex--;
+        }
+
+        final int leadingByte = text[startIndex] & 0xFF;
+        final int characterLength;
+        int codePoint;
+        if ((leadingByte & 0xE0) == 0xC0) { // 110xxxxx
+            characterLength = 2;
+            codePoint = leadingByte & 0x1F;
+        } else if ((leadingByte & 0xF0) == 0xE0) { // 1110xxxx
+            characterLength = 3;
+            codePoint = leadingByte & 0x0F;
+        } else if ((leadingByte & 0xF8) == 0xF0) { // 11110xxx
+            characterLength = 4;
+            codePoint = leadingByte & 0x07;
+        } else {
+            return value; // Continuation byte without a leading byte.
+        }
+
+        final int characterByteIndex = index - startIndex;
+        final int endIndex = startIndex + characterLength;
+        if (characterByteIndex >= characterLength || endIndex > text.length) {
+            return value;
+        }
+        for (int i = startIndex + 1; i < endIndex; i++) {
+            final int continuationByte = text[i];
+            if ((continuationByte & 0xC0) != 0x80) {
+                return value; // Truncated character.
+            }
+            codePoint = (codePoint << 6) | (continuationByte & 0x3F);
+        }
+
+        final int foldedCodePoint = foldCase(codePoint);
+        if (foldedCodePoint == codePoint || utf8Length(foldedCodePoint) != characterLength) {
+            return value;
+        }
+
+        final int shift = 6 * (characterLength - 1 - characterByteIndex);
+        if (characterByteIndex == 0) {
+            return (byte) (UTF8_LEADING_BYTE_PREFIX[characterLength] | (foldedCodePoint >> shift));
+        }
+        return (byte) (0x80 | ((foldedCodePoint >> shift) & 0x3F));
+    }
+
+    /**
+     * Simple case folding, that also folds characters that have no lowercase
+     * but have an uppercase with a different lowercase (such as the Greek final sigma).
+     */
+    static int foldCase(int codePoint) {
+        return Character.toLowerCase(Character.toUpperCase(codePoint));
+    }
+
+    /**
+     * @return The text case folded the same as the searched bytes of a case insensitive search.
+     * Each character is folded only if the UTF-8 byte length does not change,
+     * so unlike {@link String#toLowerCase()} the byte length of the text never changes
+     * (such as 'İ', which is not folded).
+     */
+    @NonNull
+    public static String foldCase(@NonNull String text) {
+        final int length = text.length();
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; ) {
+            final int codePoint = text.codePointAt(i);
+            final int foldedCodePoint = foldCase(codePoint);
+            builder.appendCodePoint(utf8Length(foldedCodePoint) == utf8Length(codePoint)
+                    ? foldedCodePoint
+                    : codePoint);
+            i += Character.charCount(codePoint);
+        }
+        return builder.toString();
+    }
+
+    private static int utf8Length(int codePoint) {
+        if (codePoint < 0x80) return 1;
+        if (codePoint < 0x800) return 2;
+        if (codePoint < 0x10000) return 3;
+        return 4;
+    }
+
     /**
      * Helper method for the common usage of converting Strings to raw UTF-8 bytes.
      */
@@ -44,7 +162,13 @@ public final class ByteTrieSearch extends TrieSearch<byte[]> {
     }
 
     public ByteTrieSearch(@NonNull byte[]... patterns) {
-        super(new ByteTrieNode(), patterns);
+        this(false, patterns);
     }
-}
 
+    /**
+     * @param caseInsensitive If patterns match regardless of letter case.
+     */
+    public ByteTrieSearch(boolean caseInsensitive, @NonNull byte[]... patterns) {
+        super(new ByteTrieNode(caseInsensitive), patterns);
+    }
+}
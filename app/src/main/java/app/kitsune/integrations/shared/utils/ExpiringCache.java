@@ -0,0 +1,221 @@
+package app.kitsune.integrations.shared.utils;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Thread safe cache where entries expire by time and by the maximum number of entries.
+ * <p>
+ * An entry is always kept for the minimum lifetime. After that it's kept until the maximum lifetime
+ * only if the value is still valid, which allows failed network calls to be retried sooner than successful calls are refreshed.
+ * <p>
+ * Lookups do not lock. Expired entries are removed by whichever thread is doing a lookup,
+ * and other threads do not wait while this is done.
+ * Entries are kept in two creation ordered queues, entries younger than the minimum lifetime
+ * and entries that passed the minimum lifetime and are still valid.
+ * So removing expired and excess entries only looks at the oldest entries of each queue, and never the entire cache.
+ */
+public final class ExpiringCache<K, V> {
+
+    /**
+     * How often to log the statistics, if debug logging is enabled.
+     */
+    private static final int LOG_STATISTICS_INTERVAL = 500;
+
+    private static final class Entry<K, V> {
+        final K key;
+        final V value;
+        final long timeCreated;
+
+        Entry(K key, V value, long timeCreated) {
+            this.key = key;
+            this.value = value;
+            this.timeCreated = timeCreated;
+        }
+    }
+
+    private final String name;
+    private final int maximumSize;
+    private final long minimumLifetimeMillis;
+    private final long maximumLifetimeMillis;
+    private final Predicate<V> isValid;
+
+    private final ConcurrentHashMap<K, Entry<K, V>> map = new ConcurrentHashMap<>();
+
+    /**
+     * Entries younger than the minimum lifetime, oldest first.
+     */
+    private final Queue<Entry<K, V>> youngEntries = new ConcurrentLinkedQueue<>();
+    /**
+     * Valid entries older than the minimum lifetime, oldest first.
+     * All entries in this queue are older than the entries in {@link #youngEntries}.
+     */
+    private final Queue<Entry<K, V>> oldEntries = new ConcurrentLinkedQueue<>();
+    private final ReentrantLock maintenanceLock = new ReentrantLock();
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder expiredCount = new LongAdder();
+    private final LongAdder evictedCount = new LongAdder();
+
+    /**
+     * @param name                  Name used for logging.
+     * @param maximumSize           Maximum number of entries.
+     * @param minimumLifetimeMillis How long entries are always kept.
+     * @param maximumLifetimeMillis How long entries are kept, if the value is valid.
+     * @param isValid               If a value older than the minimum lifetime should be kept.
+     */
+    public ExpiringCache(@NonNull String name, int maximumSize,
+                         long minimumLifetimeMillis, long maximumLifetimeMillis,
+                         @NonNull Predicate<V> isValid) {
+        if (maximumSize <= 0 || minimumLifetimeMillis > maximumLifetimeMillis) {
+            throw new IllegalArgumentException();
+        }
+        this.name = Objects.requireNonNull(name);
+        this.maximumSize = maximumSize;
+        this.minimumLifetimeMillis = minimumLifetimeMillis;
+        this.maximumLifetimeMillis = maximumLifetimeMillis;
+        this.isValid = Objects.requireNonNull(isValid);
+    }
+
+    private boolean isExpired(Entry<K, V> entry, long now) {
+        final long age = now - entry.timeCreated;
+        if (age < minimumLifetimeMillis) {
+            return false;
+        }
+        return age > maximumLifetimeMillis || !isValid.test(entry.value);
+    }
+
+    /**
+     * @return The cached value, or a new value created using the function if the key is not cached or is expired.
+     */
+    @NonNull
+    public V get(@NonNull K key, @NonNull Function<K, V> createValue) {
+        final long now = System.currentTimeMillis();
+        removeExpiredEntries(now);
+
+        Entry<K, V> entry = map.get(key);
+        if (entry != null && !isExpired(entry, now)) {
+            hitCount.increment();
+            return entry.value;
+        }
+
+        @SuppressWarnings("unchecked")
+        Entry<K, V>[] created = new Entry[1];
+        entry = map.compute(key, (k, existing) -> {
+            if (existing != null && !isExpired(existing, now)) {
+                return existing; // Another thread created the entry.
+            }
+            created[0] = new Entry<>(k, createValue.apply(k), now);
+            return created[0];
+        });
+        if (created[0] == null) {
+            hitCount.increment();
+        } else {
+            missCount.increment();
+            youngEntries.add(created[0]);
+            if (missCount.sum() % LOG_STATISTICS_INTERVAL == 0) {
+                Logger.printDebug(this::getStatistics);
+            }
+        }
+        return entry.value;
+    }
+
+    /**
+     * @return The cached value, or null if the key is not cached or is expired.
+     */
+    @Nullable
+    public V getIfPresent(@NonNull K key) {
+        Entry<K, V> entry = map.get(key);
+        if (entry == null || isExpired(entry, System.currentTimeMillis())) {
+            return null;
+        }
+        return entry.value;
+    }
+
+    /**
+     * Performs the action for each cached value, including values that expired but are not yet removed.
+     */
+    public void forEachValue(@NonNull Consumer<V> action) {
+        for (Entry<K, V> entry : map.values()) {
+            action.accept(entry.value);
+        }
+    }
+
+    public void clear() {
+        maintenanceLock.lock();
+        try {
+            map.clear();
+            youngEntries.clear();
+            oldEntries.clear();
+        } finally {
+            maintenanceLock.unlock();
+        }
+    }
+
+    private void removeEntry(Entry<K, V> entry, LongAdder counter) {
+        if (map.remove(entry.key, entry)) {
+            counter.increment();
+            Logger.printDebug(() -> name + " removed: " + entry.key);
+        }
+    }
+
+    private void removeExpiredEntries(long now) {
+        if (!maintenanceLock.tryLock()) {
+            return; // Another thread is removing expired entries.
+        }
+        try {
+            Entry<K, V> entry;
+            // Entries past the minimum lifetime are either expired or moved to the old entries.
+            while ((entry = youngEntries.peek()) != null && now - entry.timeCreated >= minimumLifetimeMillis) {
+                youngEntries.poll();
+                if (map.get(entry.key) != entry) {
+                    continue; // Already replaced.
+                }
+                if (isExpired(entry, now)) {
+                    removeEntry(entry, expiredCount);
+                } else {
+                    oldEntries.add(entry);
+                }
+            }
+            while ((entry = oldEntries.peek()) != null && now - entry.timeCreated > maximumLifetimeMillis) {
+                oldEntries.poll();
+                removeEntry(entry, expiredCount);
+            }
+
+            // Remove the oldest entries, until the maximum size is no longer exceeded.
+            while (map.size() > maximumSize) {
+                entry = oldEntries.poll();
+                if (entry == null) {
+                    entry = youngEntries.poll();
+                    if (entry == null) {
+                        break;
+                    }
+                }
+                removeEntry(entry, evictedCount);
+            }
+        } finally {
+            maintenanceLock.unlock();
+        }
+    }
+
+    @NonNull
+    public String getStatistics() {
+        return name
+                + " size: " + map.size()
+                + " hits: " + hitCount.sum()
+                + " misses: " + missCount.sum()
+                + " expired: " + expiredCount.sum()
+                + " evicted: " + evictedCount.sum();
+    }
+}
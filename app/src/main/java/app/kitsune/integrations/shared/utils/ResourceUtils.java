@@ -1,17 +1,88 @@
 package app.kitsune.integrations.shared.utils;
 
 import android.content.Context;
+import android.content.res.Resources;
 import android.graphics.drawable.Drawable;
+import android.os.SystemClock;
 import android.view.animation.Animation;
 import android.view.animation.AnimationUtils;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * @noinspection ALL
  */
 public class ResourceUtils extends Utils {
 
+    /**
+     * File in the app cache directory with the resources looked up by previous app sessions.
+     * Each line is the resource type and the resource name, separated by {@link #TYPE_SEPARATOR}.
+     */
+    private static final String RESOURCE_NAMES_FILE_NAME = "revanced_resource_names";
+    private static final char TYPE_SEPARATOR = '/';
+
+    /**
+     * Maximum number of saved resource names. Names looked up in the current session are saved first.
+     */
+    private static final int MAXIMUM_SAVED_NAMES = 1000;
+
+    /**
+     * Delay after the first new resource name before the names are saved,
+     * so the burst of names looked up when a screen first opens is saved once.
+     */
+    private static final long SAVE_DELAY_MILLISECONDS = 10_000;
+
+    /**
+     * Resolved identifiers of each resource type, including zero for names that do not exist.
+     * {@link Resources#getIdentifier(String, String, String)} is a slow lookup by name,
+     * and the identifiers never change while the app is running.
+     */
+    private static final Map<ResourceType, Map<String, Integer>> identifiers = new EnumMap<>(ResourceType.class);
+
+    /**
+     * Identifiers resolved by {@link #preloadIdentifiers()} that were not yet used in the current session.
+     * Used identifiers are moved to {@link #identifiers}.
+     */
+    private static final Map<ResourceType, Map<String, Integer>> preloadedIdentifiers = new EnumMap<>(ResourceType.class);
+
+    private static final AtomicBoolean saveScheduled = new AtomicBoolean();
+
+    /**
+     * Statistics of the identifiers looked up by name, and of the preloaded identifiers used.
+     * Logged when the resource names are saved.
+     */
+    private static final AtomicInteger lookupCount = new AtomicInteger();
+    private static final AtomicInteger mainThreadLookupCount = new AtomicInteger();
+    private static final AtomicLong lookupNanoseconds = new AtomicLong();
+    private static final AtomicInteger preloadedCount = new AtomicInteger();
+
+    static {
+        for (ResourceType resourceType : ResourceType.values()) {
+            identifiers.put(resourceType, new ConcurrentHashMap<>());
+            preloadedIdentifiers.put(resourceType, new ConcurrentHashMap<>());
+        }
+    }
+
     private ResourceUtils() {
     } // utility class
 
@@ -21,7 +92,147 @@ public class ResourceUtils extends Utils {
 
     public static int getIdentifier(@NonNull String str, @NonNull ResourceType resourceType,
                                     @NonNull Context context) {
-        return getResources().getIdentifier(str, resourceType.getType(), context.getPackageName());
+        //noinspection ConstantConditions
+        final Map<String, Integer> typeIdentifiers = identifiers.get(resourceType);
+        Integer identifier = typeIdentifiers.get(str);
+        if (identifier == null) {
+            //noinspection ConstantConditions
+            identifier = preloadedIdentifiers.get(resourceType).remove(str);
+            if (identifier != null) {
+                preloadedCount.incrementAndGet();
+            } else {
+                final long start = System.nanoTime();
+                identifier = getResources().getIdentifier(str, resourceType.getType(), context.getPackageName());
+                lookupNanoseconds.addAndGet(System.nanoTime() - start);
+                lookupCount.incrementAndGet();
+                if (isCurrentlyOnMainThread()) {
+                    mainThreadLookupCount.incrementAndGet();
+                }
+                scheduleSave();
+            }
+            typeIdentifiers.put(str, identifier);
+        }
+        return identifier;
+    }
+
+    /**
+     * Resolves the identifiers of the resources looked up by previous app sessions on a background thread,
+     * so the first use of each resource does not look up the name.
+     * Resources that do not exist because a patch is excluded are also resolved, and are then never looked up again.
+     * <p>
+     * The names are saved when callers look up new names, so no list of names is kept in the code.
+     * With debug logging enabled, the time of the lookups with and without preloading can be compared
+     * by opening the same screens after the first app start (nothing saved yet) and after a restart.
+     */
+    public static void preloadIdentifiers() {
+        runOnBackgroundThread(BackgroundLane.HOUSEKEEPING, ResourceUtils::loadSavedIdentifiers);
+    }
+
+    private static void loadSavedIdentifiers() {
+        final Context context = getContext();
+        if (context == null) {
+            Logger.printException(() -> "Cannot preload resource identifiers, context is null");
+            return;
+        }
+        File file = new File(context.getCacheDir(), RESOURCE_NAMES_FILE_NAME);
+        if (!file.exists()) {
+            Logger.printDebug(() -> "No saved resource names to preload");
+            return;
+        }
+
+        final long start = SystemClock.uptimeMillis();
+        int count = 0;
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                final int separatorIndex = line.indexOf(TYPE_SEPARATOR);
+                final ResourceType resourceType = separatorIndex > 0
+                        ? ResourceType.fromType(line.substring(0, separatorIndex))
+                        : null;
+                if (resourceType == null) {
+                    continue;
+                }
+                final String name = line.substring(separatorIndex + 1);
+                //noinspection ConstantConditions
+                if (identifiers.get(resourceType).containsKey(name)) {
+                    continue; // Already looked up by a caller.
+                }
+                //noinspection ConstantConditions
+                preloadedIdentifiers.get(resourceType).put(name,
+                        getResources().getIdentifier(name, resourceType.getType(), context.getPackageName()));
+                count++;
+            }
+        } catch (IOException ex) {
+            Logger.printInfo(() -> "Failed to read saved resource names", ex);
+        }
+        final int resourceCount = count;
+        final long elapsed = SystemClock.uptimeMillis() - start;
+        Logger.printDebug(() -> "Preloaded " + resourceCount + " resource identifiers in " + elapsed + "ms");
+    }
+
+    private static void scheduleSave() {
+        if (saveScheduled.compareAndSet(false, true)) {
+            runOnMainThreadDelayed(() -> runOnBackgroundThread(BackgroundLane.HOUSEKEEPING,
+                    ResourceUtils::saveNames), SAVE_DELAY_MILLISECONDS);
+        }
+    }
+
+    /**
+     * Saves the names looked up in the current session, and the preloaded names not yet used.
+     */
+    private static void saveNames() {
+        saveScheduled.set(false);
+        printLookupStatistics();
+
+        final Context context = getContext();
+        if (context == null) {
+            Logger.printException(() -> "Cannot save resource names, context is null");
+            return;
+        }
+        Set<String> lines = new LinkedHashSet<>();
+        addNames(lines, identifiers);
+        addNames(lines, preloadedIdentifiers);
+
+        File file = new File(context.getCacheDir(), RESOURCE_NAMES_FILE_NAME);
+        // Write to a temporary file, so a partially written file is never read.
+        File temporaryFile = new File(context.getCacheDir(), RESOURCE_NAMES_FILE_NAME + ".tmp");
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(temporaryFile), StandardCharsets.UTF_8)) {
+            for (String line : lines) {
+                writer.write(line);
+                writer.write('\n');
+            }
+        } catch (IOException ex) {
+            Logger.printInfo(() -> "Failed to save resource names", ex);
+            //noinspection ResultOfMethodCallIgnored
+            temporaryFile.delete();
+            return;
+        }
+        if (!temporaryFile.renameTo(file)) {
+            Logger.printInfo(() -> "Failed to save resource names");
+            //noinspection ResultOfMethodCallIgnored
+            temporaryFile.delete();
+        }
+    }
+
+    private static void addNames(@NonNull Set<String> lines,
+                                 @NonNull Map<ResourceType, Map<String, Integer>> typeIdentifiers) {
+        for (Map.Entry<ResourceType, Map<String, Integer>> entry : typeIdentifiers.entrySet()) {
+            final String type = entry.getKey().getType();
+            for (String name : entry.getValue().keySet()) {
+                if (lines.size() >= MAXIMUM_SAVED_NAMES) {
+                    return;
+                }
+                lines.add(type + TYPE_SEPARATOR + name);
+            }
+        }
+    }
+
+    private static void printLookupStatistics() {
+        Logger.printDebug(() -> "Looked up " + lookupCount.get() + " resource identifiers by name in "
+                + TimeUnit.NANOSECONDS.toMillis(lookupNanoseconds.get()) + "ms ("
+                + mainThreadLookupCount.get() + " on the main thread), and used "
+                + preloadedCount.get() + " preloaded identifiers");
     }
 
     public static int getAnimIdentifier(@NonNull String str) {
@@ -182,5 +393,15 @@ public class ResourceUtils extends Utils {
         public final String getType() {
             return type;
         }
+
+        @Nullable
+        static ResourceType fromType(@NonNull String type) {
+            for (ResourceType resourceType : values()) {
+                if (resourceType.type.equals(type)) {
+                    return resourceType;
+                }
+            }
+            return null;
+        }
     }
 }
@@ -1,29 +1,42 @@
 package app.kitsune.integrations.shared.utils;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
 /**
  * Text pattern searching using a prefix tree (trie).
+ * <p>
+ * Any {@link CharSequence} can be searched, such as a {@link StringBuilder},
+ * without first copying the characters to a new String.
+ * <p>
+ * If case insensitive, then characters are compared using simple case folding.
  */
 public final class StringTrieSearch extends TrieSearch<String> {
 
     private static final class StringTrieNode extends TrieNode<String> {
-        StringTrieNode() {
+        private final boolean caseInsensitive;
+
+        StringTrieNode(boolean caseInsensitive) {
             super();
+            this.caseInsensitive = caseInsensitive;
         }
 
-        StringTrieNode(char nodeCharacterValue) {
+        StringTrieNode(char nodeCharacterValue, boolean caseInsensitive) {
             super(nodeCharacterValue);
+            this.caseInsensitive = caseInsensitive;
         }
 
         @Override
         TrieNode<String> createNode(char nodeValue) {
-            return new StringTrieNode(nodeValue);
+            return new StringTrieNode(nodeValue, caseInsensitive);
         }
 
         @Override
-        char getCharValue(String text, int index) {
-            return text.charAt(index);
+        public char getCharValue(String text, int index) {
+            final char value = text.charAt(index);
+            return caseInsensitive
+                    ? foldCase(value)
+                    : value;
         }
 
         @Override
@@ -32,7 +45,88 @@ public final class StringTrieSearch extends TrieSearch<String> {
         }
     }
 
+    /**
+     * Reads the characters of a CharSequence that is not a String.
+     */
+    private static final class CharSequenceReader implements SearchTextReader<CharSequence, String> {
+        private final boolean caseInsensitive;
+
+        CharSequenceReader(boolean caseInsensitive) {
+            this.caseInsensitive = caseInsensitive;
+        }
+
+        @Override
+        public char getCharValue(CharSequence text, int index) {
+            final char value = text.charAt(index);
+            return caseInsensitive
+                    ? foldCase(value)
+                    : value;
+        }
+
+        @Override
+        public String toPatternType(CharSequence text) {
+            return text.toString();
+        }
+    }
+
+    private static final CharSequenceReader CHAR_SEQUENCE_READER = new CharSequenceReader(false);
+    private static final CharSequenceReader CASE_INSENSITIVE_CHAR_SEQUENCE_READER = new CharSequenceReader(true);
+
+    /**
+     * Simple case folding of a single character. Surrogate pairs are not folded.
+     */
+    private static char foldCase(char value) {
+        if (value < 0x80) { // ASCII.
+            return (value >= 'A' && value <= 'Z')
+                    ? (char) (value + ('a' - 'A'))
+                    : value;
+        }
+        return Character.toLowerCase(Character.toUpperCase(value));
+    }
+
+    private final CharSequenceReader charSequenceReader;
+
     public StringTrieSearch(@NonNull String... patterns) {
-        super(new StringTrieNode(), patterns);
+        this(false, patterns);
+    }
+
+    /**
+     * @param caseInsensitive If patterns match regardless of letter case.
+     */
+    public StringTrieSearch(boolean caseInsensitive, @NonNull String... patterns) {
+        super(new StringTrieNode(caseInsensitive), patterns);
+        charSequenceReader = caseInsensitive
+                ? CASE_INSENSITIVE_CHAR_SEQUENCE_READER
+                : CHAR_SEQUENCE_READER;
+    }
+
+    public boolean matches(@NonNull CharSequence textToSearch) {
+        return matches(textToSearch, 0, textToSearch.length(), null);
+    }
+
+    public boolean matches(@NonNull CharSequence textToSearch, @Nullable Object callbackParameter) {
+        return matches(textToSearch, 0, textToSearch.length(), callbackParameter);
+    }
+
+    /**
+     * Searches through a CharSequence without creating a copy of the text.
+     * The text is converted to a String only if a pattern is matched and a callback is called.
+     *
+     * @param textToSearch      Text to search through. Must not be modified while searching.
+     * @param startIndex        Index to start searching, inclusive value.
+     * @param endIndex          Index to stop matching, exclusive value.
+     * @param callbackParameter Optional parameter passed to the callbacks.
+     * @return If any pattern matched, and it's callback halted searching.
+     */
+    public boolean matches(@NonNull CharSequence textToSearch, int startIndex, int endIndex,
+                           @Nullable Object callbackParameter) {
+        if (textToSearch instanceof String) {
+            return matches((String) textToSearch, startIndex, endIndex, callbackParameter);
+        }
+        if (endIndex > textToSearch.length()) {
+            throw new IllegalArgumentException("endIndex: " + endIndex
+                    + " is greater than texToSearchLength: " + textToSearch.length());
+        }
+        return matches(charSequenceReader, textToSearch, startIndex, endIndex, callbackParameter);
     }
 }
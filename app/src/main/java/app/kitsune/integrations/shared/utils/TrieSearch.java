@@ -4,6 +4,7 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
@@ -11,6 +12,10 @@ import java.util.Objects;
 /**
  * Searches for a group of different patterns using a trie (prefix tree).
  * Can significantly speed up searching for multiple patterns.
+ * <p>
+ * Patterns are added to the prefix tree, and on the first search the tree is compiled
+ * into an Aho-Corasick automaton so searching is linear in the length of the searched text.
+ * Adding more patterns after searching is allowed, but causes the automaton to be compiled again.
  */
 public abstract class TrieSearch<T> {
 
@@ -52,23 +57,35 @@ public abstract class TrieSearch<T> {
             this.patternLength = patternLength;
             this.callback = callback;
         }
+    }
 
-        boolean matches(TrieNode<T> enclosingNode, // Used only for the get character method.
-                        T searchText, int searchTextLength, int searchTextIndex, Object callbackParameter) {
-            if (searchTextLength - searchTextIndex < patternLength - patternStartIndex) {
-                return false; // Remaining search text is shorter than the remaining leaf pattern and they cannot match.
-            }
-            for (int i = searchTextIndex, j = patternStartIndex; j < patternLength; i++, j++) {
-                if (enclosingNode.getCharValue(searchText, i) != enclosingNode.getCharValue(pattern, j)) {
-                    return false;
-                }
-            }
-            return callback == null || callback.patternMatched(searchText,
-                    searchTextIndex - patternStartIndex, patternLength, callbackParameter);
-        }
+    /**
+     * Reads the characters of a searched text,
+     * where the text is not necessarily the same type as the patterns.
+     *
+     * @param <S> Type of the searched text.
+     * @param <T> Type of the patterns.
+     */
+    interface SearchTextReader<S, T> {
+        char getCharValue(S text, int index);
+
+        /**
+         * Converts the searched text to the pattern type, so it can be passed to the callbacks.
+         * Only called if a pattern is matched.
+         */
+        T toPatternType(S text);
     }
 
-    static abstract class TrieNode<T> {
+    static abstract class TrieNode<T> implements SearchTextReader<T, T> {
+        /**
+         * Java cannot create an array of a generic type.
+         * The array only ever holds nodes of the same type parameter, so the unchecked cast is safe.
+         */
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private static <T> TrieNode<T>[] newNodeArray(int length) {
+            return new TrieNode[length];
+        }
+
         /**
          * Dummy value used for root node. Value can be anything as it's never referenced.
          */
@@ -151,8 +168,7 @@ public abstract class TrieSearch<T> {
                 // Reached end of the graph and a leaf exist.
                 // Recursively call back into this method and push the existing leaf down 1 level.
                 if (children != null) throw new IllegalStateException();
-                //noinspection unchecked
-                children = new TrieNode[1];
+                children = newNodeArray(1);
                 TrieCompressedPath<T> temp = leaf;
                 leaf = null;
                 addPattern(temp.pattern, temp.patternStartIndex, temp.patternLength, temp.callback);
@@ -182,8 +198,7 @@ public abstract class TrieSearch<T> {
             int replacementArraySize = Objects.requireNonNull(children).length;
             while (true) {
                 replacementArraySize += CHILDREN_ARRAY_INCREASE_SIZE_INCREMENT;
-                //noinspection unchecked
-                TrieNode<T>[] replacement = new TrieNode[replacementArraySize];
+                TrieNode<T>[] replacement = newNodeArray(replacementArraySize);
                 addNodeToArray(replacement, child);
                 boolean collision = false;
                 for (TrieNode<T> existingChild : children) {
@@ -216,89 +231,380 @@ public abstract class TrieSearch<T> {
         }
 
         /**
-         * This method is static and uses a loop to avoid all recursion.
-         * This is done for performance since the JVM does not optimize tail recursion.
+         * Gives an approximate memory usage.
          *
-         * @param startNode          Node to start the search from.
-         * @param searchText         Text to search for patterns in.
-         * @param searchTextIndex    Start index, inclusive.
-         * @param searchTextEndIndex End index, exclusive.
-         * @return If any pattern matches, and it's associated callback halted the search.
+         * @return Estimated number of memory pointers used, starting from this node and including all children.
          */
-        private static <T> boolean matches(final TrieNode<T> startNode, final T searchText,
-                                           int searchTextIndex, final int searchTextEndIndex,
-                                           final Object callbackParameter) {
-            TrieNode<T> node = startNode;
-            int currentMatchLength = 0;
+        private int estimatedNumberOfPointersUsed() {
+            int numberOfPointers = 4; // Number of fields in this class.
+            if (leaf != null) {
+                numberOfPointers += 4; // Number of fields in leaf node.
+            }
+            if (endOfPatternCallback != null) {
+                numberOfPointers += endOfPatternCallback.size();
+            }
+            if (children != null) {
+                numberOfPointers += children.length;
+                for (TrieNode<T> child : children) {
+                    if (child != null) {
+                        numberOfPointers += child.estimatedNumberOfPointersUsed();
+                    }
+                }
+            }
+            return numberOfPointers;
+        }
 
-            while (true) {
-                TrieCompressedPath<T> leaf = node.leaf;
-                if (leaf != null && leaf.matches(startNode, searchText, searchTextEndIndex, searchTextIndex, callbackParameter)) {
-                    return true; // Leaf exists and it matched the search text.
+        abstract TrieNode<T> createNode(char nodeValue);
+
+        @Override
+        public abstract char getCharValue(T text, int index);
+
+        @Override
+        public final T toPatternType(T text) {
+            return text;
+        }
+
+        abstract int getTextLength(T text);
+    }
+
+    /**
+     * Aho-Corasick automaton compiled from the prefix tree.
+     * <p>
+     * Each state is a node of the fully expanded tree (compressed leaf paths are expanded into
+     * individual states), and each state has a failure link that points to the state representing the
+     * longest proper suffix of the current state that is also a prefix of some pattern.
+     * When the next character of the search text has no transition, the failure links are followed
+     * instead of restarting the search at the next start index.
+     * <p>
+     * This gives a search time of O(n + m) where n is the length of the search text
+     * and m is the number of matches, and every character of the search text is read exactly once.
+     * Without this, restarting the tree search at every index of the text is O(n * d) where d is the
+     * depth of the tree, which is substantial when searching large proto buffers using long patterns.
+     * <p>
+     * Transitions use the same perfect hashing as {@link TrieNode#children},
+     * but all states are flattened into arrays to reduce memory and improve cache locality.
+     * <p>
+     * Instances are immutable and can be used by multiple threads at the same time.
+     */
+    private static final class TrieAutomaton<T> {
+        /**
+         * Java cannot create an array of a generic type.
+         * The arrays only ever hold callbacks of the same type parameter, so the unchecked casts are safe.
+         */
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private static <T> TriePatternMatchedCallback<T>[] newCallbackArray(int length) {
+            return new TriePatternMatchedCallback[length];
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private static <T> TriePatternMatchedCallback<T>[][] newCallbackTable(int length) {
+            return new TriePatternMatchedCallback[length][];
+        }
+
+        private static final int ROOT_STATE = 0;
+        /**
+         * Indicates no transition exists.
+         */
+        private static final int NO_STATE = -1;
+
+        private static final char[] EMPTY_CHARACTERS = new char[0];
+        private static final int[] EMPTY_STATES = new int[0];
+
+        /**
+         * Mutable state used only while compiling.
+         */
+        private static final class CompilingState<T> {
+            final int depth;
+            char[] characters = EMPTY_CHARACTERS;
+            int[] targets = EMPTY_STATES;
+            int numberOfTransitions;
+            @Nullable
+            List<TriePatternMatchedCallback<T>> callbacks;
+
+            CompilingState(int depth) {
+                this.depth = depth;
+            }
+
+            void addTransition(char character, int targetState) {
+                if (numberOfTransitions == characters.length) {
+                    final int replacementLength = Math.max(2, numberOfTransitions * 2);
+                    characters = Arrays.copyOf(characters, replacementLength);
+                    targets = Arrays.copyOf(targets, replacementLength);
                 }
-                List<TriePatternMatchedCallback<T>> endOfPatternCallback = node.endOfPatternCallback;
-                if (endOfPatternCallback != null) {
-                    final int matchStartIndex = searchTextIndex - currentMatchLength;
-                    for (@Nullable TriePatternMatchedCallback<T> callback : endOfPatternCallback) {
-                        if (callback == null) {
-                            return true; // No callback and all matches are valid.
-                        }
-                        if (callback.patternMatched(searchText, matchStartIndex, currentMatchLength, callbackParameter)) {
-                            return true; // Callback confirmed the match.
-                        }
+                characters[numberOfTransitions] = character;
+                targets[numberOfTransitions] = targetState;
+                numberOfTransitions++;
+            }
+
+            int findTransition(char character) {
+                for (int i = 0; i < numberOfTransitions; i++) {
+                    if (characters[i] == character) {
+                        return targets[i];
                     }
                 }
-                TrieNode<T>[] children = node.children;
-                if (children == null) {
-                    return false; // Reached a graph end point and there's no further patterns to search.
+                return NO_STATE;
+            }
+
+            void addCallback(@Nullable TriePatternMatchedCallback<T> callback) {
+                if (callbacks == null) {
+                    callbacks = new ArrayList<>(1);
                 }
-                if (searchTextIndex == searchTextEndIndex) {
-                    return false; // Reached end of the search text and found no matches.
+                callbacks.add(callback);
+            }
+        }
+
+        /**
+         * Start index of each state's transition hash table,
+         * inside {@link #transitionCharacters} and {@link #transitionStates}.
+         */
+        private final int[] transitionTableStart;
+        /**
+         * Size of each state's transition hash table. Zero if the state has no transitions.
+         */
+        private final int[] transitionTableSize;
+        private final char[] transitionCharacters;
+        /**
+         * Transition target states, or {@link #NO_STATE} for unused hash table entries.
+         */
+        private final int[] transitionStates;
+
+        private final int[] failureStates;
+        /**
+         * The nearest state along the failure links that has callbacks,
+         * or {@link #ROOT_STATE} if none exist (the root state never has callbacks).
+         */
+        private final int[] outputStates;
+        /**
+         * Depth of each state, which is also the length of all patterns that end at the state.
+         */
+        private final int[] stateDepths;
+        /**
+         * Callbacks for all patterns that end at each state, or null if no patterns end at the state.
+         * A null callback indicates to always accept a pattern match.
+         */
+        private final TriePatternMatchedCallback<T>[][] stateCallbacks;
+
+        private TrieAutomaton(TrieNode<T> root) {
+            List<CompilingState<T>> states = new ArrayList<>();
+            states.add(new CompilingState<>(0));
+            addNodeStates(root, ROOT_STATE, states);
+
+            final int numberOfStates = states.size();
+            failureStates = new int[numberOfStates];
+            outputStates = new int[numberOfStates];
+            stateDepths = new int[numberOfStates];
+            stateCallbacks = newCallbackTable(numberOfStates);
+
+            // Breadth first, so the failure state of each state is always resolved before it's needed.
+            int[] queue = new int[numberOfStates];
+            int queueHead = 0;
+            int queueTail = 0;
+            queue[queueTail++] = ROOT_STATE;
+            while (queueHead < queueTail) {
+                final int state = queue[queueHead++];
+                CompilingState<T> compilingState = states.get(state);
+                for (int i = 0; i < compilingState.numberOfTransitions; i++) {
+                    final char character = compilingState.characters[i];
+                    final int targetState = compilingState.targets[i];
+                    queue[queueTail++] = targetState;
+
+                    int failureState = ROOT_STATE;
+                    if (state != ROOT_STATE) {
+                        int fallback = failureStates[state];
+                        while (true) {
+                            final int fallbackTarget = states.get(fallback).findTransition(character);
+                            if (fallbackTarget != NO_STATE) {
+                                failureState = fallbackTarget;
+                                break;
+                            }
+                            if (fallback == ROOT_STATE) {
+                                break;
+                            }
+                            fallback = failureStates[fallback];
+                        }
+                    }
+                    failureStates[targetState] = failureState;
+                    outputStates[targetState] = states.get(failureState).callbacks != null
+                            ? failureState
+                            : outputStates[failureState];
                 }
+            }
 
-                // Use the start node to reduce VM method lookup, since all nodes are the same class type.
-                final char character = startNode.getCharValue(searchText, searchTextIndex);
-                final int arrayIndex = hashIndexForTableSize(children.length, character);
-                TrieNode<T> child = children[arrayIndex];
-                if (child == null || child.nodeValue != character) {
-                    return false;
+            transitionTableStart = new int[numberOfStates];
+            transitionTableSize = new int[numberOfStates];
+            int totalTableSize = 0;
+            for (int state = 0; state < numberOfStates; state++) {
+                CompilingState<T> compilingState = states.get(state);
+                stateDepths[state] = compilingState.depth;
+                if (compilingState.callbacks != null) {
+                    stateCallbacks[state] = compilingState.callbacks.toArray(
+                            newCallbackArray(compilingState.callbacks.size()));
                 }
+                final int tableSize = perfectHashTableSize(compilingState);
+                transitionTableStart[state] = totalTableSize;
+                transitionTableSize[state] = tableSize;
+                totalTableSize += tableSize;
+            }
 
-                node = child;
-                searchTextIndex++;
-                currentMatchLength++;
+            transitionCharacters = new char[totalTableSize];
+            transitionStates = new int[totalTableSize];
+            Arrays.fill(transitionStates, NO_STATE);
+            for (int state = 0; state < numberOfStates; state++) {
+                CompilingState<T> compilingState = states.get(state);
+                for (int i = 0; i < compilingState.numberOfTransitions; i++) {
+                    final char character = compilingState.characters[i];
+                    final int index = transitionTableStart[state]
+                            + TrieNode.hashIndexForTableSize(transitionTableSize[state], character);
+                    transitionCharacters[index] = character;
+                    transitionStates[index] = compilingState.targets[i];
+                }
             }
         }
 
         /**
-         * Gives an approximate memory usage.
-         *
-         * @return Estimated number of memory pointers used, starting from this node and including all children.
+         * Recursively adds states for all children of a tree node.
          */
-        private int estimatedNumberOfPointersUsed() {
-            int numberOfPointers = 4; // Number of fields in this class.
-            if (leaf != null) {
-                numberOfPointers += 4; // Number of fields in leaf node.
+        private static <T> void addNodeStates(TrieNode<T> node, int nodeState, List<CompilingState<T>> states) {
+            CompilingState<T> compilingState = states.get(nodeState);
+            if (node.endOfPatternCallback != null) {
+                for (TriePatternMatchedCallback<T> callback : node.endOfPatternCallback) {
+                    compilingState.addCallback(callback);
+                }
             }
-            if (endOfPatternCallback != null) {
-                numberOfPointers += endOfPatternCallback.size();
+
+            TrieCompressedPath<T> leaf = node.leaf;
+            if (leaf != null) {
+                // Expand the compressed path into individual states.
+                CompilingState<T> pathState = compilingState;
+                for (int i = leaf.patternStartIndex; i < leaf.patternLength; i++) {
+                    final int nextState = states.size();
+                    CompilingState<T> next = new CompilingState<>(pathState.depth + 1);
+                    states.add(next);
+                    pathState.addTransition(node.getCharValue(leaf.pattern, i), nextState);
+                    pathState = next;
+                }
+                pathState.addCallback(leaf.callback);
             }
+
+            TrieNode<T>[] children = node.children;
             if (children != null) {
-                numberOfPointers += children.length;
                 for (TrieNode<T> child : children) {
                     if (child != null) {
-                        numberOfPointers += child.estimatedNumberOfPointersUsed();
+                        final int childState = states.size();
+                        states.add(new CompilingState<>(compilingState.depth + 1));
+                        compilingState.addTransition(child.nodeValue, childState);
+                        addNodeStates(child, childState, states);
                     }
                 }
             }
-            return numberOfPointers;
         }
 
-        abstract TrieNode<T> createNode(char nodeValue);
+        /**
+         * @return The smallest hash table size where every transition character hashes to a unique index.
+         */
+        private static int perfectHashTableSize(CompilingState<?> state) {
+            final int numberOfTransitions = state.numberOfTransitions;
+            if (numberOfTransitions == 0) {
+                return 0;
+            }
+            boolean[] used = new boolean[numberOfTransitions];
+            for (int tableSize = numberOfTransitions; ; tableSize++) {
+                if (used.length < tableSize) {
+                    used = new boolean[tableSize];
+                } else {
+                    Arrays.fill(used, false);
+                }
+                boolean collision = false;
+                for (int i = 0; i < numberOfTransitions; i++) {
+                    final int index = TrieNode.hashIndexForTableSize(tableSize, state.characters[i]);
+                    if (used[index]) {
+                        collision = true;
+                        break;
+                    }
+                    used[index] = true;
+                }
+                if (!collision) {
+                    return tableSize;
+                }
+            }
+        }
 
-        abstract char getCharValue(T text, int index);
+        private int nextState(int state, char character) {
+            final int tableSize = transitionTableSize[state];
+            if (tableSize == 0) {
+                return NO_STATE;
+            }
+            final int index = transitionTableStart[state] + TrieNode.hashIndexForTableSize(tableSize, character);
+            return transitionCharacters[index] == character
+                    ? transitionStates[index]
+                    : NO_STATE;
+        }
 
-        abstract int getTextLength(T text);
+        /**
+         * Patterns that end at the same search text index are reported from longest to shortest,
+         * and patterns are reported in order of where the pattern ends in the search text.
+         *
+         * @param reader             Reads the characters of the search text.
+         * @param searchText         Text to search for patterns in.
+         * @param searchTextIndex    Start index, inclusive.
+         * @param searchTextEndIndex End index, exclusive.
+         * @return If any pattern matches, and it's associated callback halted the search.
+         */
+        <S> boolean matches(final SearchTextReader<S, T> reader, final S searchText,
+                            final int searchTextIndex, final int searchTextEndIndex,
+                            final Object callbackParameter) {
+            final int[] failureStates = this.failureStates;
+            final int[] outputStates = this.outputStates;
+            final TriePatternMatchedCallback<T>[][] stateCallbacks = this.stateCallbacks;
+            T callbackSearchText = null;
+            int state = ROOT_STATE;
+
+            for (int i = searchTextIndex; i < searchTextEndIndex; i++) {
+                final char character = reader.getCharValue(searchText, i);
+                int next;
+                while ((next = nextState(state, character)) == NO_STATE && state != ROOT_STATE) {
+                    state = failureStates[state];
+                }
+                state = (next == NO_STATE) ? ROOT_STATE : next;
+
+                int outputState = (stateCallbacks[state] != null) ? state : outputStates[state];
+                while (outputState != ROOT_STATE) {
+                    final int matchLength = stateDepths[outputState];
+                    final int matchStartIndex = i + 1 - matchLength;
+                    if (callbackSearchText == null) {
+                        callbackSearchText = reader.toPatternType(searchText);
+                    }
+                    for (@Nullable TriePatternMatchedCallback<T> callback : stateCallbacks[outputState]) {
+                        if (callback == null) {
+                            return true; // No callback and all matches are valid.
+                        }
+                        if (callback.patternMatched(callbackSearchText, matchStartIndex, matchLength, callbackParameter)) {
+                            return true; // Callback confirmed the match.
+                        }
+                    }
+                    outputState = outputStates[outputState];
+                }
+            }
+
+            return false;
+        }
+
+        /**
+         * @return Estimated number of bytes used by this automaton.
+         */
+        private int estimatedNumberOfBytesUsed() {
+            final int numberOfBytesPerInt = 4;
+            final int numberOfStates = failureStates.length;
+            int numberOfBytes = numberOfBytesPerInt * 5 * numberOfStates; // Int arrays with 1 element per state.
+            numberOfBytes += numberOfBytesPerInt * numberOfStates; // State callback array pointers.
+            numberOfBytes += (Character.BYTES + numberOfBytesPerInt) * transitionStates.length;
+            for (TriePatternMatchedCallback<T>[] callbacks : stateCallbacks) {
+                if (callbacks != null) {
+                    numberOfBytes += numberOfBytesPerInt * callbacks.length;
+                }
+            }
+            return numberOfBytes;
+        }
     }
 
     /**
@@ -311,6 +617,12 @@ public abstract class TrieSearch<T> {
      */
     private final List<T> patterns = new ArrayList<>();
 
+    /**
+     * Automaton compiled from {@link #root}, or null if patterns were added since the last search.
+     */
+    @Nullable
+    private volatile TrieAutomaton<T> automaton;
+
     @SafeVarargs
     TrieSearch(@NonNull TrieNode<T> root, @NonNull T... patterns) {
         this.root = Objects.requireNonNull(root);
@@ -341,11 +653,29 @@ public abstract class TrieSearch<T> {
         addPattern(pattern, root.getTextLength(pattern), Objects.requireNonNull(callback));
     }
 
-    void addPattern(@NonNull T pattern, int patternLength, @Nullable TriePatternMatchedCallback<T> callback) {
+    synchronized void addPattern(@NonNull T pattern, int patternLength, @Nullable TriePatternMatchedCallback<T> callback) {
         if (patternLength == 0) return; // Nothing to match
 
         patterns.add(pattern);
         root.addPattern(pattern, 0, patternLength, callback);
+        automaton = null; // Must compile again.
+    }
+
+    private TrieAutomaton<T> getAutomaton() {
+        TrieAutomaton<T> compiled = automaton;
+        if (compiled == null) {
+            compiled = compileAutomaton(); // Lazy load.
+        }
+        return compiled;
+    }
+
+    private synchronized TrieAutomaton<T> compileAutomaton() {
+        TrieAutomaton<T> compiled = automaton;
+        if (compiled == null) { // Check again, as another thread may have already compiled.
+            compiled = new TrieAutomaton<>(root);
+            automaton = compiled; // Must set after initialization finishes.
+        }
+        return compiled;
     }
 
     public final boolean matches(@NonNull T textToSearch) {
@@ -367,6 +697,9 @@ public abstract class TrieSearch<T> {
 
     /**
      * Searches through text, looking for any substring that matches any pattern in this tree.
+     * <p>
+     * Callbacks are called in order of where each match ends in the text,
+     * and for matches that end at the same index the longest pattern is called first.
      *
      * @param textToSearch      Text to search through.
      * @param startIndex        Index to start searching, inclusive value.
@@ -387,10 +720,25 @@ public abstract class TrieSearch<T> {
         if (patterns.isEmpty()) {
             return false; // No patterns were added.
         }
-        for (int i = startIndex; i < endIndex; i++) {
-            if (TrieNode.matches(root, textToSearch, i, endIndex, callbackParameter)) return true;
+        return getAutomaton().matches(root, textToSearch, startIndex, endIndex, callbackParameter);
+    }
+
+    /**
+     * Searches through text that is not the same type as the patterns.
+     *
+     * @param reader            Reads the characters of the text to search.
+     * @param textToSearch      Text to search through.
+     * @param startIndex        Index to start searching, inclusive value.
+     * @param endIndex          Index to stop matching, exclusive value.
+     * @param callbackParameter Optional parameter passed to the callbacks.
+     * @return If any pattern matched, and it's callback halted searching.
+     */
+    <S> boolean matches(@NonNull SearchTextReader<S, T> reader, @NonNull S textToSearch,
+                        int startIndex, int endIndex, @Nullable Object callbackParameter) {
+        if (patterns.isEmpty()) {
+            return false; // No patterns were added.
         }
-        return false;
+        return getAutomaton().matches(reader, textToSearch, startIndex, endIndex, callbackParameter);
     }
 
     /**
@@ -403,7 +751,12 @@ public abstract class TrieSearch<T> {
         // Assume the device has less than 32GB of ram (and can use pointer compression),
         // or the device is 32-bit.
         final int numberOfBytesPerPointer = 4;
-        return (int) Math.ceil((numberOfBytesPerPointer * root.estimatedNumberOfPointersUsed()) / 1024.0);
+        int numberOfBytes = numberOfBytesPerPointer * root.estimatedNumberOfPointersUsed();
+        TrieAutomaton<T> compiled = automaton;
+        if (compiled != null) {
+            numberOfBytes += compiled.estimatedNumberOfBytesUsed();
+        }
+        return (int) Math.ceil(numberOfBytes / 1024.0);
     }
 
     public int numberOfPatterns() {
@@ -38,9 +38,6 @@ import java.util.SortedMap;
 import java.util.TreeMap;
 import java.util.concurrent.Callable;
 import java.util.concurrent.Future;
-import java.util.concurrent.SynchronousQueue;
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
 
 import app.kitsune.integrations.shared.settings.BooleanSetting;
 import kotlin.text.Regex;
@@ -117,30 +114,31 @@ public class Utils {
     }
 
     /**
-     * General purpose pool for network calls and other background tasks.
-     * All tasks run at max thread priority.
+     * Runs the task using {@link BackgroundLane#USER_VISIBLE}.
      */
-    private static final ThreadPoolExecutor backgroundThreadPool = new ThreadPoolExecutor(
-            3, // 3 threads always ready to go
-            Integer.MAX_VALUE,
-            10, // For any threads over the minimum, keep them alive 10 seconds after they go idle
-            TimeUnit.SECONDS,
-            new SynchronousQueue<>(),
-            r -> { // ThreadFactory
-                Thread t = new Thread(r);
-                t.setPriority(Thread.MAX_PRIORITY); // run at max priority
-                return t;
-            });
-
     public static void runOnBackgroundThread(@NonNull Runnable task) {
-        backgroundThreadPool.execute(task);
+        runOnBackgroundThread(BackgroundLane.USER_VISIBLE, task);
+    }
+
+    public static void runOnBackgroundThread(@NonNull BackgroundLane lane, @NonNull Runnable task) {
+        lane.run(task);
     }
 
+    /**
+     * Runs the task using {@link BackgroundLane#USER_VISIBLE}.
+     */
     @NonNull
     public static <T> Future<T> submitOnBackgroundThread(@NonNull Callable<T> call) {
-        return backgroundThreadPool.submit(call);
+        return submitOnBackgroundThread(BackgroundLane.USER_VISIBLE, call);
     }
 
+    /**
+     * @return A future that can be cancelled, and if cancelled before starting the task is never run.
+     */
+    @NonNull
+    public static <T> Future<T> submitOnBackgroundThread(@NonNull BackgroundLane lane, @NonNull Callable<T> call) {
+        return lane.submit(call);
+    }
 
     public static boolean containsAny(@NonNull String value, @NonNull String... targets) {
         return indexOfFirstFound(value, targets) >= 0;
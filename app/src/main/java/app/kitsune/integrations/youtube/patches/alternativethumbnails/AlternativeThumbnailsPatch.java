@@ -24,7 +24,6 @@ import java.net.URL;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.concurrent.ExecutionException;
 import java.util.regex.Pattern;
 
 import app.kitsune.integrations.shared.settings.Setting;
@@ -603,30 +602,30 @@ public final class AlternativeThumbnailsPatch {
 
             boolean imageFileFound;
             try {
-                // This hooked code is running on a low priority thread, and it's slightly faster
-                // to run the url connection thru the integrations thread pool which runs at the highest priority.
+                // This hooked code is already running on a background image loading thread.
+                // The connection is not run on a background lane, so slow verifications during a fast scroll
+                // do not delay the requests of the current video, and a verification is never rejected.
                 final long start = System.currentTimeMillis();
-                imageFileFound = Utils.submitOnBackgroundThread(() -> {
-                    final int connectionTimeoutMillis = 10000; // 10 seconds.
-                    HttpURLConnection connection = (HttpURLConnection) new URL(imageUrl).openConnection();
-                    connection.setConnectTimeout(connectionTimeoutMillis);
-                    connection.setReadTimeout(connectionTimeoutMillis);
-                    connection.setRequestMethod("HEAD");
-                    // Even with a HEAD request, the response is the same size as a full GET request.
-                    // Using an empty range fixes this.
-                    connection.setRequestProperty("Range", "bytes=0-0");
-                    final int responseCode = connection.getResponseCode();
-                    if (responseCode == HttpURLConnection.HTTP_PARTIAL) {
-                        String contentType = connection.getContentType();
-                        return (contentType != null && contentType.startsWith("image"));
-                    }
+                final int connectionTimeoutMillis = 10000; // 10 seconds.
+                HttpURLConnection connection = (HttpURLConnection) new URL(imageUrl).openConnection();
+                connection.setConnectTimeout(connectionTimeoutMillis);
+                connection.setReadTimeout(connectionTimeoutMillis);
+                connection.setRequestMethod("HEAD");
+                // Even with a HEAD request, the response is the same size as a full GET request.
+                // Using an empty range fixes this.
+                connection.setRequestProperty("Range", "bytes=0-0");
+                final int responseCode = connection.getResponseCode();
+                if (responseCode == HttpURLConnection.HTTP_PARTIAL) {
+                    String contentType = connection.getContentType();
+                    imageFileFound = (contentType != null && contentType.startsWith("image"));
+                } else {
                     if (responseCode != HttpURLConnection.HTTP_NOT_FOUND) {
                         Logger.printDebug(() -> "Unexpected response code: " + responseCode + " for url: " + imageUrl);
                     }
-                    return false;
-                }).get();
+                    imageFileFound = false;
+                }
                 Logger.printDebug(() -> "Verification took: " + (System.currentTimeMillis() - start) + "ms for image: " + imageUrl);
-            } catch (ExecutionException | InterruptedException ex) {
+            } catch (IOException ex) {
                 Logger.printInfo(() -> "Could not verify alt url: " + imageUrl, ex);
                 imageFileFound = false;
             }
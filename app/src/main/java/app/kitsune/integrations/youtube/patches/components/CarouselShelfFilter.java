@@ -10,6 +10,7 @@ import app.kitsune.integrations.shared.patches.components.StringFilterGroup;
 import app.kitsune.integrations.shared.utils.Logger;
 import app.kitsune.integrations.shared.utils.StringTrieSearch;
 import app.kitsune.integrations.youtube.settings.Settings;
+import app.kitsune.integrations.youtube.shared.NavigationBar;
 import app.kitsune.integrations.youtube.shared.NavigationBar.NavigationButton;
 import app.kitsune.integrations.youtube.shared.RootView;
 
@@ -55,7 +56,7 @@ public final class CarouselShelfFilter extends Filter {
         addPathCallbacks(carouselShelf, horizontalShelf);
     }
 
-    private static boolean hideShelves(boolean playerActive, boolean searchBarActive, NavigationButton selectedNavButton, String browseId) {
+    private static boolean hideShelves(boolean playerActive, boolean searchBarActive, NavigationBar.NavigationState navigationState, String browseId) {
         // Must check player type first, as search bar can be active behind the player.
         if (playerActive) {
             return false;
@@ -64,6 +65,8 @@ public final class CarouselShelfFilter extends Filter {
         if (searchBarActive) {
             return true;
         }
+        // If the state is unsettled, the last selected tab is used as the back button usually does not change tabs.
+        final NavigationButton selectedNavButton = navigationState.button;
         // Unknown tab, treat the same as home.
         if (selectedNavButton == null) {
             return true;
@@ -71,6 +74,11 @@ public final class CarouselShelfFilter extends Filter {
         return knownBrowseId.get().anyMatch(browseId::equals) || whitelistBrowseId.get().noneMatch(browseId::equals);
     }
 
+    @Override
+    public boolean isResultCacheable() {
+        return false; // Depends on the current navigation state.
+    }
+
     @Override
     public boolean isFiltered(String path, @Nullable String identifier, String allValue, byte[] protobufBufferArray,
                               StringFilterGroup matchedGroup, FilterContentType contentType, int contentIndex) {
@@ -79,14 +87,13 @@ public final class CarouselShelfFilter extends Filter {
         }
         final boolean playerActive = RootView.isPlayerActive();
         final boolean searchBarActive = RootView.isSearchBarActive();
-        final NavigationButton navigationButton = NavigationButton.getSelectedNavigationButton();
-        final String navigation = navigationButton == null ? "null" : navigationButton.name();
+        final NavigationBar.NavigationState navigationState = NavigationBar.getNavigationState();
         final String browseId = RootView.getBrowseId();
-        final boolean hideShelves = matchedGroup != horizontalShelf || hideShelves(playerActive, searchBarActive, navigationButton, browseId);
+        final boolean hideShelves = matchedGroup != horizontalShelf || hideShelves(playerActive, searchBarActive, navigationState, browseId);
         if (contentIndex != 0) {
             return false;
         }
-        Logger.printDebug(() -> "hideShelves: " + hideShelves + "\nplayerActive: " + playerActive + "\nsearchBarActive: " + searchBarActive + "\nbrowseId: " + browseId + "\nnavigation: " + navigation);
+        Logger.printDebug(() -> "hideShelves: " + hideShelves + "\nplayerActive: " + playerActive + "\nsearchBarActive: " + searchBarActive + "\nbrowseId: " + browseId + "\nnavigation: " + navigationState);
         if (!hideShelves) {
             return false;
         }
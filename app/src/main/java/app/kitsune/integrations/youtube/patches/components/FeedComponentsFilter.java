@@ -3,6 +3,7 @@ package app.kitsune.integrations.youtube.patches.components;
 import androidx.annotation.Nullable;
 
 import app.kitsune.integrations.shared.patches.components.ByteArrayFilterGroup;
+import app.kitsune.integrations.shared.patches.components.ConversionContextClassifier;
 import app.kitsune.integrations.shared.patches.components.Filter;
 import app.kitsune.integrations.shared.patches.components.StringFilterGroup;
 import app.kitsune.integrations.shared.patches.components.StringFilterGroupList;
@@ -35,7 +36,9 @@ public final class FeedComponentsFilter extends Filter {
                     "cell_description_body",
                     "channel_profile"
             );
-    private static final StringTrieSearch mixPlaylistsContextExceptions = new StringTrieSearch();
+    private static final long mixPlaylistsContextExceptions =
+            ConversionContextClassifier.registerPattern("V.ED") // playlist browse id
+                    | ConversionContextClassifier.registerPattern("java.lang.ref.WeakReference");
 
     private final StringFilterGroup channelProfile;
     private final StringFilterGroup communityPosts;
@@ -52,10 +55,6 @@ public final class FeedComponentsFilter extends Filter {
                 CONVERSATION_CONTEXT_FEED_IDENTIFIER,
                 CONVERSATION_CONTEXT_SUBSCRIPTIONS_IDENTIFIER
         );
-        mixPlaylistsContextExceptions.addPatterns(
-                "V.ED", // playlist browse id
-                "java.lang.ref.WeakReference"
-        );
 
         // Identifiers.
 
@@ -233,7 +232,12 @@ public final class FeedComponentsFilter extends Filter {
         return bytes != null
                 && mixPlaylists.check(bytes).isFiltered()
                 && !mixPlaylistsBufferExceptions.check(bytes).isFiltered()
-                && !mixPlaylistsContextExceptions.matches(conversionContext.toString());
+                && !ConversionContextClassifier.containsAny(conversionContext, mixPlaylistsContextExceptions);
+    }
+
+    @Override
+    public boolean usesAllValue() {
+        return true;
     }
 
     @Override
@@ -70,6 +70,16 @@ public final class FeedVideoFilter extends Filter {
         );
     }
 
+    @Override
+    public boolean isResultCacheable() {
+        return false; // Depends on the current navigation state.
+    }
+
+    @Override
+    public boolean usesAllValue() {
+        return true;
+    }
+
     @Override
     public boolean isFiltered(String path, @Nullable String identifier, String allValue, byte[] protobufBufferArray,
                               StringFilterGroup matchedGroup, FilterContentType contentType, int contentIndex) {
@@ -1,12 +1,7 @@
 package app.kitsune.integrations.youtube.patches.components;
 
-import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
-import java.util.Objects;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
 import app.kitsune.integrations.shared.patches.components.Filter;
 import app.kitsune.integrations.shared.patches.components.StringFilterGroup;
 import app.kitsune.integrations.youtube.settings.Settings;
@@ -47,7 +42,8 @@ public final class FeedVideoViewsFilter extends Filter {
             return hideSearch;
         }
 
-        NavigationBar.NavigationButton selectedNavButton = NavigationBar.NavigationButton.getSelectedNavigationButton();
+        // If the state is unsettled, the last selected tab is used as the back button usually does not change tabs.
+        NavigationBar.NavigationButton selectedNavButton = NavigationBar.getNavigationState().button;
         if (selectedNavButton == null) {
             return hideHome; // Unknown tab, treat the same as home.
         } else if (selectedNavButton == NavigationBar.NavigationButton.HOME) {
@@ -59,6 +55,11 @@ public final class FeedVideoViewsFilter extends Filter {
         return false;
     }
 
+    @Override
+    public boolean isResultCacheable() {
+        return false; // Depends on the current navigation state.
+    }
+
     @Override
     public boolean isFiltered(String path, @Nullable String identifier, String allValue, byte[] protobufBufferArray,
                               StringFilterGroup matchedGroup, FilterContentType contentType, int contentIndex) {
@@ -70,111 +71,16 @@ public final class FeedVideoViewsFilter extends Filter {
         return false;
     }
 
-    private final String ARROW = " -> ";
-    private final String VIEWS = "views";
-    private final String[] parts = Settings.HIDE_VIDEO_VIEW_COUNTS_MULTIPLIER.get().split("\\n");
-    private Pattern[] viewCountPatterns = null;
-
     /**
      * Hide videos based on views count
      */
-    private synchronized boolean filterByViews(byte[] protobufBufferArray) {
-        final String protobufString = new String(protobufBufferArray);
-        final long lessThan = Settings.HIDE_VIDEO_VIEW_COUNTS_LESS_THAN.get();
-        final long greaterThan = Settings.HIDE_VIDEO_VIEW_COUNTS_GREATER_THAN.get();
-
-        if (viewCountPatterns == null) {
-            viewCountPatterns = getViewCountPatterns(parts);
-        }
-
-        for (Pattern pattern : viewCountPatterns) {
-            final Matcher matcher = pattern.matcher(protobufString);
-            if (matcher.find()) {
-                String numString = Objects.requireNonNull(matcher.group(1));
-                double num = parseNumber(numString);
-                String multiplierKey = matcher.group(2);
-                long multiplierValue = getMultiplierValue(parts, multiplierKey);
-                return num * multiplierValue < lessThan || num * multiplierValue > greaterThan;
-            }
-        }
-
-        return false;
-    }
-
-    private synchronized double parseNumber(String numString) {
-        /**
-         * Some languages have comma (,) as a decimal separator.
-         * In order to detect those numbers as doubles in Java
-         * we convert commas (,) to dots (.).
-         * Unless we find a language that has commas used in
-         * a different manner, it should work.
-         */
-        numString = numString.replace(",", ".");
-
-        /**
-         * Some languages have dot (.) as a kilo separator.
-         * So we check with regex if there is a number with 3+
-         * digits after dot (.), we replace it with nothing
-         * to make Java understand the number as a whole.
-         */
-        if (numString.matches("\\d+\\.\\d{3,}")) {
-            numString = numString.replace(".", "");
-        }
-
-        return Double.parseDouble(numString);
-    }
-
-    private synchronized Pattern[] getViewCountPatterns(String[] parts) {
-        StringBuilder prefixPatternBuilder = new StringBuilder("(\\d+(?:[.,]\\d+)?)\\s?("); // LTR layout
-        StringBuilder secondPatternBuilder = new StringBuilder(); // RTL layout
-        StringBuilder suffixBuilder = getSuffixBuilder(parts, prefixPatternBuilder, secondPatternBuilder);
-
-        prefixPatternBuilder.deleteCharAt(prefixPatternBuilder.length() - 1); // Remove the trailing |
-        prefixPatternBuilder.append(")?\\s*");
-        prefixPatternBuilder.append(suffixBuilder.length() > 0 ? suffixBuilder.toString() : VIEWS);
-
-        secondPatternBuilder.deleteCharAt(secondPatternBuilder.length() - 1); // Remove the trailing |
-        secondPatternBuilder.append(")?");
-
-        final Pattern[] patterns = new Pattern[2];
-        patterns[0] = Pattern.compile(prefixPatternBuilder.toString());
-        patterns[1] = Pattern.compile(secondPatternBuilder.toString());
-
-        return patterns;
-    }
-
-    @NonNull
-    private synchronized StringBuilder getSuffixBuilder(String[] parts, StringBuilder prefixPatternBuilder, StringBuilder secondPatternBuilder) {
-        StringBuilder suffixBuilder = new StringBuilder();
-
-        for (String part : parts) {
-            final String[] pair = part.split(ARROW);
-            final String pair0 = pair[0].trim();
-            final String pair1 = pair[1].trim();
-
-            if (pair.length == 2 && !pair1.equals(VIEWS)) {
-                prefixPatternBuilder.append(pair0).append("|");
-            }
-
-            if (pair.length == 2 && pair1.equals(VIEWS)) {
-                suffixBuilder.append(pair0);
-                secondPatternBuilder.append(pair0).append("\\s*").append(prefixPatternBuilder);
-            }
-        }
-        return suffixBuilder;
-    }
-
-    private synchronized long getMultiplierValue(String[] parts, String multiplier) {
-        for (String part : parts) {
-            final String[] pair = part.split(ARROW);
-            final String pair0 = pair[0].trim();
-            final String pair1 = pair[1].trim();
-
-            if (pair.length == 2 && pair0.equals(multiplier) && !pair1.equals(VIEWS)) {
-                return Long.parseLong(pair[1].replaceAll("[^\\d]", ""));
-            }
+    private boolean filterByViews(byte[] protobufBufferArray) {
+        final double viewCount = ViewCountParser.getParser().findViewCount(protobufBufferArray);
+        if (viewCount == ViewCountParser.NOT_FOUND) {
+            return false;
         }
 
-        return 1L; // Default value if not found
+        return viewCount < Settings.HIDE_VIDEO_VIEW_COUNTS_LESS_THAN.get()
+                || viewCount > Settings.HIDE_VIDEO_VIEW_COUNTS_GREATER_THAN.get();
     }
 }
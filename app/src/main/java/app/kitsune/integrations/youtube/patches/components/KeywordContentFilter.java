@@ -15,11 +15,15 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicReference;
 
 import app.kitsune.integrations.shared.patches.components.Filter;
+import app.kitsune.integrations.shared.patches.components.ProtoBufferIndex;
 import app.kitsune.integrations.shared.patches.components.StringFilterGroup;
 import app.kitsune.integrations.shared.utils.ByteTrieSearch;
 import app.kitsune.integrations.shared.utils.Logger;
@@ -27,6 +31,7 @@ import app.kitsune.integrations.shared.utils.StringTrieSearch;
 import app.kitsune.integrations.shared.utils.TrieSearch;
 import app.kitsune.integrations.shared.utils.Utils;
 import app.kitsune.integrations.youtube.settings.Settings;
+import app.kitsune.integrations.youtube.shared.NavigationBar;
 import app.kitsune.integrations.youtube.shared.RootView;
 
 /**
@@ -97,6 +102,9 @@ public final class KeywordContentFilter extends Filter {
             "sans-serif"
     };
 
+    private static final byte[][] STRINGS_IN_EVERY_BUFFER_BYTES =
+            ByteTrieSearch.convertStringsToBytes(STRINGS_IN_EVERY_BUFFER);
+
     /**
      * Substrings that are always first in the identifier.
      */
@@ -196,45 +204,6 @@ public final class KeywordContentFilter extends Filter {
         }
     }
 
-    /**
-     * Change first letter of the first word to use title case.
-     */
-    private static String titleCaseFirstWordOnly(String sentence) {
-        if (sentence.isEmpty()) {
-            return sentence;
-        }
-        final int firstCodePoint = sentence.codePointAt(0);
-        // In some non English languages title case is different than uppercase.
-        return new StringBuilder()
-                .appendCodePoint(Character.toTitleCase(firstCodePoint))
-                .append(sentence, Character.charCount(firstCodePoint), sentence.length())
-                .toString();
-    }
-
-    /**
-     * Uppercase the first letter of each word.
-     */
-    private static String capitalizeAllFirstLetters(String sentence) {
-        if (sentence.isEmpty()) {
-            return sentence;
-        }
-
-        final int delimiter = ' ';
-        // Use code points and not characters to handle unicode surrogates.
-        int[] codePoints = sentence.codePoints().toArray();
-        boolean capitalizeNext = true;
-        for (int i = 0, length = codePoints.length; i < length; i++) {
-            final int codePoint = codePoints[i];
-            if (codePoint == delimiter) {
-                capitalizeNext = true;
-            } else if (capitalizeNext) {
-                codePoints[i] = Character.toUpperCase(codePoint);
-                capitalizeNext = false;
-            }
-        }
-        return new String(codePoints, 0, codePoints.length);
-    }
-
     /**
      * @return If the string contains any characters from languages that do not use spaces between words.
      */
@@ -262,31 +231,38 @@ public final class KeywordContentFilter extends Filter {
 
 
     /**
-     * @return If the phrase will hide all videos. Not an exhaustive check.
+     * Finds the phrases that will hide all videos. Not an exhaustive check.
+     * All phrases are searched for together, so each common string is searched only once.
+     *
+     * @param phrases          Phrases to check.
+     * @param wholeWordMatches Set to the indexes of the phrases that will hide all videos
+     *                         even if whole word matching is used.
+     * @return Indexes of the phrases that will hide all videos if whole word matching is not used.
      */
-    private static boolean phrasesWillHideAllVideos(@NonNull String[] phrases, boolean matchWholeWords) {
-        for (String phrase : phrases) {
-            for (String commonString : STRINGS_IN_EVERY_BUFFER) {
-                if (matchWholeWords) {
-                    byte[] commonStringBytes = commonString.getBytes(StandardCharsets.UTF_8);
-                    int matchIndex = 0;
-                    while (true) {
-                        matchIndex = commonString.indexOf(phrase, matchIndex);
-                        if (matchIndex < 0) break;
-
-                        if (keywordMatchIsWholeWord(commonStringBytes, matchIndex, phrase.length())) {
-                            return true;
+    private static BitSet findPhrasesThatHideAllVideos(@NonNull List<String> phrases, @NonNull BitSet wholeWordMatches) {
+        BitSet matches = new BitSet();
+        if (phrases.isEmpty()) {
+            return matches;
+        }
+
+        ByteTrieSearch phraseSearch = new ByteTrieSearch(true);
+        for (int i = 0, size = phrases.size(); i < size; i++) {
+            final int phraseIndex = i;
+            phraseSearch.addPattern(phrases.get(i).getBytes(StandardCharsets.UTF_8),
+                    (textSearched, startIndex, matchLength, callbackParameter) -> {
+                        matches.set(phraseIndex);
+                        if (keywordMatchIsWholeWord(textSearched, startIndex, matchLength)) {
+                            wholeWordMatches.set(phraseIndex);
                         }
+                        return false; // Find all matches of all phrases.
+                    });
+        }
 
-                        matchIndex++;
-                    }
-                } else if (Utils.containsAny(commonString, phrases)) {
-                    return true;
-                }
-            }
+        for (byte[] commonString : STRINGS_IN_EVERY_BUFFER_BYTES) {
+            phraseSearch.matches(commonString);
         }
 
-        return false;
+        return matches;
     }
 
     /**
@@ -407,12 +383,11 @@ public final class KeywordContentFilter extends Filter {
             return; // Another thread won the race, and search is already initialized.
         }
 
-        ByteTrieSearch search = new ByteTrieSearch();
+        ByteTrieSearch search = new ByteTrieSearch(true);
         String[] split = rawKeywords.split("\n");
         if (split.length != 0) {
-            // Linked Set so log statement are more organized and easier to read.
-            // Map is: Phrase -> isWholeWord
-            Map<String, Boolean> keywords = new LinkedHashMap<>(10 * split.length);
+            List<String> phrases = new ArrayList<>(split.length);
+            BitSet wholeWordPhrases = new BitSet();
 
             for (String phrase : split) {
                 // Remove any trailing spaces the user may have accidentally included.
@@ -437,27 +412,25 @@ public final class KeywordContentFilter extends Filter {
                     wholeWordMatching = false;
                 }
 
-                // Common casing that might appear.
-                //
-                // This could be simplified by adding case insensitive search to the prefix search,
-                // which is very simple to add to StringTreSearch for Unicode and ByteTrieSearch for ASCII.
-                //
-                // But to support Unicode with ByteTrieSearch would require major changes because
-                // UTF-8 characters can be different byte lengths, which does
-                // not allow comparing two different byte arrays using simple plain array indexes.
-                //
-                // Instead use all common case variations of the words.
-                String[] phraseVariations = {
-                        phrase,
-                        phrase.toLowerCase(),
-                        titleCaseFirstWordOnly(phrase),
-                        capitalizeAllFirstLetters(phrase),
-                        phrase.toUpperCase()
-                };
-                if (phrasesWillHideAllVideos(phraseVariations, wholeWordMatching)) {
+                wholeWordPhrases.set(phrases.size(), wholeWordMatching);
+                phrases.add(phrase);
+            }
+
+            BitSet wholeWordMatches = new BitSet();
+            BitSet matches = findPhrasesThatHideAllVideos(phrases, wholeWordMatches);
+
+            // Linked Set so log statement are more organized and easier to read.
+            // Map is: Phrase -> isWholeWord
+            Map<String, Boolean> keywords = new LinkedHashMap<>(2 * phrases.size());
+
+            for (int i = 0, size = phrases.size(); i < size; i++) {
+                String phrase = phrases.get(i);
+                final boolean wholeWordMatching = wholeWordPhrases.get(i);
+
+                if (wholeWordMatching ? wholeWordMatches.get(i) : matches.get(i)) {
                     String toastMessage;
                     // If whole word matching is off, but would pass with on, then show a different toast.
-                    if (!wholeWordMatching && !phrasesWillHideAllVideos(phraseVariations, true)) {
+                    if (!wholeWordMatching && !wholeWordMatches.get(i)) {
                         toastMessage = "revanced_hide_keyword_toast_invalid_common_whole_word_required";
                     } else {
                         toastMessage = "revanced_hide_keyword_toast_invalid_common";
@@ -467,15 +440,15 @@ public final class KeywordContentFilter extends Filter {
                     continue;
                 }
 
-                for (String variation : phraseVariations) {
-                    // Check if the same phrase is declared both with and without quotes.
-                    Boolean existing = keywords.get(variation);
-                    if (existing == null) {
-                        keywords.put(variation, wholeWordMatching);
-                    } else if (existing != wholeWordMatching) {
-                        Utils.showToastLong(str("revanced_hide_keyword_toast_invalid_conflicting", phrase));
-                        break;
-                    }
+                // Search is case insensitive, so phrases that differ only by case are the same keyword.
+                // Folded the same as the search, as lowercase can change the byte length of some characters.
+                String keyword = ByteTrieSearch.foldCase(phrase);
+                // Check if the same phrase is declared both with and without quotes.
+                Boolean existing = keywords.get(keyword);
+                if (existing == null) {
+                    keywords.put(keyword, wholeWordMatching);
+                } else if (existing != wholeWordMatching) {
+                    Utils.showToastLong(str("revanced_hide_keyword_toast_invalid_conflicting", phrase));
                 }
             }
 
@@ -552,7 +525,8 @@ public final class KeywordContentFilter extends Filter {
             return hideSearch;
         }
 
-        NavigationButton selectedNavButton = NavigationButton.getSelectedNavigationButton();
+        // If the state is unsettled, the last selected tab is used as the back button usually does not change tabs.
+        NavigationButton selectedNavButton = NavigationBar.getNavigationState().button;
         if (selectedNavButton == null) {
             return hideHome; // Unknown tab, treat the same as home.
         }
@@ -586,6 +560,32 @@ public final class KeywordContentFilter extends Filter {
         Utils.showToastLong(str("revanced_hide_keyword_toast_invalid_broad", keyword));
     }
 
+    @Override
+    public boolean isResultCacheable() {
+        return false; // Depends on the current navigation state, and updates the filtered videos statistics.
+    }
+
+    /**
+     * Video titles and channel names are text fields of the proto buffer,
+     * and if the buffer was indexed then only the text fields are searched.
+     */
+    private boolean bufferMatches(byte[] protobufBufferArray, MutableReference<String> matchRef) {
+        ByteTrieSearch search = bufferSearch;
+        ProtoBufferIndex bufferIndex = ProtoBufferIndex.forBuffer(protobufBufferArray);
+        if (bufferIndex == null || !bufferIndex.hasStringFields()) {
+            return search.matches(protobufBufferArray, matchRef);
+        }
+
+        for (int i = 0, count = bufferIndex.getStringFieldCount(); i < count; i++) {
+            final int offset = bufferIndex.getStringFieldOffset(i);
+            if (search.matches(protobufBufferArray, offset,
+                    offset + bufferIndex.getStringFieldLength(i), matchRef)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     @Override
     public boolean isFiltered(String path, @Nullable String identifier, String allValue, byte[] protobufBufferArray,
                               StringFilterGroup matchedGroup, FilterContentType contentType, int contentIndex) {
@@ -614,7 +614,7 @@ public final class KeywordContentFilter extends Filter {
         }
 
         MutableReference<String> matchRef = new MutableReference<>();
-        if (bufferSearch.matches(protobufBufferArray, matchRef)) {
+        if (bufferMatches(protobufBufferArray, matchRef)) {
             updateStats(true, matchRef.value);
             return super.isFiltered(path, identifier, allValue, protobufBufferArray, matchedGroup, contentType, contentIndex);
         }
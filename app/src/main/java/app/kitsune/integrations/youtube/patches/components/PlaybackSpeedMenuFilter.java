@@ -38,6 +38,11 @@ public final class PlaybackSpeedMenuFilter extends Filter {
         addPathCallbacks(playbackRateSelectorGroup, oldPlaybackMenuGroup);
     }
 
+    @Override
+    public boolean isResultCacheable() {
+        return false; // Updates the menu visibility state.
+    }
+
     @Override
     public boolean isFiltered(String path, @Nullable String identifier, String allValue, byte[] protobufBufferArray,
                               StringFilterGroup matchedGroup, FilterContentType contentType, int contentIndex) {
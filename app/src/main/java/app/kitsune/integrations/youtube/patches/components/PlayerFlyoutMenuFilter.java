@@ -133,6 +133,11 @@ public final class PlayerFlyoutMenuFilter extends Filter {
         );
     }
 
+    @Override
+    public boolean isResultCacheable() {
+        return false; // Depends on the current player type.
+    }
+
     @Override
     public boolean isFiltered(String path, @Nullable String identifier, String allValue, byte[] protobufBufferArray,
                               StringFilterGroup matchedGroup, FilterContentType contentType, int contentIndex) {
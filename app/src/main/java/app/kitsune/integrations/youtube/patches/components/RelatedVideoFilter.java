@@ -43,6 +43,11 @@ public final class RelatedVideoFilter extends Filter {
         );
     }
 
+    @Override
+    public boolean isResultCacheable() {
+        return false; // Depends on the current player type, and updates the action bar visibility state.
+    }
+
     @Override
     public boolean isFiltered(String path, @Nullable String identifier, String allValue, byte[] protobufBufferArray,
                               StringFilterGroup matchedGroup, FilterContentType contentType, int contentIndex) {
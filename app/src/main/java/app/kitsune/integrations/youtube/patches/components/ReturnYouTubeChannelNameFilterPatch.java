@@ -33,6 +33,11 @@ public final class ReturnYouTubeChannelNameFilterPatch extends Filter {
         );
     }
 
+    @Override
+    public boolean isResultCacheable() {
+        return false; // Saves the Shorts channel id of the buffer.
+    }
+
     @Override
     public boolean isFiltered(String path, @Nullable String identifier, String allValue, byte[] protobufBufferArray,
                               StringFilterGroup matchedGroup, FilterContentType contentType, int contentIndex) {
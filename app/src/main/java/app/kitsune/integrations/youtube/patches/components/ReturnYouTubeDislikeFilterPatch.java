@@ -4,6 +4,7 @@ import androidx.annotation.GuardedBy;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import java.nio.charset.StandardCharsets;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.Map;
@@ -11,13 +12,16 @@ import java.util.Map;
 import app.kitsune.integrations.shared.patches.components.ByteArrayFilterGroup;
 import app.kitsune.integrations.shared.patches.components.ByteArrayFilterGroupList;
 import app.kitsune.integrations.shared.patches.components.Filter;
+import app.kitsune.integrations.shared.patches.components.ProtoBufferIndex;
 import app.kitsune.integrations.shared.patches.components.FilterGroup;
 import app.kitsune.integrations.shared.patches.components.StringFilterGroup;
 import app.kitsune.integrations.shared.utils.Logger;
 import app.kitsune.integrations.shared.utils.TrieSearch;
 import app.kitsune.integrations.youtube.patches.utils.ReturnYouTubeDislikePatch;
+import app.kitsune.integrations.youtube.returnyoutubedislike.ReturnYouTubeDislike;
 import app.kitsune.integrations.youtube.settings.Settings;
 import app.kitsune.integrations.youtube.shared.VideoInformation;
+import app.kitsune.integrations.youtube.sponsorblock.requests.SBRequester;
 
 /**
  * @noinspection ALL
@@ -32,6 +36,9 @@ import app.kitsune.integrations.youtube.shared.VideoInformation;
  * But the correct video id does appear in the protobuffer just before a Shorts litho span is created.
  * <p>
  * Once a way to asynchronously update litho text is found, this strategy will no longer be needed.
+ * <p>
+ * Also finds the video id's of feed and search results from the thumbnail url,
+ * so the votes and SponsorBlock segments can be prefetched before the video is opened.
  */
 public final class ReturnYouTubeDislikeFilterPatch extends Filter {
 
@@ -54,6 +61,36 @@ public final class ReturnYouTubeDislikeFilterPatch extends Filter {
     };
     private final ByteArrayFilterGroupList videoIdFilterGroup = new ByteArrayFilterGroupList();
 
+    /**
+     * Thumbnail url of feed videos, followed by '/' or '_webp/' and the video id.
+     */
+    private static final String THUMBNAIL_URL_PREFIX = "https://i.ytimg.com/vi";
+    private static final byte[] THUMBNAIL_URL_PREFIX_BYTES = THUMBNAIL_URL_PREFIX.getBytes(StandardCharsets.US_ASCII);
+    private static final int WEBP_PATH_SUFFIX_LENGTH = "_webp".length();
+    private static final int VIDEO_ID_LENGTH = 11;
+
+    /**
+     * Videos in the home feed, subscriptions, search results and related videos.
+     * Enabled if either votes or segments are prefetched.
+     * <p>
+     * Matches the identifier and not the path, since the path of every component of the video contains the name.
+     */
+    private final StringFilterGroup feedVideoFilterGroup = new StringFilterGroup(
+            null,
+            "video_lockup_with_attachment.eml",
+            "compact_video.eml"
+    ) {
+        @Override
+        public boolean isEnabled() {
+            return isVotePrefetchEnabled() || isSegmentPrefetchEnabled();
+        }
+
+        @Override
+        public boolean includeInSearch() {
+            return true;
+        }
+    };
+
     public ReturnYouTubeDislikeFilterPatch() {
         // When a new Short is opened, the like buttons always seem to load before the dislike.
         // But if swiping back to a previous video and liking/disliking, then only that single button reloads.
@@ -63,6 +100,8 @@ public final class ReturnYouTubeDislikeFilterPatch extends Filter {
                 new StringFilterGroup(null, "|shorts_dislike_button.eml")
         );
 
+        addIdentifierCallbacks(feedVideoFilterGroup);
+
         // After the likes icon name is some binary data and then the video id for that specific short.
         videoIdFilterGroup.addAll(
                 // on_shadowed  = Video was previously like/disliked before opening.
@@ -136,9 +175,92 @@ public final class ReturnYouTubeDislikeFilterPatch extends Filter {
         return false;
     }
 
+    private static int indexOf(@NonNull byte[] array, @NonNull byte[] pattern) {
+        for (int i = 0, lastArrayStartIndex = array.length - pattern.length; i <= lastArrayStartIndex; i++) {
+            boolean found = true;
+            for (int j = 0; j < pattern.length; j++) {
+                if (array[i + j] != pattern[j]) {
+                    found = false;
+                    break;
+                }
+            }
+            if (found) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    private static boolean isVideoIdCharacter(byte value) {
+        return (value >= 'a' && value <= 'z') || (value >= 'A' && value <= 'Z')
+                || (value >= '0' && value <= '9') || value == '-' || value == '_';
+    }
+
+    /**
+     * @return The video id of the first thumbnail url in the buffer, or null if none is found.
+     */
+    @Nullable
+    private static String findThumbnailVideoId(@NonNull byte[] protobufBufferArray) {
+        ProtoBufferIndex bufferIndex = ProtoBufferIndex.forBuffer(protobufBufferArray);
+        if (bufferIndex != null && !bufferIndex.mayContainAscii(THUMBNAIL_URL_PREFIX)) {
+            return null;
+        }
+        int index = indexOf(protobufBufferArray, THUMBNAIL_URL_PREFIX_BYTES);
+        if (index < 0) {
+            return null;
+        }
+        index += THUMBNAIL_URL_PREFIX_BYTES.length;
+        if (index < protobufBufferArray.length && protobufBufferArray[index] == '_') {
+            index += WEBP_PATH_SUFFIX_LENGTH;
+        }
+        if (index >= protobufBufferArray.length || protobufBufferArray[index] != '/') {
+            return null;
+        }
+        final int videoIdStart = index + 1;
+        final int videoIdEnd = videoIdStart + VIDEO_ID_LENGTH;
+        if (videoIdEnd >= protobufBufferArray.length || protobufBufferArray[videoIdEnd] != '/') {
+            return null;
+        }
+        for (int i = videoIdStart; i < videoIdEnd; i++) {
+            if (!isVideoIdCharacter(protobufBufferArray[i])) {
+                return null;
+            }
+        }
+        return new String(protobufBufferArray, videoIdStart, VIDEO_ID_LENGTH, StandardCharsets.US_ASCII);
+    }
+
+    private static boolean isVotePrefetchEnabled() {
+        return Settings.RYD_ENABLED.get() && Settings.RYD_PREFETCH_FEED.get();
+    }
+
+    private static boolean isSegmentPrefetchEnabled() {
+        return Settings.SB_ENABLED.get() && Settings.SB_PREFETCH_FEED.get();
+    }
+
+    @Override
+    public boolean isResultCacheable() {
+        return false; // Saves the Shorts video id of the buffer.
+    }
+
     @Override
     public boolean isFiltered(String path, @Nullable String identifier, String allValue, byte[] protobufBufferArray,
                               StringFilterGroup matchedGroup, FilterContentType contentType, int contentIndex) {
+        if (matchedGroup == feedVideoFilterGroup) {
+            if (contentIndex == 0) { // Only the root component of the video.
+                String videoId = findThumbnailVideoId(protobufBufferArray);
+                if (videoId != null) {
+                    if (isVotePrefetchEnabled()) {
+                        ReturnYouTubeDislike.prefetchVotes(videoId);
+                    }
+                    if (isSegmentPrefetchEnabled()) {
+                        SBRequester.prefetchSegments(videoId);
+                    }
+                }
+            }
+            return false;
+        }
+
         if (!Settings.RYD_ENABLED.get() || !Settings.RYD_SHORTS.get()) {
             return false;
         }
@@ -158,8 +280,12 @@ public final class ReturnYouTubeDislikeFilterPatch extends Filter {
 
     @Nullable
     private String findVideoId(byte[] protobufBufferArray) {
+        ProtoBufferIndex bufferIndex = ProtoBufferIndex.forBuffer(protobufBufferArray);
         synchronized (lastVideoIds) {
             for (String videoId : lastVideoIds.keySet()) {
+                if (bufferIndex != null && !bufferIndex.mayContainAscii(videoId)) {
+                    continue;
+                }
                 if (byteArrayContainsString(protobufBufferArray, videoId)) {
                     return videoId;
                 }
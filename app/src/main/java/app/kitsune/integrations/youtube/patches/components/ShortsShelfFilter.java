@@ -9,7 +9,7 @@ import app.kitsune.integrations.shared.settings.BooleanSetting;
 import app.kitsune.integrations.shared.utils.Logger;
 import app.kitsune.integrations.shared.utils.StringTrieSearch;
 import app.kitsune.integrations.youtube.settings.Settings;
-import app.kitsune.integrations.youtube.shared.NavigationBar.NavigationButton;
+import app.kitsune.integrations.youtube.shared.NavigationBar;
 import app.kitsune.integrations.youtube.shared.RootView;
 
 @SuppressWarnings("unused")
@@ -86,16 +86,25 @@ public final class ShortsShelfFilter extends Filter {
         addPathCallbacks(compactFeedVideoPath, shelfHeaderPath);
     }
 
+    @Override
+    public boolean isResultCacheable() {
+        return false; // Depends on the current navigation state.
+    }
+
+    @Override
+    public boolean usesAllValue() {
+        return true;
+    }
+
     @Override
     public boolean isFiltered(String path, @Nullable String identifier, String allValue, byte[] protobufBufferArray,
                               StringFilterGroup matchedGroup, FilterContentType contentType, int contentIndex) {
         final boolean playerActive = RootView.isPlayerActive();
         final boolean searchBarActive = RootView.isSearchBarActive();
-        final NavigationButton navigationButton = NavigationButton.getSelectedNavigationButton();
-        final String navigation = navigationButton == null ? "null" : navigationButton.name();
+        final NavigationBar.NavigationState navigationState = NavigationBar.getNavigationState();
         final String browseId = RootView.getBrowseId();
-        final boolean hideShelves = shouldHideShortsFeedItems(playerActive, searchBarActive, navigationButton, browseId);
-        Logger.printDebug(() -> "hideShelves: " + hideShelves + "\nplayerActive: " + playerActive + "\nsearchBarActive: " + searchBarActive + "\nbrowseId: " + browseId + "\nnavigation: " + navigation);
+        final boolean hideShelves = shouldHideShortsFeedItems(playerActive, searchBarActive, navigationState, browseId);
+        Logger.printDebug(() -> "hideShelves: " + hideShelves + "\nplayerActive: " + playerActive + "\nsearchBarActive: " + searchBarActive + "\nbrowseId: " + browseId + "\nnavigation: " + navigationState);
         if (contentType == FilterContentType.PATH) {
             if (matchedGroup == compactFeedVideoPath) {
                 if (hideShelves && compactFeedVideoBuffer.check(protobufBufferArray).isFiltered()) {
@@ -136,7 +145,7 @@ public final class ShortsShelfFilter extends Filter {
         return super.isFiltered(path, identifier, allValue, protobufBufferArray, matchedGroup, contentType, contentIndex);
     }
 
-    private static boolean shouldHideShortsFeedItems(boolean playerActive, boolean searchBarActive, NavigationButton selectedNavButton, String browseId) {
+    private static boolean shouldHideShortsFeedItems(boolean playerActive, boolean searchBarActive, NavigationBar.NavigationState navigationState, String browseId) {
         final boolean hideHomeAndRelatedVideos = Settings.HIDE_SHORTS_SHELF_HOME_RELATED_VIDEOS.get();
         final boolean hideSubscriptions = Settings.HIDE_SHORTS_SHELF_SUBSCRIPTIONS.get();
         final boolean hideSearch = Settings.HIDE_SHORTS_SHELF_SEARCH.get();
@@ -169,7 +178,8 @@ public final class ShortsShelfFilter extends Filter {
             return false;
         }
 
-        if (selectedNavButton == null) {
+        // If the state is unsettled, the last selected tab is used as the back button usually does not change tabs.
+        if (navigationState.button == null) {
             return hideHomeAndRelatedVideos; // Unknown tab, treat the same as home.
         }
 
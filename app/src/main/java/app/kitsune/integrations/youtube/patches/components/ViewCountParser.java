@@ -0,0 +1,254 @@
+package app.kitsune.integrations.youtube.patches.components;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import app.kitsune.integrations.shared.utils.Logger;
+import app.kitsune.integrations.youtube.settings.Settings;
+
+/**
+ * Finds the view count of a feed video in the litho buffer, without decoding the buffer to a String.
+ * <p>
+ * Each line of {@link Settings#HIDE_VIDEO_VIEW_COUNTS_MULTIPLIER} is either a multiplier and its value ("K -> 1000"),
+ * or a localized views text ("views -> views").
+ * The view count is a number, an optional multiplier and a views text ("1.5K views"),
+ * or for right to left layouts a views text, a number and an optional multiplier.
+ * <p>
+ * The buffer is scanned once, and the first left to right view count is used.
+ * If none is found, the first right to left view count is used.
+ * <p>
+ * Instances are immutable and thread safe.
+ */
+final class ViewCountParser {
+
+    static final double NOT_FOUND = -1;
+
+    private static final String ARROW = " -> ";
+    private static final String VIEWS = "views";
+    private static final byte[][] DEFAULT_VIEWS_TEXTS = {VIEWS.getBytes(StandardCharsets.UTF_8)};
+
+    /**
+     * Parser of the current multiplier setting.
+     */
+    @Nullable
+    private static volatile ViewCountParser currentParser;
+
+    /**
+     * Setting value this parser was created from.
+     */
+    @NonNull
+    private final String multiplierSetting;
+    @NonNull
+    private final byte[][] multipliers;
+    @NonNull
+    private final long[] multiplierValues;
+    /**
+     * Views texts after the number, for left to right layouts.
+     */
+    @NonNull
+    private final byte[][] leftToRightViewsTexts;
+    /**
+     * Views texts before the number, for right to left layouts.
+     * Empty if no views text is in the setting.
+     */
+    @NonNull
+    private final byte[][] rightToLeftViewsTexts;
+
+    /**
+     * @return The parser of the current multiplier setting. The setting is parsed again only if it changed.
+     */
+    @NonNull
+    static ViewCountParser getParser() {
+        final String multiplierSetting = Settings.HIDE_VIDEO_VIEW_COUNTS_MULTIPLIER.get();
+        ViewCountParser parser = currentParser;
+        if (parser == null || !parser.multiplierSetting.equals(multiplierSetting)) {
+            parser = new ViewCountParser(multiplierSetting);
+            currentParser = parser;
+        }
+        return parser;
+    }
+
+    private ViewCountParser(@NonNull String multiplierSetting) {
+        this.multiplierSetting = multiplierSetting;
+
+        List<byte[]> multiplierList = new ArrayList<>();
+        List<Long> multiplierValueList = new ArrayList<>();
+        List<byte[]> viewsTextList = new ArrayList<>();
+        for (String line : multiplierSetting.split("\\n")) {
+            final String[] pair = line.split(ARROW);
+            if (pair.length != 2) {
+                continue;
+            }
+            final String key = pair[0].trim();
+            final String value = pair[1].trim();
+            if (key.isEmpty()) {
+                continue;
+            }
+            final byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+            if (value.equals(VIEWS)) {
+                viewsTextList.add(keyBytes);
+                continue;
+            }
+            try {
+                multiplierValueList.add(Long.parseLong(value.replaceAll("[^\\d]", "")));
+                multiplierList.add(keyBytes);
+            } catch (NumberFormatException ex) {
+                Logger.printDebug(() -> "Ignoring invalid view count multiplier: " + line);
+            }
+        }
+
+        multipliers = multiplierList.toArray(new byte[0][]);
+        multiplierValues = new long[multiplierValueList.size()];
+        for (int i = 0; i < multiplierValues.length; i++) {
+            multiplierValues[i] = multiplierValueList.get(i);
+        }
+        rightToLeftViewsTexts = viewsTextList.toArray(new byte[0][]);
+        leftToRightViewsTexts = rightToLeftViewsTexts.length > 0
+                ? rightToLeftViewsTexts
+                : DEFAULT_VIEWS_TEXTS;
+    }
+
+    /**
+     * @return The view count, or {@link #NOT_FOUND} if the buffer has no view count.
+     */
+    double findViewCount(@NonNull byte[] buffer) {
+        double rightToLeftViewCount = NOT_FOUND;
+        for (int i = 0, length = buffer.length; i < length; i++) {
+            if (isDigit(buffer[i])) {
+                // A number that does not match cannot match starting from any of its later digits.
+                if (i == 0 || !isDigit(buffer[i - 1])) {
+                    final double viewCount = matchLeftToRight(buffer, i);
+                    if (viewCount != NOT_FOUND) {
+                        return viewCount;
+                    }
+                }
+            } else if (rightToLeftViewCount == NOT_FOUND) {
+                rightToLeftViewCount = matchRightToLeft(buffer, i);
+            }
+        }
+        return rightToLeftViewCount;
+    }
+
+    private double matchLeftToRight(@NonNull byte[] buffer, int numberStart) {
+        final int numberEnd = findNumberEnd(buffer, numberStart);
+        final int multiplierStart = skipWhitespace(buffer, numberEnd, 1);
+        for (int i = 0; i < multipliers.length; i++) {
+            final byte[] multiplier = multipliers[i];
+            if (startsWith(buffer, multiplierStart, multiplier)
+                    && startsWithAny(buffer, skipWhitespace(buffer, multiplierStart + multiplier.length, Integer.MAX_VALUE),
+                    leftToRightViewsTexts)) {
+                return parseNumber(buffer, numberStart, numberEnd) * multiplierValues[i];
+            }
+        }
+        if (startsWithAny(buffer, skipWhitespace(buffer, numberEnd, Integer.MAX_VALUE), leftToRightViewsTexts)) {
+            return parseNumber(buffer, numberStart, numberEnd);
+        }
+        return NOT_FOUND;
+    }
+
+    private double matchRightToLeft(@NonNull byte[] buffer, int start) {
+        for (byte[] viewsText : rightToLeftViewsTexts) {
+            if (!startsWith(buffer, start, viewsText)) {
+                continue;
+            }
+            final int numberStart = skipWhitespace(buffer, start + viewsText.length, Integer.MAX_VALUE);
+            if (numberStart >= buffer.length || !isDigit(buffer[numberStart])) {
+                continue;
+            }
+            final int numberEnd = findNumberEnd(buffer, numberStart);
+            final double number = parseNumber(buffer, numberStart, numberEnd);
+            final int multiplierStart = skipWhitespace(buffer, numberEnd, 1);
+            for (int i = 0; i < multipliers.length; i++) {
+                if (startsWith(buffer, multiplierStart, multipliers[i])) {
+                    return number * multiplierValues[i];
+                }
+            }
+            return number;
+        }
+        return NOT_FOUND;
+    }
+
+    /**
+     * @return The end of the digits starting at the index, including a decimal part after a dot or comma.
+     */
+    private static int findNumberEnd(@NonNull byte[] buffer, int start) {
+        int end = skipDigits(buffer, start);
+        if (end + 1 < buffer.length && (buffer[end] == '.' || buffer[end] == ',') && isDigit(buffer[end + 1])) {
+            end = skipDigits(buffer, end + 1);
+        }
+        return end;
+    }
+
+    /**
+     * Some languages have comma (,) as a decimal separator, and some have dot (.) as a thousands separator.
+     * A separator followed by less than 3 digits is a decimal separator, and otherwise it's a thousands separator.
+     */
+    private static double parseNumber(@NonNull byte[] buffer, int start, int end) {
+        double number = 0;
+        int separatorIndex = -1;
+        for (int i = start; i < end; i++) {
+            final byte value = buffer[i];
+            if (isDigit(value)) {
+                number = number * 10 + (value - '0');
+            } else {
+                separatorIndex = i;
+            }
+        }
+        final int decimalDigits = end - separatorIndex - 1;
+        if (separatorIndex >= 0 && decimalDigits < 3) {
+            number /= decimalDigits == 1 ? 10 : 100;
+        }
+        return number;
+    }
+
+    private static int skipDigits(@NonNull byte[] buffer, int index) {
+        while (index < buffer.length && isDigit(buffer[index])) {
+            index++;
+        }
+        return index;
+    }
+
+    private static int skipWhitespace(@NonNull byte[] buffer, int index, int maximumCount) {
+        final int end = (int) Math.min(buffer.length, (long) index + maximumCount);
+        while (index < end && isWhitespace(buffer[index])) {
+            index++;
+        }
+        return index;
+    }
+
+    private static boolean startsWithAny(@NonNull byte[] buffer, int index, @NonNull byte[][] patterns) {
+        for (byte[] pattern : patterns) {
+            if (startsWith(buffer, index, pattern)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean startsWith(@NonNull byte[] buffer, int index, @NonNull byte[] pattern) {
+        if (index + pattern.length > buffer.length) {
+            return false;
+        }
+        for (int i = 0; i < pattern.length; i++) {
+            if (buffer[index + i] != pattern[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isDigit(byte value) {
+        return value >= '0' && value <= '9';
+    }
+
+    /**
+     * Same characters as the regex \s.
+     */
+    private static boolean isWhitespace(byte value) {
+        return value == ' ' || value == '\t' || value == '\n' || value == 0x0B || value == '\f' || value == '\r';
+    }
+}
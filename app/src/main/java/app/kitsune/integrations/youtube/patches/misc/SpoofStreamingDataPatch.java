@@ -3,6 +3,7 @@ package app.kitsune.integrations.youtube.patches.misc;
 import android.net.Uri;
 import android.text.TextUtils;
 
+import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import java.nio.ByteBuffer;
@@ -10,11 +11,14 @@ import java.util.Map;
 import java.util.Objects;
 
 import app.kitsune.integrations.shared.settings.Setting;
+import app.kitsune.integrations.shared.utils.BackgroundLane;
 import app.kitsune.integrations.shared.utils.Logger;
 import app.kitsune.integrations.shared.utils.Utils;
 import app.kitsune.integrations.youtube.patches.misc.client.AppClient.ClientType;
+import app.kitsune.integrations.youtube.patches.misc.requests.PlaylistRequest;
 import app.kitsune.integrations.youtube.patches.misc.requests.StreamingDataRequest;
 import app.kitsune.integrations.youtube.settings.Settings;
+import app.kitsune.integrations.youtube.shared.VideoInformation;
 
 @SuppressWarnings("unused")
 public class SpoofStreamingDataPatch {
@@ -105,6 +109,37 @@ public class SpoofStreamingDataPatch {
         }
     }
 
+    /**
+     * Prefetches the streams of the video expected to play after the current video,
+     * using the next video of the playlist the video is playing in, or the autoplay video.
+     * Called when a regular video starts.
+     */
+    public static void prefetchNextVideo(@NonNull String videoId) {
+        if (!SPOOF_STREAMING_DATA || !Settings.SPOOF_STREAMING_DATA_PREFETCH.get()) {
+            return;
+        }
+        try {
+            // If the playlist is not known, then the autoplay video may not be the next video.
+            final String playlistId = VideoInformation.getPlaylistIdOfVideo(videoId);
+            if (playlistId == null || Utils.isNetworkNotConnected()) {
+                return;
+            }
+            Utils.runOnBackgroundThread(BackgroundLane.PREFETCH, () -> {
+                try {
+                    String nextVideoId = PlaylistRequest.fetchNextVideoId(videoId, playlistId);
+                    Logger.printDebug(() -> "Next video of: " + videoId + " is: " + nextVideoId);
+                    if (nextVideoId != null) {
+                        StreamingDataRequest.prefetchRequest(nextVideoId);
+                    }
+                } catch (Exception ex) {
+                    Logger.printException(() -> "prefetchNextVideo background failure", ex);
+                }
+            });
+        } catch (Exception ex) {
+            Logger.printException(() -> "prefetchNextVideo failure", ex);
+        }
+    }
+
     /**
      * Injection point.
      * Fix playback by replace the streaming data.
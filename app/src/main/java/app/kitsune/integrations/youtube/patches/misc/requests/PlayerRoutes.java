@@ -24,19 +24,26 @@ public final class PlayerRoutes {
                     "&alt=proto"
     ).compile();
 
-    static final Route.CompiledRoute GET_PLAYLIST_PAGE = new Route(
+    /**
+     * Same as {@link #GET_STREAMING_DATA}, and also if the video is playable and is a live stream.
+     */
+    static final Route.CompiledRoute GET_STREAMING_DATA_AND_PLAYABILITY = new Route(
             Route.Method.POST,
-            "next" +
-                    "?fields=contents.singleColumnWatchNextResults.playlist.playlist"
+            "player" +
+                    "?fields=streamingData," +
+                    "playabilityStatus.status," +
+                    "videoDetails.isLiveContent" +
+                    "&alt=proto"
     ).compile();
 
-    static final Route.CompiledRoute GET_LIVE_STREAM_RENDERER = new Route(
+    static final Route.CompiledRoute GET_PLAYLIST_PAGE = new Route(
             Route.Method.POST,
-            "player" +
-                    "?fields=playabilityStatus.status," +
-                    "videoDetails.isLiveContent"
+            "next" +
+                    "?fields=contents.singleColumnWatchNextResults.playlist.playlist," +
+                    "contents.singleColumnWatchNextResults.autoplay.autoplay.sets"
     ).compile();
 
+
     /**
      * TCP connection and HTTP read timeout
      */
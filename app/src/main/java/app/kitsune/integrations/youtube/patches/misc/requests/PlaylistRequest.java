@@ -8,6 +8,7 @@ import androidx.annotation.GuardedBy;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
@@ -18,6 +19,7 @@ import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
@@ -70,8 +72,11 @@ public class PlaylistRequest {
         Logger.printInfo(() -> toastMessage, ex);
     }
 
+    /**
+     * @param playlistId Playlist of the video, or null to request the video without a playlist.
+     */
     @Nullable
-    private static JSONObject send(ClientType clientType, String videoId) {
+    private static JSONObject send(ClientType clientType, String videoId, @Nullable String playlistId) {
         Objects.requireNonNull(clientType);
         Objects.requireNonNull(videoId);
 
@@ -85,7 +90,7 @@ public class PlaylistRequest {
             String innerTubeBody = PlayerRoutes.createInnertubeBody(
                     clientType,
                     videoId,
-                    "RD" + videoId
+                    playlistId
             );
             byte[] requestBody = innerTubeBody.getBytes(StandardCharsets.UTF_8);
             connection.setFixedLengthStreamingMode(requestBody.length);
@@ -110,9 +115,95 @@ public class PlaylistRequest {
         return null;
     }
 
-    private static Boolean fetch(@NonNull String videoId) {
+    /**
+     * Finds the video expected to play after a video, using the watch next data of the playlist the video is playing in.
+     * Must be called off the main thread.
+     *
+     * @param playlistId Playlist the video is playing in, or an empty string if not playing in a playlist.
+     * @return The next video of the playlist, or the autoplay video if the video is not in a playlist
+     *         or is the last video of the playlist. Null if not known.
+     */
+    @Nullable
+    public static String fetchNextVideoId(@NonNull String videoId, @NonNull String playlistId) {
+        Utils.verifyOffMainThread();
+        final JSONObject watchNextJson = send(ClientType.ANDROID_VR, videoId, playlistId.isEmpty() ? null : playlistId);
+        if (watchNextJson != null) {
+            try {
+                return findNextVideoId(videoId, watchNextJson
+                        .getJSONObject("contents")
+                        .getJSONObject("singleColumnWatchNextResults"));
+            } catch (JSONException e) {
+                Logger.printDebug(() -> "Fetch next video failed while processing response data for response: " + watchNextJson);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return The video after the current video in the playlist, or the autoplay video if not found.
+     */
+    @Nullable
+    private static String findNextVideoId(@NonNull String videoId, @NonNull JSONObject singleColumnWatchNextResultsJsonObject) {
+        JSONObject playlistJsonObject = singleColumnWatchNextResultsJsonObject.optJSONObject("playlist");
+        if (playlistJsonObject != null) {
+            playlistJsonObject = playlistJsonObject.optJSONObject("playlist");
+        }
+        JSONArray contents = playlistJsonObject == null
+                ? null
+                : playlistJsonObject.optJSONArray("contents");
+        if (contents != null) {
+            for (int i = 0, length = contents.length() - 1; i < length; i++) {
+                if (videoId.equals(getPlaylistVideoId(contents.optJSONObject(i)))) {
+                    String nextVideoId = getPlaylistVideoId(contents.optJSONObject(i + 1));
+                    if (nextVideoId != null) {
+                        return nextVideoId;
+                    }
+                    break;
+                }
+            }
+        }
+
+        JSONObject autoplayJsonObject = singleColumnWatchNextResultsJsonObject.optJSONObject("autoplay");
+        if (autoplayJsonObject != null) {
+            autoplayJsonObject = autoplayJsonObject.optJSONObject("autoplay");
+        }
+        JSONArray sets = autoplayJsonObject == null
+                ? null
+                : autoplayJsonObject.optJSONArray("sets");
+        JSONObject setJsonObject = sets == null
+                ? null
+                : sets.optJSONObject(0);
+        JSONObject autoplayVideoJsonObject = setJsonObject == null
+                ? null
+                : setJsonObject.optJSONObject("autoplayVideo");
+        JSONObject watchEndpointJsonObject = autoplayVideoJsonObject == null
+                ? null
+                : autoplayVideoJsonObject.optJSONObject("watchEndpoint");
+        if (watchEndpointJsonObject != null) {
+            String nextVideoId = watchEndpointJsonObject.optString("videoId");
+            if (!nextVideoId.isEmpty() && !nextVideoId.equals(videoId)) {
+                return nextVideoId;
+            }
+        }
+        return null;
+    }
+
+    @Nullable
+    private static String getPlaylistVideoId(@Nullable JSONObject playlistItemJsonObject) {
+        if (playlistItemJsonObject == null) {
+            return null;
+        }
+        JSONObject videoRendererJsonObject = playlistItemJsonObject.optJSONObject("playlistPanelVideoRenderer");
+        if (videoRendererJsonObject == null) {
+            return null;
+        }
+        String videoId = videoRendererJsonObject.optString("videoId");
+        return videoId.isEmpty() ? null : videoId;
+    }
+
+    private Boolean fetch() {
         final ClientType clientType = ClientType.ANDROID_VR;
-        final JSONObject playlistJson = send(clientType, videoId);
+        final JSONObject playlistJson = send(clientType, videoId, "RD" + videoId);
         if (playlistJson != null) {
             try {
                 final JSONObject singleColumnWatchNextResultsJsonObject = playlistJson
@@ -162,7 +253,7 @@ public class PlaylistRequest {
     private PlaylistRequest(String videoId) {
         this.timeFetched = System.currentTimeMillis();
         this.videoId = videoId;
-        this.future = Utils.submitOnBackgroundThread(() -> fetch(videoId));
+        this.future = Utils.submitOnBackgroundThread(this::fetch);
     }
 
     public boolean isExpired(long now) {
@@ -190,7 +281,7 @@ public class PlaylistRequest {
         } catch (InterruptedException ex) {
             Logger.printException(() -> "getStream interrupted", ex);
             Thread.currentThread().interrupt(); // Restore interrupt status flag.
-        } catch (ExecutionException ex) {
+        } catch (ExecutionException | CancellationException ex) {
             Logger.printException(() -> "getStream failure", ex);
         }
 
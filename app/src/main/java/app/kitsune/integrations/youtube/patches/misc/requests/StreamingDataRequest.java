@@ -1,33 +1,41 @@
 package app.kitsune.integrations.youtube.patches.misc.requests;
 
-import static app.kitsune.integrations.youtube.patches.misc.requests.PlayerRoutes.GET_LIVE_STREAM_RENDERER;
 import static app.kitsune.integrations.youtube.patches.misc.requests.PlayerRoutes.GET_STREAMING_DATA;
+import static app.kitsune.integrations.youtube.patches.misc.requests.PlayerRoutes.GET_STREAMING_DATA_AND_PLAYABILITY;
 
 import androidx.annotation.GuardedBy;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
-import org.json.JSONException;
-import org.json.JSONObject;
-
-import java.io.BufferedInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.HttpURLConnection;
 import java.net.SocketTimeoutException;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
 
-import app.kitsune.integrations.shared.requests.Requester;
+import app.kitsune.integrations.shared.utils.BackgroundLane;
 import app.kitsune.integrations.shared.utils.Logger;
 import app.kitsune.integrations.shared.utils.Utils;
 import app.kitsune.integrations.youtube.patches.misc.client.AppClient.ClientType;
@@ -71,11 +79,228 @@ public class StreamingDataRequest {
      */
     private static final int HTTP_TIMEOUT_MILLISECONDS = 10 * 1000;
 
+    /**
+     * How long to wait for a client before also requesting the next client.
+     * Zero requests all clients at once, and a negative value requests the next client only if the prior client fails.
+     */
+    private static final int HEDGE_DELAY_MILLISECONDS = Settings.SPOOF_STREAMING_DATA_HEDGE_DELAY.get();
+
+    /**
+     * How often a fetch that does not hedge checks if it now hedges,
+     * because the prefetched video started playing.
+     */
+    private static final int HEDGE_CHECK_INTERVAL_MILLISECONDS = 200;
+
+    /**
+     * Maximum number of client requests at once.
+     * Each of the 2 fetches of {@link BackgroundLane#PLAYBACK} can request all clients,
+     * and each of the 2 fetches of {@link BackgroundLane#PREFETCH} can also request all clients once the video is played.
+     * <p>
+     * Client requests are not run on the lane of the fetch, since the fetch waits for the client requests.
+     * Client requests never wait for other tasks, so they cannot deadlock if the pool is busy.
+     */
+    private static final int MAXIMUM_CLIENT_REQUESTS = 4 * allClientTypes.length;
+
+    private static final ThreadPoolExecutor clientRequestExecutor = new ThreadPoolExecutor(
+            MAXIMUM_CLIENT_REQUESTS, MAXIMUM_CLIENT_REQUESTS,
+            10, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+
+    static {
+        clientRequestExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Recent latency and success rate of a client, used to decide the order clients are requested.
+     */
+    private static final class ClientStatistics {
+        /**
+         * Weight of the newest request, once enough requests were made.
+         */
+        private static final float SMOOTHING_FACTOR = 0.25f;
+        /**
+         * Number of requests before the preferred client can be moved after the other clients.
+         */
+        private static final int MINIMUM_REQUESTS_TO_REORDER = 4;
+        private static final float MINIMUM_SUCCESS_RATE = 0.5f;
+        /**
+         * How long after the last failure or latency sample a demoted preferred client is again requested first.
+         */
+        private static final long RETRY_PREFERRED_CLIENT_MILLISECONDS = 5 * 60 * 1000;
+
+        /**
+         * Number of finished requests, used for the success rate.
+         */
+        private int requestCount;
+        /**
+         * Number of successful requests and cancelled requests, used for the latency.
+         */
+        private int latencyCount;
+        private float successRate;
+        private float averageLatencyMillis;
+        private long lastFailureTime;
+        private long lastLatencyTime;
+
+        synchronized void add(boolean success, long latencyMillis) {
+            requestCount++;
+            successRate += Math.max(SMOOTHING_FACTOR, 1f / requestCount) * ((success ? 1 : 0) - successRate);
+            if (success) {
+                addLatency(latencyMillis);
+            } else {
+                lastFailureTime = System.currentTimeMillis();
+            }
+        }
+
+        /**
+         * Adds a request that was cancelled because another client returned streaming data first.
+         * The latency of the request would have been at least the elapsed time,
+         * so the sample can only increase the average latency.
+         */
+        synchronized void addCancelled(long elapsedMillis) {
+            if (latencyCount == 0 || elapsedMillis > averageLatencyMillis) {
+                addLatency(elapsedMillis);
+            }
+        }
+
+        private void addLatency(long latencyMillis) {
+            latencyCount++;
+            averageLatencyMillis += Math.max(SMOOTHING_FACTOR, 1f / latencyCount) * (latencyMillis - averageLatencyMillis);
+            lastLatencyTime = System.currentTimeMillis();
+        }
+
+        /**
+         * @return Expected time until the client returns usable streaming data, or zero if the client was never used.
+         */
+        synchronized float getExpectedMillis() {
+            if (requestCount == 0) {
+                return averageLatencyMillis;
+            }
+            return averageLatencyMillis + (1 - successRate) * HTTP_TIMEOUT_MILLISECONDS;
+        }
+
+        synchronized boolean isUnreliable() {
+            return requestCount >= MINIMUM_REQUESTS_TO_REORDER && successRate < MINIMUM_SUCCESS_RATE
+                    && System.currentTimeMillis() - lastFailureTime < RETRY_PREFERRED_CLIENT_MILLISECONDS;
+        }
+
+        /**
+         * @return If the latency was recently measured enough times to move the preferred client after faster clients.
+         */
+        synchronized boolean hasRecentLatency() {
+            return latencyCount >= MINIMUM_REQUESTS_TO_REORDER
+                    && System.currentTimeMillis() - lastLatencyTime < RETRY_PREFERRED_CLIENT_MILLISECONDS;
+        }
+
+        @NonNull
+        @Override
+        public synchronized String toString() {
+            return "requests: " + requestCount
+                    + " success rate: " + Math.round(successRate * 100) + "%"
+                    + " latency: " + Math.round(averageLatencyMillis) + "ms"
+                    + " latency samples: " + latencyCount;
+        }
+    }
+
+    private static final Map<ClientType, ClientStatistics> clientStatistics = new EnumMap<>(ClientType.class);
+
+    static {
+        for (ClientType clientType : allClientTypes) {
+            clientStatistics.put(clientType, new ClientStatistics());
+        }
+    }
+
+    private static ClientStatistics getStatistics(ClientType clientType) {
+        return Objects.requireNonNull(clientStatistics.get(clientType));
+    }
+
+    /**
+     * How many times slower than another client the preferred client must be, to be moved after the other client.
+     */
+    private static final float SLOW_PREFERRED_CLIENT_FACTOR = 2;
+
+    /**
+     * The preferred client is always first, unless it recently failed most requests
+     * or was much slower than another client.
+     * The other clients are ordered by how soon they are expected to return usable streaming data.
+     */
+    private static ClientType[] getClientTypesInOrder() {
+        ClientType[] clientTypes = clientTypesToUse.clone();
+        // Statistics can change while sorting, so sort using the values before sorting.
+        Map<ClientType, Float> expectedMillis = new EnumMap<>(ClientType.class);
+        for (ClientType clientType : clientTypes) {
+            expectedMillis.put(clientType, getStatistics(clientType).getExpectedMillis());
+        }
+        Comparator<ClientType> expectedTime = Comparator.comparingDouble(expectedMillis::get);
+        final int firstSortedIndex = isPreferredClientDemoted(clientTypes[0], expectedMillis) ? 0 : 1;
+        Arrays.sort(clientTypes, firstSortedIndex, clientTypes.length, expectedTime);
+
+        Logger.printDebug(() -> {
+            StringBuilder builder = new StringBuilder("Client order:");
+            for (ClientType clientType : clientTypes) {
+                builder.append(' ').append(clientType).append(" (").append(getStatistics(clientType)).append(')');
+            }
+            return builder.toString();
+        });
+        return clientTypes;
+    }
+
+    private static boolean isPreferredClientDemoted(ClientType preferredClient, Map<ClientType, Float> expectedMillis) {
+        ClientStatistics statistics = getStatistics(preferredClient);
+        if (statistics.isUnreliable()) {
+            return true;
+        }
+        if (!statistics.hasRecentLatency()) {
+            return false;
+        }
+        final float preferredExpectedMillis = Objects.requireNonNull(expectedMillis.get(preferredClient));
+        for (Map.Entry<ClientType, Float> entry : expectedMillis.entrySet()) {
+            final float otherExpectedMillis = entry.getValue();
+            if (entry.getKey() != preferredClient && otherExpectedMillis > 0
+                    && preferredExpectedMillis > SLOW_PREFERRED_CLIENT_FACTOR * otherExpectedMillis) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Any arbitrarily large value, but must be at least twice {@link #HTTP_TIMEOUT_MILLISECONDS}
      */
     private static final int MAX_MILLISECONDS_TO_WAIT_FOR_FETCH = 20 * 1000;
 
+    /**
+     * Streams are reused only if they do not expire before this much time.
+     */
+    private static final long EXPIRATION_MARGIN_MILLISECONDS = 30 * 60 * 1000;
+
+    /**
+     * How long streams are reused if the expiration is not in the response.
+     */
+    private static final long UNKNOWN_EXPIRATION_REUSE_MILLISECONDS = 10 * 60 * 1000;
+
+    /**
+     * Field numbers of the streaming data in the player response, and the expiration in the streaming data.
+     */
+    private static final int PLAYER_RESPONSE_STREAMING_DATA_FIELD = 4;
+    private static final int STREAMING_DATA_EXPIRES_IN_SECONDS_FIELD = 1;
+
+    /**
+     * Field numbers of the playability status and video details in the player response,
+     * requested with {@link PlayerRoutes#GET_STREAMING_DATA_AND_PLAYABILITY}.
+     * The playability status is omitted if it's OK, and the video details are omitted if the video is not live content.
+     */
+    private static final int PLAYER_RESPONSE_PLAYABILITY_STATUS_FIELD = 2;
+    private static final int PLAYER_RESPONSE_VIDEO_DETAILS_FIELD = 11;
+
+    /**
+     * Any arbitrarily large value. Responses are usually less than 100 KB.
+     */
+    private static final int MAXIMUM_RESPONSE_LENGTH = 8 * 1024 * 1024;
+
+    /**
+     * Buffer used to read responses of unknown length.
+     */
+    private static final ThreadLocal<byte[]> readBuffer = ThreadLocal.withInitial(() -> new byte[64 * 1024]);
+
     @GuardedBy("itself")
     private static final Map<String, StreamingDataRequest> cache = Collections.synchronizedMap(
             new LinkedHashMap<>(100) {
@@ -83,8 +308,8 @@ public class StreamingDataRequest {
                  * Cache limit must be greater than the maximum number of videos open at once,
                  * which theoretically is more than 4 (3 Shorts + one regular minimized video).
                  * But instead use a much larger value, to handle if a video viewed a while ago
-                 * is somehow still referenced.  Each stream is a small array of Strings
-                 * so memory usage is not a concern.
+                 * is somehow still referenced.  Each stream is the proto buffer of the streaming data,
+                 * which is usually less than 100 KB.
                  */
                 private static final int CACHE_LIMIT = 50;
 
@@ -94,8 +319,86 @@ public class StreamingDataRequest {
                 }
             });
 
+    /**
+     * Headers of the last player request, used to prefetch the streams of upcoming videos.
+     */
+    @Nullable
+    private static volatile Map<String, String> lastPlayerHeaders;
+
+    /**
+     * Number of prefetches currently requesting streams.
+     */
+    private static final AtomicInteger prefetchesInProgress = new AtomicInteger();
+
     public static void fetchRequest(@NonNull String videoId, Map<String, String> fetchHeaders) {
-        cache.put(videoId, new StreamingDataRequest(videoId, fetchHeaders));
+        Map<String, String> playerHeaders = new HashMap<>(REQUEST_HEADER_KEYS.length);
+        for (String key : REQUEST_HEADER_KEYS) {
+            String value = fetchHeaders.get(key);
+            if (value != null) {
+                playerHeaders.put(key, value);
+            }
+        }
+        lastPlayerHeaders = playerHeaders;
+
+        StreamingDataRequest existing = cache.get(videoId);
+        if (existing != null && existing.canReuse(playerHeaders)) {
+            Logger.printDebug(() -> (existing.isPrefetch ? "Using prefetched" : "Reusing")
+                    + " video streams: " + videoId);
+            existing.isPrefetch = false;
+            lastSpoofedClientType = existing.clientType;
+            return;
+        }
+        if (existing != null && existing.isPrefetch) {
+            existing.future.cancel(false);
+        }
+        cache.put(videoId, new StreamingDataRequest(videoId, playerHeaders, false));
+    }
+
+    /**
+     * Fetches the streams of a video that is expected to play next, so the video can start without waiting for the streams.
+     * <p>
+     * Prefetches use the headers of the last player request, and do not hedge requests across clients
+     * until the video is played.
+     * At most {@link Settings#SPOOF_STREAMING_DATA_PREFETCH_MAX_VIDEOS} prefetched videos that were not yet played are kept,
+     * and at most {@link Settings#SPOOF_STREAMING_DATA_PREFETCH_MAX_REQUESTS} prefetches request streams at once.
+     */
+    public static void prefetchRequest(@NonNull String videoId) {
+        Map<String, String> playerHeaders = lastPlayerHeaders;
+        if (playerHeaders == null) {
+            return; // No video was played yet.
+        }
+        final int maximumVideos = Settings.SPOOF_STREAMING_DATA_PREFETCH_MAX_VIDEOS.get();
+        if (maximumVideos <= 0) {
+            return;
+        }
+
+        synchronized (cache) {
+            StreamingDataRequest existing = cache.get(videoId);
+            if (existing != null && existing.canReuse(playerHeaders)) {
+                return;
+            }
+
+            // Remove the oldest prefetched videos that were not played, to stay within the memory budget.
+            int prefetchCount = 0;
+            for (StreamingDataRequest request : cache.values()) {
+                if (request.isPrefetch) {
+                    prefetchCount++;
+                }
+            }
+            Iterator<StreamingDataRequest> iterator = cache.values().iterator();
+            while (prefetchCount >= maximumVideos && iterator.hasNext()) {
+                StreamingDataRequest request = iterator.next();
+                if (request.isPrefetch) {
+                    Logger.printDebug(() -> "Removing unused prefetched video streams: " + request.videoId);
+                    request.future.cancel(false);
+                    iterator.remove();
+                    prefetchCount--;
+                }
+            }
+
+            Logger.printDebug(() -> "Prefetching video streams: " + videoId);
+            cache.put(videoId, new StreamingDataRequest(videoId, playerHeaders, true));
+        }
     }
 
     @Nullable
@@ -107,144 +410,421 @@ public class StreamingDataRequest {
         Logger.printInfo(() -> toastMessage, ex);
     }
 
-    private static boolean isUnplayableOrLiveStream(ClientType clientType, String videoId) {
-        if (!SPOOF_STREAMING_DATA_IOS_COMPATIBILITY || clientType != ClientType.IOS) {
-            return false;
+    private static final String[] REQUEST_HEADER_KEYS = {
+            "Authorization", // Available only to logged in users.
+            "X-GOOG-API-FORMAT-VERSION",
+            "X-Goog-Visitor-Id"
+    };
+
+    /**
+     * Request of a single client.
+     */
+    private static final class ClientRequest implements Runnable {
+        private final ClientType clientType;
+        private final String videoId;
+        private final Map<String, String> playerHeaders;
+        private final BlockingQueue<ClientRequest> completedRequests;
+
+        @Nullable
+        private volatile HttpURLConnection connection;
+        private volatile boolean cancelled;
+        @Nullable
+        private Future<?> future;
+
+        /**
+         * Streaming data, or null if the request failed.  Set before this request is added to the completed requests.
+         */
+        @Nullable
+        private ByteBuffer streamingData;
+
+        ClientRequest(ClientType clientType, String videoId, Map<String, String> playerHeaders,
+                      BlockingQueue<ClientRequest> completedRequests) {
+            this.clientType = Objects.requireNonNull(clientType);
+            this.videoId = Objects.requireNonNull(videoId);
+            this.playerHeaders = Objects.requireNonNull(playerHeaders);
+            this.completedRequests = completedRequests;
         }
-        Objects.requireNonNull(videoId);
-        try {
-            HttpURLConnection connection = PlayerRoutes.getPlayerResponseConnectionFromRoute(GET_LIVE_STREAM_RENDERER, clientType);
-            String innerTubeBody = PlayerRoutes.createInnertubeBody(clientType, videoId);
-            byte[] requestBody = innerTubeBody.getBytes(StandardCharsets.UTF_8);
-            connection.setFixedLengthStreamingMode(requestBody.length);
-            connection.getOutputStream().write(requestBody);
-
-            final int responseCode = connection.getResponseCode();
-            if (responseCode == 200) {
-                JSONObject playerResponse = Requester.parseJSONObject(connection);
-                final boolean isPlayabilityOk = isPlayabilityStatusOk(playerResponse);
-                final boolean isLiveStream = isLiveStream(playerResponse);
-                return !isPlayabilityOk || isLiveStream;
+
+        void start() {
+            future = clientRequestExecutor.submit(this);
+        }
+
+        /**
+         * Stops the request if it's still in progress.
+         */
+        void cancel() {
+            cancelled = true;
+            HttpURLConnection currentConnection = connection;
+            if (currentConnection != null) {
+                currentConnection.disconnect();
+            }
+            if (future != null) {
+                future.cancel(true);
             }
+        }
 
-            // Always show a toast for this, as a non 200 response means something is broken.
-            handleConnectionError("Fetch livestreams not available: " + responseCode, null);
-        } catch (SocketTimeoutException ex) {
-            handleConnectionError("Fetch livestreams temporarily not available (API timed out)", ex);
-        } catch (IOException ex) {
-            handleConnectionError("Fetch livestreams temporarily not available: " + ex.getMessage(), ex);
-        } catch (Exception ex) {
-            Logger.printException(() -> "Fetch livestreams failed", ex); // Should never happen.
+        @Override
+        public void run() {
+            final long startTime = System.currentTimeMillis();
+            try {
+                ByteBuffer data = send();
+                if (data != null && checksPlayability()) {
+                    // The playability is part of the same response, instead of a separate request.
+                    data = getStreamingDataIfPlayable(data);
+                    if (data == null) {
+                        Logger.printDebug(() -> "Ignore IOS spoofing as it is unplayable or a live stream (video: " + videoId + ")");
+                        return; // Not a failure of the client.
+                    }
+                }
+                final long elapsedMillis = System.currentTimeMillis() - startTime;
+                if (cancelled) {
+                    // Another client was faster, so this client is at least as slow as the elapsed time.
+                    getStatistics(clientType).addCancelled(elapsedMillis);
+                } else {
+                    getStatistics(clientType).add(data != null, elapsedMillis);
+                }
+                streamingData = data;
+            } finally {
+                completedRequests.add(this);
+            }
         }
 
-        return true;
-    }
+        private boolean checksPlayability() {
+            return SPOOF_STREAMING_DATA_IOS_COMPATIBILITY && clientType == ClientType.IOS;
+        }
 
-    private static boolean isPlayabilityStatusOk(@NonNull JSONObject playerResponse) {
-        try {
-            return playerResponse.getJSONObject("playabilityStatus").getString("status").equals("OK");
-        } catch (JSONException e) {
-            Logger.printDebug(() -> "Failed to get playabilityStatus for response: " + playerResponse);
+        @Nullable
+        private ByteBuffer send() {
+            final long startTime = System.currentTimeMillis();
+            String clientTypeName = clientType.name();
+            Logger.printDebug(() -> "Fetching video streams for: " + videoId + " using client: " + clientTypeName);
+
+            try {
+                HttpURLConnection connection = PlayerRoutes.getPlayerResponseConnectionFromRoute(
+                        checksPlayability() ? GET_STREAMING_DATA_AND_PLAYABILITY : GET_STREAMING_DATA, clientType);
+                this.connection = connection;
+                if (cancelled) {
+                    return null;
+                }
+                connection.setConnectTimeout(HTTP_TIMEOUT_MILLISECONDS);
+                connection.setReadTimeout(HTTP_TIMEOUT_MILLISECONDS);
+
+                for (String key : REQUEST_HEADER_KEYS) {
+                    String value = playerHeaders.get(key);
+                    if (value != null) {
+                        connection.setRequestProperty(key, value);
+                    }
+                }
+
+                String innerTubeBody = PlayerRoutes.createInnertubeBody(clientType, videoId);
+                byte[] requestBody = innerTubeBody.getBytes(StandardCharsets.UTF_8);
+                connection.setFixedLengthStreamingMode(requestBody.length);
+                connection.getOutputStream().write(requestBody);
+
+                final int responseCode = connection.getResponseCode();
+                if (responseCode == 200) {
+                    return readStreamingData(connection);
+                }
+
+                handleConnectionError(clientTypeName + " not available with response code: "
+                                + responseCode + " message: " + connection.getResponseMessage(),
+                        null);
+            } catch (SocketTimeoutException ex) {
+                if (!cancelled) handleConnectionError("Connection timeout", ex);
+            } catch (IOException ex) {
+                if (!cancelled) handleConnectionError("Network error", ex);
+            } catch (Exception ex) {
+                if (!cancelled) Logger.printException(() -> "send failed", ex);
+            } finally {
+                Logger.printDebug(() -> "video: " + videoId + " client: " + clientTypeName
+                        + (cancelled ? " cancelled after: " : " took: ")
+                        + (System.currentTimeMillis() - startTime) + "ms");
+            }
+
+            return null;
         }
+    }
 
-        return false;
+    /**
+     * Reads the response directly into the returned array if the content length is known.
+     * Otherwise the response is read into a reused per thread buffer and then copied once.
+     */
+    @Nullable
+    private static ByteBuffer readStreamingData(HttpURLConnection connection) throws IOException {
+        // gzip encoding doesn't response with content length (-1),
+        // but empty response body does.
+        final int contentLength = connection.getContentLength();
+        if (contentLength == 0) {
+            return null;
+        }
+        try (InputStream inputStream = connection.getInputStream()) {
+            byte[] buffer = contentLength > 0 && contentLength <= MAXIMUM_RESPONSE_LENGTH
+                    ? new byte[contentLength]
+                    : readBuffer.get();
+            int length = 0;
+            int bytesRead;
+            while ((bytesRead = inputStream.read(buffer, length, buffer.length - length)) >= 0) {
+                length += bytesRead;
+                if (length == buffer.length) {
+                    final int nextByte = length == contentLength
+                            ? inputStream.read()
+                            : -1;
+                    if (length == contentLength && nextByte < 0) {
+                        return ByteBuffer.wrap(buffer); // Read the entire response without copying.
+                    }
+                    if (length >= MAXIMUM_RESPONSE_LENGTH) {
+                        throw new IOException("Response is too large");
+                    }
+                    // Content length is unknown or wrong.
+                    byte[] largerBuffer = Arrays.copyOf(buffer, Math.min(MAXIMUM_RESPONSE_LENGTH, buffer.length * 2));
+                    if (nextByte >= 0) {
+                        largerBuffer[length++] = (byte) nextByte;
+                    }
+                    buffer = largerBuffer;
+                    if (contentLength < 0) {
+                        readBuffer.set(buffer);
+                    }
+                }
+            }
+            if (length == 0) {
+                return null;
+            }
+            return ByteBuffer.wrap(Arrays.copyOf(buffer, length));
+        }
     }
 
-    private static boolean isLiveStream(@NonNull JSONObject playerResponse) {
+    /**
+     * Returns the number of seconds until the stream urls expire.
+     * The response is a player response proto with only the streaming data field.
+     *
+     * @return The expiration, or -1 if not found.
+     */
+    static long parseExpiresInSeconds(@NonNull byte[] playerResponse) {
         try {
-            return playerResponse.getJSONObject("videoDetails").getBoolean("isLiveContent");
-        } catch (JSONException e) {
-            Logger.printDebug(() -> "Failed to get videoDetails for response: " + playerResponse);
+            ProtoReader reader = new ProtoReader(playerResponse, 0, playerResponse.length);
+            while (reader.hasRemaining()) {
+                final int tag = reader.readTag();
+                if (tag == ((PLAYER_RESPONSE_STREAMING_DATA_FIELD << 3) | ProtoReader.WIRE_TYPE_LENGTH_DELIMITED)) {
+                    final int length = reader.readLength();
+                    ProtoReader streamingData = new ProtoReader(playerResponse, reader.position, length);
+                    while (streamingData.hasRemaining()) {
+                        final int streamingDataTag = streamingData.readTag();
+                        if (streamingDataTag == ((STREAMING_DATA_EXPIRES_IN_SECONDS_FIELD << 3) | ProtoReader.WIRE_TYPE_VARINT)) {
+                            return streamingData.readVarint();
+                        }
+                        streamingData.skip(streamingDataTag);
+                    }
+                    return -1;
+                }
+                reader.skip(tag);
+            }
+        } catch (IllegalArgumentException ex) {
+            Logger.printDebug(() -> "Could not parse streaming data expiration: " + ex.getMessage());
         }
-
-        return false;
+        return -1;
     }
 
-    private static final String[] REQUEST_HEADER_KEYS = {
-            "Authorization", // Available only to logged in users.
-            "X-GOOG-API-FORMAT-VERSION",
-            "X-Goog-Visitor-Id"
-    };
-
+    /**
+     * Checks the playability status and video details of a player response
+     * requested with {@link PlayerRoutes#GET_STREAMING_DATA_AND_PLAYABILITY}.
+     *
+     * @return A player response with only the streaming data,
+     *         or null if the video is unplayable, is live content, or the response cannot be parsed.
+     */
     @Nullable
-    private static HttpURLConnection send(ClientType clientType, String videoId,
-                                          Map<String, String> playerHeaders) {
-        Objects.requireNonNull(clientType);
-        Objects.requireNonNull(videoId);
-        Objects.requireNonNull(playerHeaders);
+    static ByteBuffer getStreamingDataIfPlayable(@NonNull ByteBuffer response) {
+        final byte[] playerResponse = response.array();
+        final int offset = response.arrayOffset() + response.position();
+        try {
+            ProtoReader reader = new ProtoReader(playerResponse, offset, response.remaining());
+            int streamingDataStart = -1;
+            int streamingDataEnd = -1;
+            boolean hasOtherFields = false;
+            while (reader.hasRemaining()) {
+                final int fieldStart = reader.position;
+                final int tag = reader.readTag();
+                final int fieldNumber = tag >>> 3;
+                if ((tag & 0x7) == ProtoReader.WIRE_TYPE_LENGTH_DELIMITED
+                        && (fieldNumber == PLAYER_RESPONSE_PLAYABILITY_STATUS_FIELD
+                        || fieldNumber == PLAYER_RESPONSE_VIDEO_DETAILS_FIELD)) {
+                    // Only the requested field of each message is included,
+                    // so any non default value is a status other than OK or is live content.
+                    final int length = reader.readLength();
+                    ProtoReader message = new ProtoReader(playerResponse, reader.position, length);
+                    while (message.hasRemaining()) {
+                        final int messageTag = message.readTag();
+                        if ((messageTag & 0x7) != ProtoReader.WIRE_TYPE_VARINT) {
+                            message.skip(messageTag);
+                        } else if (message.readVarint() != 0) {
+                            return null;
+                        }
+                    }
+                    reader.position += length;
+                    hasOtherFields = true;
+                    continue;
+                }
+                reader.skip(tag);
+                if (tag == ((PLAYER_RESPONSE_STREAMING_DATA_FIELD << 3) | ProtoReader.WIRE_TYPE_LENGTH_DELIMITED)) {
+                    streamingDataStart = fieldStart;
+                    streamingDataEnd = reader.position;
+                } else {
+                    hasOtherFields = true;
+                }
+            }
+            if (streamingDataStart < 0) {
+                return null; // Unplayable videos have no streaming data.
+            }
+            if (!hasOtherFields) {
+                return response;
+            }
+            return ByteBuffer.wrap(Arrays.copyOfRange(playerResponse, streamingDataStart, streamingDataEnd));
+        } catch (IllegalArgumentException ex) {
+            Logger.printDebug(() -> "Could not parse playability: " + ex.getMessage());
+        }
+        return null;
+    }
 
-        final long startTime = System.currentTimeMillis();
-        String clientTypeName = clientType.name();
-        Logger.printDebug(() -> "Fetching video streams for: " + videoId + " using client: " + clientType.name());
+    /**
+     * Minimal protocol buffer reader, used only to find a few fields without parsing the entire response.
+     */
+    private static final class ProtoReader {
+        static final int WIRE_TYPE_VARINT = 0;
+        static final int WIRE_TYPE_FIXED_64 = 1;
+        static final int WIRE_TYPE_LENGTH_DELIMITED = 2;
+        static final int WIRE_TYPE_FIXED_32 = 5;
+
+        private final byte[] buffer;
+        private final int end;
+        int position;
+
+        ProtoReader(byte[] buffer, int start, int length) {
+            if (start < 0 || length < 0 || length > buffer.length - start) {
+                throw new IllegalArgumentException("Invalid length: " + length);
+            }
+            this.buffer = buffer;
+            this.position = start;
+            this.end = start + length;
+        }
 
-        try {
-            HttpURLConnection connection = PlayerRoutes.getPlayerResponseConnectionFromRoute(GET_STREAMING_DATA, clientType);
-            connection.setConnectTimeout(HTTP_TIMEOUT_MILLISECONDS);
-            connection.setReadTimeout(HTTP_TIMEOUT_MILLISECONDS);
-
-            for (String key : REQUEST_HEADER_KEYS) {
-                String value = playerHeaders.get(key);
-                if (value != null) {
-                    connection.setRequestProperty(key, value);
+        boolean hasRemaining() {
+            return position < end;
+        }
+
+        long readVarint() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                if (position >= end) {
+                    throw new IllegalArgumentException("Truncated varint");
+                }
+                final byte b = buffer[position++];
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
                 }
             }
+            throw new IllegalArgumentException("Malformed varint");
+        }
 
-            String innerTubeBody = PlayerRoutes.createInnertubeBody(clientType, videoId);
-            byte[] requestBody = innerTubeBody.getBytes(StandardCharsets.UTF_8);
-            connection.setFixedLengthStreamingMode(requestBody.length);
-            connection.getOutputStream().write(requestBody);
-
-            final int responseCode = connection.getResponseCode();
-            if (responseCode == 200) return connection;
-
-            handleConnectionError(clientTypeName + " not available with response code: "
-                            + responseCode + " message: " + connection.getResponseMessage(),
-                    null);
-        } catch (SocketTimeoutException ex) {
-            handleConnectionError("Connection timeout", ex);
-        } catch (IOException ex) {
-            handleConnectionError("Network error", ex);
-        } catch (Exception ex) {
-            Logger.printException(() -> "send failed", ex);
-        } finally {
-            Logger.printDebug(() -> "video: " + videoId + " took: " + (System.currentTimeMillis() - startTime) + "ms");
+        int readTag() {
+            return (int) readVarint();
         }
 
-        return null;
-    }
+        int readLength() {
+            final long length = readVarint();
+            if (length < 0 || length > end - position) {
+                throw new IllegalArgumentException("Invalid length: " + length);
+            }
+            return (int) length;
+        }
 
-    private static ByteBuffer fetch(@NonNull String videoId, Map<String, String> playerHeaders) {
-        lastSpoofedClientType = null;
+        void skip(int tag) {
+            switch (tag & 0x7) {
+                case WIRE_TYPE_VARINT -> readVarint();
+                case WIRE_TYPE_FIXED_64 -> skipBytes(8);
+                case WIRE_TYPE_LENGTH_DELIMITED -> skipBytes(readLength());
+                case WIRE_TYPE_FIXED_32 -> skipBytes(4);
+                default -> throw new IllegalArgumentException("Unsupported wire type: " + (tag & 0x7));
+            }
+        }
 
-        // Retry with different client if empty response body is received.
-        for (ClientType clientType : clientTypesToUse) {
-            if (isUnplayableOrLiveStream(clientType, videoId)) {
-                Logger.printDebug(() -> "Ignore IOS spoofing as it is unplayable or a live stream (video: " + videoId + ")");
-                continue;
+        private void skipBytes(int count) {
+            if (count > end - position) {
+                throw new IllegalArgumentException("Truncated field");
             }
+            position += count;
+        }
+    }
 
-            HttpURLConnection connection = send(clientType, videoId, playerHeaders);
-            if (connection != null) {
-                try {
-                    // gzip encoding doesn't response with content length (-1),
-                    // but empty response body does.
-                    if (connection.getContentLength() != 0) {
-                        try (InputStream inputStream = new BufferedInputStream(connection.getInputStream())) {
-                            try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-                                byte[] buffer = new byte[8192];
-                                int bytesRead;
-                                while ((bytesRead = inputStream.read(buffer)) >= 0) {
-                                    baos.write(buffer, 0, bytesRead);
-                                }
-                                lastSpoofedClientType = clientType;
-
-                                return ByteBuffer.wrap(baos.toByteArray());
-                            }
+    /**
+     * Requests the clients in order, and returns the first streaming data received.
+     * <p>
+     * If a client has not responded after the hedge delay,
+     * then the next client is also requested without waiting for the first client.
+     * If a client fails, the next client is requested immediately.
+     * Once any client succeeds all other requests are cancelled.
+     *
+     * @param hedgeDelayMilliseconds See {@link #HEDGE_DELAY_MILLISECONDS}. Checked each time before waiting,
+     *                               and while waiting if negative, so the fetch can start hedging.
+     * @return The request of the client with the streaming data, or null if all clients failed.
+     */
+    @Nullable
+    private static ClientRequest fetch(@NonNull String videoId, Map<String, String> playerHeaders,
+                                       IntSupplier hedgeDelayMilliseconds) {
+        ClientType[] clientTypes = getClientTypesInOrder();
+        BlockingQueue<ClientRequest> completedRequests = new LinkedBlockingQueue<>();
+        List<ClientRequest> requests = new ArrayList<>(clientTypes.length);
+        try {
+            int pendingCount = 0;
+            boolean startNextClient = true;
+            long lastStartTime = 0;
+            while (true) {
+                // Retry with different client if empty response body is received,
+                // even if the requests of other clients are still pending.
+                if (startNextClient && requests.size() < clientTypes.length) {
+                    startRequest(clientTypes[requests.size()], videoId, playerHeaders, completedRequests, requests);
+                    lastStartTime = System.currentTimeMillis();
+                    pendingCount++;
+                }
+                startNextClient = false;
+                if (pendingCount == 0) {
+                    break; // All clients failed.
+                }
+
+                final ClientRequest completed;
+                if (requests.size() < clientTypes.length) {
+                    final int hedgeDelay = hedgeDelayMilliseconds.getAsInt();
+                    final long waitMilliseconds = hedgeDelay < 0
+                            ? HEDGE_CHECK_INTERVAL_MILLISECONDS
+                            : Math.max(0, lastStartTime + hedgeDelay - System.currentTimeMillis());
+                    completed = completedRequests.poll(waitMilliseconds, TimeUnit.MILLISECONDS);
+                    if (completed == null) {
+                        if (hedgeDelay < 0) {
+                            continue;
                         }
+                        ClientType nextClientType = clientTypes[requests.size()];
+                        Logger.printDebug(() -> "Hedging video streams request with client: " + nextClientType);
+                        startRequest(nextClientType, videoId, playerHeaders, completedRequests, requests);
+                        lastStartTime = System.currentTimeMillis();
+                        pendingCount++;
+                        continue;
                     }
-                } catch (IOException ex) {
-                    Logger.printException(() -> "Fetch failed while processing response data", ex);
+                } else {
+                    completed = completedRequests.take();
+                }
+                pendingCount--;
+
+                if (completed.streamingData != null) {
+                    return completed;
                 }
+                startNextClient = true;
+            }
+        } catch (InterruptedException ex) {
+            Logger.printException(() -> "fetch interrupted", ex);
+            Thread.currentThread().interrupt(); // Restore interrupt status flag.
+            return null;
+        } finally {
+            for (ClientRequest request : requests) {
+                request.cancel();
             }
         }
 
@@ -252,29 +832,129 @@ public class StreamingDataRequest {
         return null;
     }
 
+    private static void startRequest(ClientType clientType, String videoId, Map<String, String> playerHeaders,
+                                     BlockingQueue<ClientRequest> completedRequests, List<ClientRequest> requests) {
+        ClientRequest request = new ClientRequest(clientType, videoId, playerHeaders, completedRequests);
+        requests.add(request);
+        request.start();
+    }
+
     private final String videoId;
+    @Nullable
+    private final String authorization;
     private final Future<ByteBuffer> future;
+    /**
+     * Time the stream urls expire, or zero if not known.
+     */
+    private volatile long expirationTime;
 
-    private StreamingDataRequest(String videoId, Map<String, String> playerHeaders) {
+    /**
+     * If this request is a prefetch of a video that was not yet played.
+     */
+    private volatile boolean isPrefetch;
+    /**
+     * If the fetch started. Prefetches can wait in the background queue.
+     */
+    private volatile boolean fetchStarted;
+    /**
+     * Client of the streams, or null if the fetch is not finished or failed.
+     */
+    @Nullable
+    private volatile ClientType clientType;
+    private final long timeFetched;
+
+    private StreamingDataRequest(String videoId, Map<String, String> playerHeaders, boolean isPrefetch) {
         Objects.requireNonNull(playerHeaders);
         this.videoId = videoId;
-        this.future = Utils.submitOnBackgroundThread(() -> fetch(videoId, playerHeaders));
+        this.authorization = playerHeaders.get("Authorization");
+        this.isPrefetch = isPrefetch;
+        this.timeFetched = System.currentTimeMillis();
+        if (isPrefetch) {
+            this.future = Utils.submitOnBackgroundThread(BackgroundLane.PREFETCH, () -> {
+                if (prefetchesInProgress.incrementAndGet() > Settings.SPOOF_STREAMING_DATA_PREFETCH_MAX_REQUESTS.get()) {
+                    prefetchesInProgress.decrementAndGet();
+                    Logger.printDebug(() -> "Skipping prefetch, too many prefetches in progress: " + videoId);
+                    return null;
+                }
+                try {
+                    return fetch(playerHeaders);
+                } finally {
+                    prefetchesInProgress.decrementAndGet();
+                }
+            });
+        } else {
+            lastSpoofedClientType = null;
+            this.future = Utils.submitOnBackgroundThread(BackgroundLane.PLAYBACK, () -> fetch(playerHeaders));
+        }
+    }
+
+    /**
+     * Prefetches are not urgent, so only request another client if one fails.
+     * Once the prefetched video is played, the fetch hedges the same as any other played video.
+     */
+    private int getHedgeDelayMilliseconds() {
+        return isPrefetch ? -1 : HEDGE_DELAY_MILLISECONDS;
+    }
+
+    @Nullable
+    private ByteBuffer fetch(Map<String, String> playerHeaders) {
+        fetchStarted = true;
+        ClientRequest completed = fetch(videoId, playerHeaders, this::getHedgeDelayMilliseconds);
+        if (completed == null) {
+            return null;
+        }
+        clientType = completed.clientType;
+        if (!isPrefetch) {
+            lastSpoofedClientType = completed.clientType;
+        }
+        ByteBuffer stream = completed.streamingData;
+        final long expiresInSeconds = parseExpiresInSeconds(stream.array());
+        if (expiresInSeconds > 0) {
+            expirationTime = timeFetched + expiresInSeconds * 1000;
+            Logger.printDebug(() -> "Video streams expire in: " + expiresInSeconds + " seconds (video: " + videoId + ")");
+        }
+        return stream;
+    }
+
+    /**
+     * @return If this request can be used instead of a new request, because it is still in progress
+     * or the stream urls do not expire soon, and it is for the same account.
+     */
+    private boolean canReuse(Map<String, String> playerHeaders) {
+        if (!Objects.equals(authorization, playerHeaders.get("Authorization"))) {
+            return false;
+        }
+        if (!future.isDone()) {
+            // A prefetch still waiting in the queue may not start soon.
+            return fetchStarted || !isPrefetch;
+        }
+        final long now = System.currentTimeMillis();
+        if (expirationTime == 0) {
+            // Expiration is unknown, but stream urls are valid for at least a few hours.
+            return clientType != null && now - timeFetched < UNKNOWN_EXPIRATION_REUSE_MILLISECONDS;
+        }
+        return expirationTime > now + EXPIRATION_MARGIN_MILLISECONDS;
     }
 
     public boolean fetchCompleted() {
         return future.isDone();
     }
 
+    /**
+     * @return The streaming data, with the position at the start.
+     * Each call returns a new buffer, but the data is not copied.
+     */
     @Nullable
     public ByteBuffer getStream() {
         try {
-            return future.get(MAX_MILLISECONDS_TO_WAIT_FOR_FETCH, TimeUnit.MILLISECONDS);
+            ByteBuffer stream = future.get(MAX_MILLISECONDS_TO_WAIT_FOR_FETCH, TimeUnit.MILLISECONDS);
+            return stream == null ? null : stream.duplicate();
         } catch (TimeoutException ex) {
             Logger.printInfo(() -> "getStream timed out", ex);
         } catch (InterruptedException ex) {
             Logger.printException(() -> "getStream interrupted", ex);
             Thread.currentThread().interrupt(); // Restore interrupt status flag.
-        } catch (ExecutionException ex) {
+        } catch (ExecutionException | CancellationException ex) {
             Logger.printException(() -> "getStream failure", ex);
         }
 
@@ -10,6 +10,7 @@ import androidx.annotation.NonNull;
 
 import app.kitsune.integrations.shared.settings.BaseSettings;
 import app.kitsune.integrations.shared.settings.BooleanSetting;
+import app.kitsune.integrations.shared.utils.ResourceUtils;
 import app.kitsune.integrations.youtube.utils.ExtendedUtils;
 
 @SuppressWarnings("unused")
@@ -23,6 +24,7 @@ public class InitializationPatch {
      * To fix this, show the restart dialog when the app is installed for the first time.
      */
     public static void onCreate(@NonNull Activity mActivity) {
+        ResourceUtils.preloadIdentifiers();
         if (SETTINGS_INITIALIZED.get()) {
             return;
         }
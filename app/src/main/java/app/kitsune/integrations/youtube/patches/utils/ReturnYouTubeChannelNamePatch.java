@@ -6,6 +6,7 @@ import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
+import app.kitsune.integrations.shared.patches.components.ConversionContextClassifier;
 import app.kitsune.integrations.shared.utils.Logger;
 import app.kitsune.integrations.youtube.settings.Settings;
 
@@ -18,6 +19,8 @@ public class ReturnYouTubeChannelNamePatch {
      * This was in the form of nonBreakSpaceCharacter before SpannableString was made.
      */
     private static final String NON_BREAK_SPACE_CHARACTER = "\u00A0";
+    private static final long REEL_CHANNEL_BAR_INNER =
+            ConversionContextClassifier.registerPattern("|reel_channel_bar_inner.eml|");
     private volatile static String channelName = "";
 
     /**
@@ -73,8 +76,7 @@ public class ReturnYouTubeChannelNamePatch {
             if (!REPLACE_CHANNEL_HANDLE) {
                 return charSequence;
             }
-            final String conversionContextString = conversionContext.toString();
-            if (!conversionContextString.contains("|reel_channel_bar_inner.eml|")) {
+            if (!ConversionContextClassifier.containsAny(conversionContext, REEL_CHANNEL_BAR_INNER)) {
                 return charSequence;
             }
             final String originalString = charSequence.toString();
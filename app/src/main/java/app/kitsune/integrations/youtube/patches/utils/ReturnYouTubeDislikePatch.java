@@ -20,6 +20,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 
+import app.kitsune.integrations.shared.patches.components.ConversionContextClassifier;
 import app.kitsune.integrations.shared.returnyoutubedislike.requests.ReturnYouTubeDislikeApi;
 import app.kitsune.integrations.shared.utils.Logger;
 import app.kitsune.integrations.shared.utils.Utils;
@@ -58,6 +59,19 @@ public class ReturnYouTubeDislikePatch {
     @Nullable
     private static volatile ReturnYouTubeDislike currentVideoData;
 
+    private static final long VIDEO_ACTION_BAR =
+            ConversionContextClassifier.registerPattern("video_action_bar.eml");
+    private static final long SEGMENTED_LIKE_DISLIKE_BUTTON =
+            ConversionContextClassifier.registerPattern("segmented_like_dislike_button.eml");
+    private static final long SHORTS_DISLIKE_BUTTON =
+            ConversionContextClassifier.registerPattern("|shorts_dislike_button.eml");
+    private static final long SHORTS_LIKE_BUTTON =
+            ConversionContextClassifier.registerPattern("|shorts_like_button.eml");
+    private static final long IMMERSIVE_LIVE_VIDEO_ACTION_BAR =
+            ConversionContextClassifier.registerPattern("immersive_live_video_action_bar.eml");
+    private static final long DISLIKE_BUTTON =
+            ConversionContextClassifier.registerPattern("|dislike_button.eml|");
+
     /**
      * The last litho based Shorts loaded.
      * May be the same value as {@link #currentVideoData}, but usually is the next short to swipe to.
@@ -132,13 +146,13 @@ public class ReturnYouTubeDislikePatch {
                 return original;
             }
 
-            String conversionContextString = conversionContext.toString();
+            final long contextPatterns = ConversionContextClassifier.classify(conversionContext);
 
-            if (isRollingNumber && !conversionContextString.contains("video_action_bar.eml")) {
+            if (isRollingNumber && (contextPatterns & VIDEO_ACTION_BAR) == 0) {
                 return original;
             }
 
-            if (conversionContextString.contains("segmented_like_dislike_button.eml")) {
+            if ((contextPatterns & SEGMENTED_LIKE_DISLIKE_BUTTON) != 0) {
                 // Regular video.
                 ReturnYouTubeDislike videoData = currentVideoData;
                 if (videoData == null) {
@@ -155,11 +169,11 @@ public class ReturnYouTubeDislikePatch {
                 return original; // No need to check for Shorts in the context.
             }
 
-            if (conversionContextString.contains("|shorts_dislike_button.eml")) {
+            if ((contextPatterns & SHORTS_DISLIKE_BUTTON) != 0) {
                 return getShortsSpan(original, true);
             }
 
-            if (conversionContextString.contains("|shorts_like_button.eml")
+            if ((contextPatterns & SHORTS_LIKE_BUTTON) != 0
                     && !Utils.containsNumber(original)) {
                 Logger.printDebug(() -> "Replacing hidden likes count");
                 return getShortsSpan(original, false);
@@ -188,7 +202,6 @@ public class ReturnYouTubeDislikePatch {
     public static CharSequence onCharSequenceLoaded(@NonNull Object conversionContext,
                                                     @NonNull CharSequence original) {
         try {
-            String conversionContextString = conversionContext.toString();
             if (!Settings.RYD_ENABLED.get()) {
                 return original;
             }
@@ -196,9 +209,10 @@ public class ReturnYouTubeDislikePatch {
                 return original;
             }
 
+            final long contextPatterns = ConversionContextClassifier.classify(conversionContext);
             final boolean fetchDislikeLiveStream =
-                    conversionContextString.contains("immersive_live_video_action_bar.eml")
-                            && conversionContextString.contains("|dislike_button.eml|");
+                    (contextPatterns & IMMERSIVE_LIVE_VIDEO_ACTION_BAR) != 0
+                            && (contextPatterns & DISLIKE_BUTTON) != 0;
 
             if (!fetchDislikeLiveStream) {
                 return original;
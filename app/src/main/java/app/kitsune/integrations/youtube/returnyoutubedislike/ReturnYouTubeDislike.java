@@ -31,20 +31,23 @@ import androidx.annotation.GuardedBy;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
-import java.util.HashMap;
-import java.util.Iterator;
 import java.util.Locale;
-import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import app.kitsune.integrations.shared.returnyoutubedislike.requests.RYDVoteData;
+import app.kitsune.integrations.shared.returnyoutubedislike.requests.RYDVoteStore;
 import app.kitsune.integrations.shared.returnyoutubedislike.requests.ReturnYouTubeDislikeApi;
+import app.kitsune.integrations.shared.utils.BackgroundLane;
+import app.kitsune.integrations.shared.utils.ExpiringCache;
 import app.kitsune.integrations.shared.utils.Logger;
 import app.kitsune.integrations.shared.utils.Utils;
 import app.kitsune.integrations.youtube.settings.Settings;
@@ -77,6 +80,12 @@ public class ReturnYouTubeDislike {
      */
     private static final long CACHE_TIMEOUT_FAILURE_MILLISECONDS = 3 * 60 * 1000; // 3 Minutes
 
+    /**
+     * How long to show votes saved by {@link RYDVoteStore}.
+     * Saved votes older than {@link #CACHE_TIMEOUT_SUCCESS_MILLISECONDS} are shown while the votes are fetched again.
+     */
+    private static final long STORED_VOTES_MAXIMUM_AGE_MILLISECONDS = 7 * 24 * 60 * 60 * 1000L; // 7 Days
+
     /**
      * Unique placeholder character, used to detect if a segmented span already has dislikes added to it.
      * Must be something YouTube is unlikely to use, as it's searched for in all usage of Rolling Number.
@@ -86,11 +95,40 @@ public class ReturnYouTubeDislike {
     public static final boolean IS_SPOOFING_TO_OLD_SEPARATOR_COLOR =
             isSpoofingToLessThan("18.10.00");
 
+    /**
+     * Maximum number of video ids to cache.
+     */
+    private static final int CACHE_MAXIMUM_SIZE = 200;
+
     /**
      * Cached lookup of all video ids.
+     * Unsuccessful fetches expire after the failure timeout, and successful fetches after the success timeout.
+     */
+    private static final ExpiringCache<String, ReturnYouTubeDislike> fetchCache = new ExpiringCache<>(
+            "RYD fetch cache",
+            CACHE_MAXIMUM_SIZE,
+            CACHE_TIMEOUT_FAILURE_MILLISECONDS,
+            CACHE_TIMEOUT_SUCCESS_MILLISECONDS,
+            ReturnYouTubeDislike::fetchSucceeded);
+
+    /**
+     * Maximum number of prefetched video ids to remember.
+     */
+    private static final int PREFETCH_MAXIMUM_SIZE = 500;
+
+    /**
+     * Video ids recently prefetched. Value is true once the prefetch task has run.
+     * Used so each video id seen in the feed is prefetched only once.
+     * <p>
+     * A prefetch task that is stale or rejected never runs, so the id is kept only until the task would be stale
+     * and is prefetched again if the video is still in the feed.
      */
-    @GuardedBy("itself")
-    private static final Map<String, ReturnYouTubeDislike> fetchCache = new HashMap<>();
+    private static final ExpiringCache<String, AtomicBoolean> prefetchedVideoIds = new ExpiringCache<>(
+            "RYD prefetch",
+            PREFETCH_MAXIMUM_SIZE,
+            BackgroundLane.PREFETCH.getStaleMillis(),
+            CACHE_TIMEOUT_SUCCESS_MILLISECONDS,
+            AtomicBoolean::get);
 
     /**
      * Used to send votes, one by one, in the same order the user created them.
@@ -138,6 +176,7 @@ public class ReturnYouTubeDislike {
         locale = resources.getConfiguration().getLocales().get(0);
 
         ReturnYouTubeDislikeApi.toastOnConnectionError = Settings.RYD_TOAST_ON_CONNECTION_ERROR.get();
+        RYDVoteStore.open();
     }
 
     private final String videoId;
@@ -145,8 +184,10 @@ public class ReturnYouTubeDislike {
     /**
      * Stores the results of the vote api fetch, and used as a barrier to wait until fetch completes.
      * Absolutely cannot be holding any lock during calls to {@link Future#get()}.
+     * <p>
+     * If stored votes were used, this is replaced with a completed future after the votes are fetched again.
      */
-    private final Future<RYDVoteData> future;
+    private volatile Future<RYDVoteData> future;
 
     /**
      * Time this instance and the fetch future was created.
@@ -407,63 +448,93 @@ public class ReturnYouTubeDislike {
     @NonNull
     public static ReturnYouTubeDislike getFetchForVideoId(@Nullable String videoId) {
         Objects.requireNonNull(videoId);
-        synchronized (fetchCache) {
-            // Remove any expired entries.
-            final long now = System.currentTimeMillis();
-            if (isSDKAbove(24)) {
-                fetchCache.values().removeIf(value -> {
-                    final boolean expired = value.isExpired(now);
-                    if (expired)
-                        Logger.printDebug(() -> "Removing expired fetch: " + value.videoId);
-                    return expired;
-                });
-            } else {
-                final Iterator<Map.Entry<String, ReturnYouTubeDislike>> itr = fetchCache.entrySet().iterator();
-                while (itr.hasNext()) {
-                    final Map.Entry<String, ReturnYouTubeDislike> entry = itr.next();
-                    if (entry.getValue().isExpired(now)) {
-                        Logger.printDebug(() -> "Removing expired fetch: " + entry.getValue().videoId);
-                        itr.remove();
-                    }
-                }
-            }
+        return fetchCache.get(videoId, ReturnYouTubeDislike::new);
+    }
 
-            ReturnYouTubeDislike fetch = fetchCache.get(videoId);
-            if (fetch == null) {
-                fetch = new ReturnYouTubeDislike(videoId);
-                fetchCache.put(videoId, fetch);
-            }
-            return fetch;
-        }
+    /**
+     * Fetches and saves the votes of a video that may be opened soon, such as a video in the feed.
+     * When the video is opened, the saved votes are shown without waiting for a fetch.
+     * <p>
+     * Fetches run on {@link BackgroundLane#PREFETCH}, so only a few run at once and
+     * fetches queued too long while scrolling are not done.
+     */
+    public static void prefetchVotes(@NonNull String videoId) {
+        Objects.requireNonNull(videoId);
+        prefetchedVideoIds.get(videoId, id -> {
+            AtomicBoolean prefetched = new AtomicBoolean();
+            Utils.runOnBackgroundThread(BackgroundLane.PREFETCH, () -> {
+                if (ReturnYouTubeDislikeApi.isRateLimitInEffect()) {
+                    return;
+                }
+                prefetched.set(true);
+                if (fetchCache.getIfPresent(id) != null
+                        || RYDVoteStore.get(id, CACHE_TIMEOUT_SUCCESS_MILLISECONDS) != null) {
+                    return;
+                }
+                Logger.printDebug(() -> "Prefetching votes for feed video: " + id);
+                fetchAndStoreVotes(id);
+            });
+            return prefetched;
+        });
     }
 
     /**
      * Should be called if the user changes dislikes appearance settings.
      */
     public static void clearAllUICaches() {
-        synchronized (fetchCache) {
-            for (ReturnYouTubeDislike fetch : fetchCache.values()) {
-                fetch.clearUICache();
-            }
-        }
+        fetchCache.forEachValue(ReturnYouTubeDislike::clearUICache);
     }
 
     private ReturnYouTubeDislike(@NonNull String videoId) {
         this.videoId = Objects.requireNonNull(videoId);
         this.timeFetched = System.currentTimeMillis();
-        this.future = Utils.submitOnBackgroundThread(() -> ReturnYouTubeDislikeApi.fetchVotes(videoId));
+
+        RYDVoteStore.StoredVoteData stored = RYDVoteStore.get(videoId, STORED_VOTES_MAXIMUM_AGE_MILLISECONDS);
+        if (stored == null) {
+            this.future = Utils.submitOnBackgroundThread(() -> fetchAndStoreVotes(videoId));
+            return;
+        }
+
+        final long storedAge = timeFetched - stored.timeFetched;
+        Logger.printDebug(() -> "Using stored votes for: " + videoId + " fetched " + (storedAge / 1000) + " seconds ago");
+        this.future = CompletableFuture.completedFuture(stored.voteData);
+        if (storedAge > CACHE_TIMEOUT_SUCCESS_MILLISECONDS) {
+            Utils.runOnBackgroundThread(BackgroundLane.PREFETCH, this::refreshStoredVotes);
+        }
     }
 
-    private boolean isExpired(long now) {
-        final long timeSinceCreation = now - timeFetched;
-        if (timeSinceCreation < CACHE_TIMEOUT_FAILURE_MILLISECONDS) {
-            return false; // Not expired, even if the API call failed.
+    @Nullable
+    private static RYDVoteData fetchAndStoreVotes(@NonNull String videoId) {
+        RYDVoteData voteData = ReturnYouTubeDislikeApi.fetchVotes(videoId);
+        if (voteData != null) {
+            RYDVoteStore.put(voteData);
         }
-        if (timeSinceCreation > CACHE_TIMEOUT_SUCCESS_MILLISECONDS) {
-            return true; // Always expired.
+        return voteData;
+    }
+
+    /**
+     * Fetches votes to replace the stored votes currently shown.
+     * The new votes are shown the next time the dislike span is created.
+     */
+    private void refreshStoredVotes() {
+        RYDVoteData voteData = fetchAndStoreVotes(videoId);
+        if (voteData == null) {
+            return; // Continue using the stored votes.
         }
-        // Only expired if the fetch failed (API null response).
-        return (!fetchCompleted() || getFetchData(MAX_MILLISECONDS_TO_BLOCK_UI_WAITING_FOR_FETCH) == null);
+        synchronized (this) {
+            if (userVote != null) {
+                voteData.updateUsingVote(userVote);
+            }
+            future = CompletableFuture.completedFuture(voteData);
+            clearUICache();
+        }
+    }
+
+    /**
+     * @return If the fetch completed and returned data. Does not wait for the fetch to complete.
+     */
+    private boolean fetchSucceeded() {
+        return fetchCompleted() && getFetchData(MAX_MILLISECONDS_TO_BLOCK_UI_WAITING_FOR_FETCH) != null;
     }
 
     @Nullable
@@ -472,7 +543,7 @@ public class ReturnYouTubeDislike {
             return future.get(maxTimeToWait, TimeUnit.MILLISECONDS);
         } catch (TimeoutException ex) {
             Logger.printDebug(() -> "Waited but future was not complete after: " + maxTimeToWait + "ms");
-        } catch (ExecutionException | InterruptedException ex) {
+        } catch (ExecutionException | CancellationException | InterruptedException ex) {
             Logger.printException(() -> "Future failure ", ex); // will never happen
         }
         return null;
@@ -547,7 +547,11 @@ public class Settings extends BaseSettings {
             "revanced_spoof_streaming_data_ios_force_avc_user_dialog_message", new SpoofStreamingDataPatch.ForceiOSAVCAvailability());
     public static final BooleanSetting SPOOF_STREAMING_DATA_IOS_COMPATIBILITY = new BooleanSetting("revanced_spoof_streaming_data_ios_compatibility", TRUE, true, new SpoofStreamingDataPatch.ForceiOSAVCAvailability());
     public static final EnumSetting<ClientType> SPOOF_STREAMING_DATA_TYPE = new EnumSetting<>("revanced_spoof_streaming_data_type", ClientType.IOS, true, parent(SPOOF_STREAMING_DATA));
+    public static final IntegerSetting SPOOF_STREAMING_DATA_HEDGE_DELAY = new IntegerSetting("revanced_spoof_streaming_data_hedge_delay", 1000, true, parent(SPOOF_STREAMING_DATA));
     public static final BooleanSetting SPOOF_STREAMING_DATA_STATS_FOR_NERDS = new BooleanSetting("revanced_spoof_streaming_data_stats_for_nerds", TRUE, parent(SPOOF_STREAMING_DATA));
+    public static final BooleanSetting SPOOF_STREAMING_DATA_PREFETCH = new BooleanSetting("revanced_spoof_streaming_data_prefetch", FALSE, parent(SPOOF_STREAMING_DATA));
+    public static final IntegerSetting SPOOF_STREAMING_DATA_PREFETCH_MAX_VIDEOS = new IntegerSetting("revanced_spoof_streaming_data_prefetch_max_videos", 2, parent(SPOOF_STREAMING_DATA_PREFETCH));
+    public static final IntegerSetting SPOOF_STREAMING_DATA_PREFETCH_MAX_REQUESTS = new IntegerSetting("revanced_spoof_streaming_data_prefetch_max_requests", 1, parent(SPOOF_STREAMING_DATA_PREFETCH));
 
     // PreferenceScreen: Return YouTube Dislike
     public static final BooleanSetting RYD_ENABLED = new BooleanSetting("ryd_enabled", TRUE);
@@ -557,6 +561,7 @@ public class Settings extends BaseSettings {
     public static final BooleanSetting RYD_COMPACT_LAYOUT = new BooleanSetting("ryd_compact_layout", FALSE, parent(RYD_ENABLED));
     public static final BooleanSetting RYD_ESTIMATED_LIKE = new BooleanSetting("ryd_estimated_like", FALSE, true, parent(RYD_ENABLED));
     public static final BooleanSetting RYD_TOAST_ON_CONNECTION_ERROR = new BooleanSetting("ryd_toast_on_connection_error", FALSE, parent(RYD_ENABLED));
+    public static final BooleanSetting RYD_PREFETCH_FEED = new BooleanSetting("ryd_prefetch_feed", FALSE, parent(RYD_ENABLED));
 
 
     // PreferenceScreen: SponsorBlock
@@ -575,6 +580,7 @@ public class Settings extends BaseSettings {
     public static final BooleanSetting SB_TRACK_SKIP_COUNT = new BooleanSetting("sb_track_skip_count", TRUE, parent(SB_ENABLED));
     public static final FloatSetting SB_SEGMENT_MIN_DURATION = new FloatSetting("sb_min_segment_duration", 0F, parent(SB_ENABLED));
     public static final BooleanSetting SB_VIDEO_LENGTH_WITHOUT_SEGMENTS = new BooleanSetting("sb_video_length_without_segments", FALSE, parent(SB_ENABLED));
+    public static final BooleanSetting SB_PREFETCH_FEED = new BooleanSetting("sb_prefetch_feed", FALSE, parent(SB_ENABLED));
     public static final StringSetting SB_API_URL = new StringSetting("sb_api_url", "https://sponsor.ajay.app", parent(SB_ENABLED));
     public static final BooleanSetting SB_USER_IS_VIP = new BooleanSetting("sb_user_is_vip", FALSE);
     public static final IntegerSetting SB_LOCAL_TIME_SAVED_NUMBER_SEGMENTS = new IntegerSetting("sb_local_time_saved_number_segments", 0);
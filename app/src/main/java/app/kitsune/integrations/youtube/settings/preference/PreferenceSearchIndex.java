@@ -0,0 +1,241 @@
+package app.kitsune.integrations.youtube.settings.preference;
+
+import android.preference.ListPreference;
+import android.preference.Preference;
+import android.preference.PreferenceGroup;
+import android.preference.SwitchPreference;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Search index of the settings, so each search does not convert the text of every preference.
+ * <p>
+ * The searchable text of each preference is its title, summary, and the summaries or entries of switch and list preferences,
+ * converted to lowercase once when the index is created.
+ * A preference matches if any of its text contains the query, the same as searching each text.
+ * <p>
+ * Each 3 character substring of the text is indexed, and only preferences with all substrings of the query are checked.
+ * If the query contains the previous query (the user typed more), only the previous matches are checked.
+ * <p>
+ * Preferences connected by dependencies are included together,
+ * so the index also stores the keys of each group of connected preferences.
+ * <p>
+ * The index does not update if a preference text changes, and must be created again.
+ * Class is not thread safe, and must be used only on the main thread.
+ */
+final class PreferenceSearchIndex {
+
+    private static final int GRAM_LENGTH = 3;
+
+    /**
+     * Separates the texts of a preference, so a query does not match across two texts.
+     */
+    private static final char TEXT_SEPARATOR = '\u0000';
+
+    /**
+     * Lowercase searchable text of each preference.
+     */
+    private final List<String> texts = new ArrayList<>();
+    private final List<Preference> preferences = new ArrayList<>();
+
+    /**
+     * Key: substring of {@link #GRAM_LENGTH} characters, Value: preferences with text containing the substring.
+     */
+    private final Map<String, BitSet> gramPreferences = new HashMap<>();
+
+    /**
+     * Key: preference key, Value: keys of all preferences connected to it by dependencies, including itself.
+     */
+    private final Map<String, List<String>> dependencyKeys = new HashMap<>();
+
+    /**
+     * Key: preference key, Value: the first preference with the key.
+     */
+    private final Map<String, Preference> keyPreferences = new HashMap<>();
+
+    @Nullable
+    private String lastQuery;
+    @Nullable
+    private BitSet lastMatches;
+
+    /**
+     * @param groupedPreferences Preferences grouped by their parent group.
+     * @param dependencyMap      Key: preference key, Value: preferences that depend on the key.
+     */
+    PreferenceSearchIndex(@NonNull Map<PreferenceGroup, List<Preference>> groupedPreferences,
+                          @NonNull Map<String, List<Preference>> dependencyMap) {
+        for (List<Preference> groupPreferences : groupedPreferences.values()) {
+            for (Preference preference : groupPreferences) {
+                final String text = getSearchableText(preference);
+                final int index = preferences.size();
+                preferences.add(preference);
+                texts.add(text);
+                for (int i = 0, end = text.length() - GRAM_LENGTH; i <= end; i++) {
+                    String gram = text.substring(i, i + GRAM_LENGTH);
+                    if (gram.indexOf(TEXT_SEPARATOR) < 0) {
+                        gramPreferences.computeIfAbsent(gram, k -> new BitSet()).set(index);
+                    }
+                }
+
+                final String key = preference.getKey();
+                if (key != null && !keyPreferences.containsKey(key)) {
+                    keyPreferences.put(key, preference);
+                }
+            }
+        }
+
+        createDependencyKeys(dependencyMap);
+    }
+
+    @NonNull
+    private static String getSearchableText(@NonNull Preference preference) {
+        StringBuilder builder = new StringBuilder();
+        appendText(builder, preference.getTitle());
+        appendText(builder, preference.getSummary());
+
+        if (preference instanceof SwitchPreference switchPreference) {
+            appendText(builder, switchPreference.getSummaryOn());
+            appendText(builder, switchPreference.getSummaryOff());
+        }
+
+        if (preference instanceof ListPreference listPreference) {
+            appendTexts(builder, listPreference.getEntries());
+            appendTexts(builder, listPreference.getEntryValues());
+        }
+
+        return builder.toString().toLowerCase();
+    }
+
+    private static void appendTexts(@NonNull StringBuilder builder, @Nullable CharSequence[] texts) {
+        if (texts != null) {
+            for (CharSequence text : texts) {
+                appendText(builder, text);
+            }
+        }
+    }
+
+    private static void appendText(@NonNull StringBuilder builder, @Nullable CharSequence text) {
+        if (text != null) {
+            builder.append(text).append(TEXT_SEPARATOR);
+        }
+    }
+
+    /**
+     * Groups the keys of preferences connected by dependencies, in either direction.
+     * Preferences without a key are not connected to anything.
+     */
+    private void createDependencyKeys(@NonNull Map<String, List<Preference>> dependencyMap) {
+        for (String key : keyPreferences.keySet()) {
+            if (dependencyKeys.containsKey(key)) {
+                continue;
+            }
+            List<String> connectedKeys = new ArrayList<>();
+            List<String> keysToVisit = new ArrayList<>();
+            keysToVisit.add(key);
+            dependencyKeys.put(key, connectedKeys);
+            while (!keysToVisit.isEmpty()) {
+                String connectedKey = keysToVisit.remove(keysToVisit.size() - 1);
+                connectedKeys.add(connectedKey);
+
+                List<String> neighborKeys = new ArrayList<>();
+                Preference preference = keyPreferences.get(connectedKey);
+                if (preference != null && preference.getDependency() != null
+                        && keyPreferences.containsKey(preference.getDependency())) {
+                    neighborKeys.add(preference.getDependency());
+                }
+                List<Preference> dependents = dependencyMap.get(connectedKey);
+                if (dependents != null) {
+                    for (Preference dependent : dependents) {
+                        if (dependent.getKey() != null) {
+                            neighborKeys.add(dependent.getKey());
+                        }
+                    }
+                }
+
+                for (String neighborKey : neighborKeys) {
+                    if (!dependencyKeys.containsKey(neighborKey)) {
+                        dependencyKeys.put(neighborKey, connectedKeys);
+                        keysToVisit.add(neighborKey);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @param key Preference key.
+     * @return The first preference with the key, or null if none exists.
+     */
+    @Nullable
+    Preference findPreference(@NonNull String key) {
+        return keyPreferences.get(key);
+    }
+
+    /**
+     * @param query Lowercase search query.
+     * @return Keys of the preferences that match the query, and the preferences connected to them by dependencies.
+     */
+    @NonNull
+    Set<String> getKeysToInclude(@NonNull String query) {
+        BitSet matches = search(query);
+        if (matches.isEmpty()) {
+            return Collections.emptySet();
+        }
+
+        Set<String> keysToInclude = new HashSet<>();
+        for (int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1)) {
+            final String key = preferences.get(i).getKey();
+            if (key != null && !keysToInclude.contains(key)) {
+                keysToInclude.addAll(dependencyKeys.get(key));
+            }
+        }
+        return keysToInclude;
+    }
+
+    @NonNull
+    private BitSet search(@NonNull String query) {
+        BitSet candidates;
+        if (lastQuery != null && query.contains(lastQuery)) {
+            // Anything that matches the query also matches the previous query.
+            candidates = (BitSet) lastMatches.clone();
+        } else if (query.length() >= GRAM_LENGTH) {
+            candidates = null;
+            for (int i = 0, end = query.length() - GRAM_LENGTH; i <= end; i++) {
+                BitSet gramMatches = gramPreferences.get(query.substring(i, i + GRAM_LENGTH));
+                if (gramMatches == null) {
+                    candidates = new BitSet();
+                    break;
+                }
+                if (candidates == null) {
+                    candidates = (BitSet) gramMatches.clone();
+                } else {
+                    candidates.and(gramMatches);
+                }
+            }
+        } else {
+            candidates = new BitSet(texts.size());
+            candidates.set(0, texts.size());
+        }
+
+        //noinspection ConstantConditions
+        for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+            if (!texts.get(i).contains(query)) {
+                candidates.clear(i);
+            }
+        }
+
+        lastQuery = query;
+        lastMatches = candidates;
+        return candidates;
+    }
+}
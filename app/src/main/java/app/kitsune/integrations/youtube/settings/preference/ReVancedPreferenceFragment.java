@@ -34,6 +34,8 @@ import android.view.ViewGroup;
 import android.widget.TextView;
 import android.widget.Toolbar;
 
+import androidx.annotation.Nullable;
+
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.FileWriter;
@@ -41,9 +43,11 @@ import java.io.IOException;
 import java.io.PrintWriter;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -80,6 +84,9 @@ public class ReVancedPreferenceFragment extends PreferenceFragment {
 
             if (mPreference == null) return;
 
+            // Summaries may change, so the search index is created again when next used.
+            searchIndex = null;
+
             if (mPreference instanceof SwitchPreference switchPreference) {
                 BooleanSetting boolSetting = (BooleanSetting) setting;
                 if (settingImportInProgress) {
@@ -228,10 +235,27 @@ public class ReVancedPreferenceFragment extends PreferenceFragment {
 
     // Map to store dependencies: key is the preference key, value is a list of dependent preferences
     private final Map<String, List<Preference>> dependencyMap = new HashMap<>();
-    // Set to track already added preferences to avoid duplicates
-    private final Set<String> addedPreferences = new HashSet<>();
     // Map to store preferences grouped by their parent PreferenceGroup
     private final Map<PreferenceGroup, List<Preference>> groupedPreferences = new LinkedHashMap<>();
+    // Search index of all preferences, created when first searched
+    @Nullable
+    private PreferenceSearchIndex searchIndex;
+    // Map to store the categories shown for the current search: key is the group of the category
+    private final Map<PreferenceGroup, SearchResultCategory> searchResultCategories = new HashMap<>();
+    // If the screen shows search results, instead of the original preferences
+    private boolean showingSearchResults;
+
+    /**
+     * A category of the search results, and the preferences it shows.
+     */
+    private static final class SearchResultCategory {
+        final PreferenceCategory category;
+        List<Preference> preferences = new ArrayList<>();
+
+        SearchResultCategory(PreferenceCategory category) {
+            this.category = category;
+        }
+    }
 
     @SuppressLint("ResourceType")
     @Override
@@ -358,147 +382,101 @@ public class ReVancedPreferenceFragment extends PreferenceFragment {
         // Convert the query to lowercase for case-insensitive search
         query = query.toLowerCase();
 
-        // Get the preference screen to modify
-        PreferenceScreen preferenceScreen = getPreferenceScreen();
-        // Remove all current preferences from the screen
-        preferenceScreen.removeAll();
-        // Clear the list of added preferences to start fresh
-        addedPreferences.clear();
+        // Identify all preferences that match the query and their dependencies
+        Set<String> keysToInclude = getSearchIndex().getKeysToInclude(query);
 
-        // Create a map to store matched preferences for each group
+        // Create a map to store the preferences to show for each group, maintaining the original order
         Map<PreferenceGroup, List<Preference>> matchedGroupPreferences = new LinkedHashMap<>();
 
-        // Create a set to store all keys that should be included
-        Set<String> keysToInclude = new HashSet<>();
-
-        // First pass: identify all preferences that match the query and their dependencies
         for (Map.Entry<PreferenceGroup, List<Preference>> entry : groupedPreferences.entrySet()) {
-            List<Preference> preferences = entry.getValue();
-            for (Preference preference : preferences) {
-                if (preferenceMatches(preference, query)) {
-                    addPreferenceAndDependencies(preference, keysToInclude);
-                }
-            }
-        }
+            List<Preference> categoryPreferences = new ArrayList<>();
+            // Set to track already added preferences of the category to avoid duplicates
+            Set<String> addedKeys = new HashSet<>();
 
-        // Second pass: add all identified preferences to matchedGroupPreferences
-        for (Map.Entry<PreferenceGroup, List<Preference>> entry : groupedPreferences.entrySet()) {
-            PreferenceGroup group = entry.getKey();
-            List<Preference> preferences = entry.getValue();
-            List<Preference> matchedPreferences = new ArrayList<>();
-
-            for (Preference preference : preferences) {
-                if (keysToInclude.contains(preference.getKey())) {
-                    matchedPreferences.add(preference);
+            for (Preference preference : entry.getValue()) {
+                if (!keysToInclude.contains(preference.getKey())) {
+                    continue;
                 }
-            }
-
-            if (!matchedPreferences.isEmpty()) {
-                matchedGroupPreferences.put(group, matchedPreferences);
-            }
-        }
-
-        // Add matched preferences to the screen, maintaining the original order
-        for (Map.Entry<PreferenceGroup, List<Preference>> entry : matchedGroupPreferences.entrySet()) {
-            PreferenceGroup group = entry.getKey();
-            List<Preference> matchedPreferences = entry.getValue();
-
-            // Add the category for this group
-            PreferenceCategory category = new PreferenceCategory(preferenceScreen.getContext());
-            category.setTitle(group.getTitle());
-            preferenceScreen.addPreference(category);
-
-            // Add matched preferences for this group
-            for (Preference preference : matchedPreferences) {
                 if (preference.isSelectable()) {
-                    addPreferenceWithDependencies(category, preference);
+                    addPreferenceWithDependencies(categoryPreferences, addedKeys, preference);
                 } else {
                     // For non-selectable preferences, just add them directly
-                    category.addPreference(preference);
+                    categoryPreferences.add(preference);
                 }
             }
+
+            if (!categoryPreferences.isEmpty()) {
+                matchedGroupPreferences.put(entry.getKey(), categoryPreferences);
+            }
         }
+
+        showSearchResults(matchedGroupPreferences);
     }
 
     /**
-     * Checks if a preference matches the given query.
+     * Updates the screen to show the search results, changing only the categories that are different.
      *
-     * @param preference The preference to check.
-     * @param query      The search query.
-     * @return True if the preference matches the query, false otherwise.
+     * @param matchedGroupPreferences Preferences to show for each group.
      */
-    private boolean preferenceMatches(Preference preference, String query) {
-        // Check if the title contains the query string
-        if (preference.getTitle().toString().toLowerCase().contains(query)) {
-            return true;
-        }
-
-        // Check if the summary contains the query string
-        if (preference.getSummary() != null && preference.getSummary().toString().toLowerCase().contains(query)) {
-            return true;
-        }
-
-        // Additional checks for SwitchPreference
-        if (preference instanceof SwitchPreference switchPreference) {
-            CharSequence summaryOn = switchPreference.getSummaryOn();
-            CharSequence summaryOff = switchPreference.getSummaryOff();
-
-            if ((summaryOn != null && summaryOn.toString().toLowerCase().contains(query)) ||
-                    (summaryOff != null && summaryOff.toString().toLowerCase().contains(query))) {
-                return true;
-            }
+    private void showSearchResults(Map<PreferenceGroup, List<Preference>> matchedGroupPreferences) {
+        PreferenceScreen preferenceScreen = getPreferenceScreen();
+        if (!showingSearchResults) {
+            preferenceScreen.removeAll();
+            searchResultCategories.clear();
+            showingSearchResults = true;
         }
 
-        // Additional checks for ListPreference
-        if (preference instanceof ListPreference listPreference) {
-            CharSequence[] entries = listPreference.getEntries();
-            if (entries != null) {
-                for (CharSequence entry : entries) {
-                    if (entry.toString().toLowerCase().contains(query)) {
-                        return true;
-                    }
+        // Removing a preference from a category unregisters it from its dependency,
+        // so every category with a removed preference must add its preferences again.
+        Set<Preference> removedPreferences = new HashSet<>();
+        boolean categoryCleared;
+        do {
+            categoryCleared = false;
+            for (Iterator<Map.Entry<PreferenceGroup, SearchResultCategory>> iterator
+                 = searchResultCategories.entrySet().iterator(); iterator.hasNext(); ) {
+                Map.Entry<PreferenceGroup, SearchResultCategory> entry = iterator.next();
+                SearchResultCategory shown = entry.getValue();
+                List<Preference> matchedPreferences = matchedGroupPreferences.get(entry.getKey());
+
+                if (matchedPreferences == null) {
+                    preferenceScreen.removePreference(shown.category);
+                    iterator.remove();
+                } else if (!shown.preferences.isEmpty() && (!shown.preferences.equals(matchedPreferences)
+                        || !Collections.disjoint(shown.preferences, removedPreferences))) {
+                    shown.category.removeAll();
+                    removedPreferences.addAll(shown.preferences);
+                    shown.preferences = new ArrayList<>();
+                    categoryCleared = true;
                 }
             }
-
-            CharSequence[] entryValues = listPreference.getEntryValues();
-            if (entryValues != null) {
-                for (CharSequence entryValue : entryValues) {
-                    if (entryValue.toString().toLowerCase().contains(query)) {
-                        return true;
-                    }
-                }
+        } while (categoryCleared);
+
+        // Add the new categories and refill the cleared categories, in the original group order
+        int groupOrder = 0;
+        for (PreferenceGroup group : groupedPreferences.keySet()) {
+            groupOrder++;
+            List<Preference> matchedPreferences = matchedGroupPreferences.get(group);
+            if (matchedPreferences == null) {
+                continue;
             }
-        }
 
-        return false;
-    }
-
-    /**
-     * Recursively adds a preference and its dependencies to the set of keys to include.
-     *
-     * @param preference    The preference to add.
-     * @param keysToInclude The set of keys to include.
-     */
-    private void addPreferenceAndDependencies(Preference preference, Set<String> keysToInclude) {
-        String key = preference.getKey();
-        if (key != null && !keysToInclude.contains(key)) {
-            keysToInclude.add(key);
-
-            // Add the preference this one depends on
-            String dependencyKey = preference.getDependency();
-            if (dependencyKey != null) {
-                Preference dependency = findPreferenceInAllGroups(dependencyKey);
-                if (dependency != null) {
-                    addPreferenceAndDependencies(dependency, keysToInclude);
-                }
+            SearchResultCategory shown = searchResultCategories.get(group);
+            if (shown == null) {
+                PreferenceCategory category = new PreferenceCategory(preferenceScreen.getContext());
+                category.setTitle(group.getTitle());
+                category.setOrder(groupOrder);
+                preferenceScreen.addPreference(category);
+                shown = new SearchResultCategory(category);
+                searchResultCategories.put(group, shown);
+            } else if (!shown.preferences.isEmpty()) {
+                continue; // Unchanged.
             }
 
-            // Add preferences that depend on this one
-            if (dependencyMap.containsKey(key)) {
-                for (Preference dependentPreference : Objects.requireNonNull(dependencyMap.get(key))) {
-                    addPreferenceAndDependencies(dependentPreference, keysToInclude);
-                }
+            // Dependencies are before their dependent preferences
+            for (Preference preference : matchedPreferences) {
+                shown.category.addPreference(preference);
             }
+            shown.preferences = matchedPreferences;
         }
     }
 
@@ -506,33 +484,33 @@ public class ReVancedPreferenceFragment extends PreferenceFragment {
      * Recursively adds a preference along with its dependencies
      * (android:dependency attribute in XML).
      *
-     * @param preferenceGroup The preference group to add to.
-     * @param preference      The preference to add.
+     * @param categoryPreferences The preferences of the category to add to.
+     * @param addedKeys           Keys of the preferences already added to the category.
+     * @param preference          The preference to add.
      */
-    private void addPreferenceWithDependencies(PreferenceGroup preferenceGroup, Preference preference) {
+    private void addPreferenceWithDependencies(List<Preference> categoryPreferences, Set<String> addedKeys,
+                                               Preference preference) {
         String key = preference.getKey();
 
-        // Instead of just using preference keys, we combine the category and key to ensure uniqueness
-        if (key != null && !addedPreferences.contains(preferenceGroup.getTitle() + ":" + key)) {
+        if (key != null && !addedKeys.contains(key)) {
             // Add dependencies first
             if (preference.getDependency() != null) {
                 String dependencyKey = preference.getDependency();
                 Preference dependency = findPreferenceInAllGroups(dependencyKey);
                 if (dependency != null) {
-                    addPreferenceWithDependencies(preferenceGroup, dependency);
+                    addPreferenceWithDependencies(categoryPreferences, addedKeys, dependency);
                 } else {
                     return;
                 }
             }
 
-            // Add the preference using a combination of the category and the key
-            preferenceGroup.addPreference(preference);
-            addedPreferences.add(preferenceGroup.getTitle() + ":" + key); // Track based on both category and key
+            categoryPreferences.add(preference);
+            addedKeys.add(key);
 
             // Handle dependent preferences
             if (dependencyMap.containsKey(key)) {
                 for (Preference dependentPreference : Objects.requireNonNull(dependencyMap.get(key))) {
-                    addPreferenceWithDependencies(preferenceGroup, dependentPreference);
+                    addPreferenceWithDependencies(categoryPreferences, addedKeys, dependentPreference);
                 }
             }
         }
@@ -545,20 +523,22 @@ public class ReVancedPreferenceFragment extends PreferenceFragment {
      * @return The found preference, or null if not found.
      */
     private Preference findPreferenceInAllGroups(String key) {
-        for (List<Preference> preferences : groupedPreferences.values()) {
-            for (Preference preference : preferences) {
-                if (preference.getKey() != null && preference.getKey().equals(key)) {
-                    return preference;
-                }
-            }
+        return getSearchIndex().findPreference(key);
+    }
+
+    private PreferenceSearchIndex getSearchIndex() {
+        if (searchIndex == null) {
+            searchIndex = new PreferenceSearchIndex(groupedPreferences, dependencyMap);
         }
-        return null;
+        return searchIndex;
     }
 
     /**
      * Resets the preference screen to its original state.
      */
     private void resetPreferences() {
+        showingSearchResults = false;
+        searchResultCategories.clear();
         PreferenceScreen preferenceScreen = getPreferenceScreen();
         preferenceScreen.removeAll();
         for (Preference preference : getAllPreferencesBy(originalPreferenceScreen))
@@ -3,52 +3,92 @@ package app.kitsune.integrations.youtube.shared;
 import static app.kitsune.integrations.youtube.shared.NavigationBar.NavigationButton.CREATE;
 
 import android.app.Activity;
+import android.os.SystemClock;
 import android.view.View;
 
+import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.WeakHashMap;
-import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.TimeUnit;
 
 import app.kitsune.integrations.shared.utils.Logger;
-import app.kitsune.integrations.shared.utils.Utils;
 import app.kitsune.integrations.youtube.settings.Settings;
 
 @SuppressWarnings("unused")
 public final class NavigationBar {
 
     /**
-     * How long to wait for the set nav button latch to be released.  Maximum wait time must
-     * be as small as possible while still allowing enough time for the nav bar to update.
+     * How long after the back button is pressed the navigation state is unsettled.
      * <p>
      * YT calls it's back button handlers out of order,
      * and litho starts filtering before the navigation bar is updated.
      * <p>
-     * Fixing this situation and not needlessly waiting requires somehow
-     * detecting if a back button key-press will cause a tab change.
-     * <p>
      * Typically after pressing the back button, the time between the first litho event and
-     * when the nav button is updated is about 10-20ms. Using 50-100ms here should be enough time
-     * and not noticeable, since YT typically takes 100-200ms (or more) to update the view anyways.
+     * when the nav button is updated is about 10-20ms. If the nav button is not updated after this time,
+     * then the back button did not change navigation tabs (which is the normal case).
+     */
+    private static final long UNSETTLED_TIMEOUT_MILLISECONDS = 75;
+
+    /**
+     * Immutable snapshot of the navigation state, that can be read from any thread without blocking.
      * <p>
-     * This issue can also be avoided on a patch by patch basis, by avoiding calls to
-     * {@link NavigationButton#getSelectedNavigationButton()} unless absolutely necessary.
+     * After the back button is pressed the state is unsettled, because the selected tab may be about to change.
+     * Code that depends on the tab can then use the last selected tab
+     * (the back button usually does not change tabs), or skip decisions that cannot be undone.
+     * Litho filters use the last selected tab, and do not stop hiding while the state is unsettled,
+     * because components are not filtered again after they are built.
      */
-    private static final long LATCH_AWAIT_TIMEOUT_MILLISECONDS = 75;
+    public static final class NavigationState {
+        /**
+         * Incremented on every change of the navigation state.
+         */
+        public final long version;
+        /**
+         * The last selected tab, or null if unknown.
+         */
+        @Nullable
+        public final NavigationButton button;
+        /**
+         * If the tab was selected after the last back button press.
+         */
+        private final boolean selected;
+        /**
+         * Time the state became unsettled, if not selected.
+         */
+        private final long unsettledTime;
+
+        private NavigationState(long version, @Nullable NavigationButton button, boolean selected, long unsettledTime) {
+            this.version = version;
+            this.button = button;
+            this.selected = selected;
+            this.unsettledTime = unsettledTime;
+        }
+
+        /**
+         * @return If the selected tab is not expected to change because of a recent back button press.
+         */
+        public boolean isSettled() {
+            return selected || SystemClock.uptimeMillis() - unsettledTime > UNSETTLED_TIMEOUT_MILLISECONDS;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return "NavigationState{version=" + version + ", button=" + button + ", settled=" + isSettled() + "}";
+        }
+    }
 
     /**
-     * Used as a workaround to fix the issue of YT calling back button handlers out of order.
-     * Used to hold calls to {@link NavigationButton#getSelectedNavigationButton()}
-     * until the current navigation button can be determined.
+     * Current navigation state.  Only changed from the main thread.
      * <p>
-     * Only used when the hardware back button is pressed.
+     * On app startup litho can start before the navigation bar is initialized,
+     * so the initial state is unsettled.
      */
-    @Nullable
-    private static volatile CountDownLatch navButtonLatch;
+    private static volatile NavigationState navigationState =
+            new NavigationState(0, null, false, SystemClock.uptimeMillis());
 
     /**
      * Map of nav button layout views to Enum type.
@@ -56,54 +96,19 @@ public final class NavigationBar {
      */
     private static final Map<View, NavigationButton> viewToButtonMap = new WeakHashMap<>();
 
-    static {
-        // On app startup litho can start before the navigation bar is initialized.
-        // Force it to wait until the nav bar is updated.
-        createNavButtonLatch();
-    }
-
-    private static void createNavButtonLatch() {
-        navButtonLatch = new CountDownLatch(1);
+    /**
+     * Never blocks, and can be called from any thread.
+     *
+     * @return The current navigation state.
+     */
+    @NonNull
+    public static NavigationState getNavigationState() {
+        return navigationState;
     }
 
-    private static void releaseNavButtonLatch() {
-        CountDownLatch latch = navButtonLatch;
-        if (latch != null) {
-            navButtonLatch = null;
-            latch.countDown();
-        }
-    }
-
-    private static void waitForNavButtonLatchIfNeeded() {
-        CountDownLatch latch = navButtonLatch;
-        if (latch == null) {
-            return;
-        }
-
-        if (Utils.isCurrentlyOnMainThread()) {
-            // The latch is released from the main thread, and waiting from the main thread will always timeout.
-            // This situation has only been observed when navigating out of a submenu and not changing tabs.
-            // and for that use case the nav bar does not change so it's safe to return here.
-            Logger.printDebug(() -> "Cannot block main thread waiting for nav button. Using last known navbar button status.");
-            return;
-        }
-
-        try {
-            Logger.printDebug(() -> "Latch wait started");
-            if (latch.await(LATCH_AWAIT_TIMEOUT_MILLISECONDS, TimeUnit.MILLISECONDS)) {
-                // Back button changed the navigation tab.
-                Logger.printDebug(() -> "Latch wait complete");
-                return;
-            }
-
-            // Timeout occurred, and a normal event when pressing the physical back button
-            // does not change navigation tabs.
-            releaseNavButtonLatch(); // Prevent other threads from waiting for no reason.
-            Logger.printDebug(() -> "Latch wait timed out");
-
-        } catch (InterruptedException ex) {
-            Logger.printException(() -> "Latch wait interrupted failure", ex); // Will never happen.
-        }
+    private static void setNavigationState(@Nullable NavigationButton button, boolean selected) {
+        NavigationState previous = navigationState;
+        navigationState = new NavigationState(previous.version + 1, button, selected, SystemClock.uptimeMillis());
     }
 
     /**
@@ -182,15 +187,12 @@ public final class NavigationBar {
                     Logger.printException(() -> "Unknown navigation view selected: " + navButtonImageView);
                 }
 
-                NavigationButton.selectedNavigationButton = null;
+                setNavigationState(null, true);
                 return;
             }
 
-            NavigationButton.selectedNavigationButton = button;
+            setNavigationState(button, true);
             Logger.printDebug(() -> "Changed to navigation button: " + button);
-
-            // Release any threads waiting for the selected nav button.
-            releaseNavButtonLatch();
         } catch (Exception ex) {
             Logger.printException(() -> "navigationTabSelected failure", ex);
         }
@@ -201,7 +203,8 @@ public final class NavigationBar {
      */
     public static void onBackPressed(Activity activity) {
         Logger.printDebug(() -> "Back button pressed");
-        createNavButtonLatch();
+        // The tab may change, but the last selected tab is still the most likely tab.
+        setNavigationState(navigationState.button, false);
     }
 
     /**
@@ -246,9 +249,6 @@ public final class NavigationBar {
                 "PIVOT_LIBRARY"
         );
 
-        @Nullable
-        private static volatile NavigationButton selectedNavigationButton;
-
         /**
          * This will return null only if the currently selected tab is unknown.
          * This scenario will only happen if the UI has different tabs due to an A/B user test
@@ -256,9 +256,9 @@ public final class NavigationBar {
          * <p>
          * All code calling this method should handle a null return value.
          * <p>
-         * <b>Due to issues with how YT processes physical back button events,
-         * this patch uses workarounds that can cause this method to take up to 75ms
-         * if the device back button was recently pressed.</b>
+         * This method never blocks. Shortly after the device back button is pressed
+         * this is the tab before the back button was pressed, even if the tab is about to change.
+         * Use {@link NavigationBar#getNavigationState()} to check if the tab can still change.
          *
          * @return The active navigation tab.
          * If the user is in the upload video UI, this returns tab that is still visually
@@ -266,8 +266,7 @@ public final class NavigationBar {
          */
         @Nullable
         public static NavigationButton getSelectedNavigationButton() {
-            waitForNavButtonLatchIfNeeded();
-            return selectedNavigationButton;
+            return navigationState.button;
         }
 
         /**
@@ -12,7 +12,10 @@ import java.util.List;
 
 import app.kitsune.integrations.shared.utils.Logger;
 import app.kitsune.integrations.shared.utils.Utils;
+import app.kitsune.integrations.youtube.patches.misc.SpoofStreamingDataPatch;
 import app.kitsune.integrations.youtube.patches.utils.AlwaysRepeatPatch;
+import app.kitsune.integrations.youtube.settings.Settings;
+import app.kitsune.integrations.youtube.sponsorblock.SegmentPlaybackController;
 
 /**
  * Hooking class for the current playing video.
@@ -52,6 +55,13 @@ public final class VideoInformation {
     private static volatile boolean playerResponseVideoIdIsShort;
     private static volatile boolean videoIdIsShort;
     private static volatile boolean playerResponseVideoIdIsAutoGeneratedMixPlaylist;
+    @Nullable
+    private static volatile String playerResponsePlaylistId;
+    /**
+     * Video of {@link #playerResponsePlaylistId}.
+     */
+    @NonNull
+    private static volatile String playerResponsePlaylistVideoId = "";
 
     /**
      * The current playback speed
@@ -201,6 +211,10 @@ public final class VideoInformation {
         videoLength = newlyLoadedVideoLength;
         videoIsLiveStream = newlyLoadedLiveStreamValue;
 
+        if (!newlyLoadedLiveStreamValue && !videoIdIsShort) {
+            SpoofStreamingDataPatch.prefetchNextVideo(newlyLoadedVideoId);
+        }
+
         Logger.printDebug(() ->
                 "channelId='" +
                         newlyLoadedChannelId +
@@ -305,6 +319,26 @@ public final class VideoInformation {
         return playerResponseVideoIdIsAutoGeneratedMixPlaylist;
     }
 
+    /**
+     * Player responses are also created for videos that are not opened, such as videos in the feed,
+     * so the playlist is known only if the last player response is of the video.
+     *
+     * @return The id of the playlist the video is playing in, an empty string if the video is not playing in a playlist
+     *         or is playing in an auto-generated YouTube Mix the user did not open,
+     *         or null if not known.
+     */
+    @Nullable
+    public static String getPlaylistIdOfVideo(@NonNull String videoId) {
+        if (!videoId.equals(playerResponsePlaylistVideoId)) {
+            return null;
+        }
+        final String playlistId = playerResponsePlaylistId;
+        if (playlistId == null || playerResponseVideoIdIsAutoGeneratedMixPlaylist) {
+            return "";
+        }
+        return playlistId;
+    }
+
     /**
      * @return If the player parameters are for a Short.
      */
@@ -340,6 +374,8 @@ public final class VideoInformation {
             }
         }
         playerResponseVideoIdIsAutoGeneratedMixPlaylist = isYoutubeMixId(playlistId) && !isMixPlaylistsOpenedByUser(playerParameter);
+        playerResponsePlaylistId = playlistId;
+        playerResponsePlaylistVideoId = videoId;
         return playerParameter; // Return the original value since we are observing and not modifying.
     }
 
@@ -351,6 +387,11 @@ public final class VideoInformation {
     public static void setPlayerResponseVideoId(@NonNull String videoId, boolean isShortAndOpeningOrPlaying) {
         if (!playerResponseVideoId.equals(videoId)) {
             playerResponseVideoId = videoId;
+            // Feed videos that are never opened also load a player response,
+            // so segments are only prefetched while the player is open, unless feed prefetching is enabled.
+            if (!playerResponseVideoIdIsShort && (RootView.isPlayerActive() || Settings.SB_PREFETCH_FEED.get())) {
+                SegmentPlaybackController.prefetchSegments(videoId);
+            }
         }
     }
 
@@ -20,6 +20,7 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Objects;
 
+import app.kitsune.integrations.shared.sponsorblock.SegmentBarRenderer;
 import app.kitsune.integrations.shared.utils.Logger;
 import app.kitsune.integrations.shared.utils.Utils;
 import app.kitsune.integrations.youtube.settings.Settings;
@@ -68,6 +69,11 @@ public class SegmentPlaybackController {
 
     @Nullable
     private static SponsorSegment[] segments;
+    /**
+     * Index of {@link #segments}. Null if no segments are loaded.
+     */
+    @Nullable
+    private static SegmentTimeline timeline;
     /**
      * Highlight segment, if one exists and the skip behavior is not set to {@link CategoryBehaviour#SHOW_IN_SEEKBAR}.
      */
@@ -108,6 +114,7 @@ public class SegmentPlaybackController {
     private static int sponsorBarAbsoluteLeft;
     private static int sponsorAbsoluteBarRight;
     private static int sponsorBarThickness;
+    private static final SegmentBarRenderer<SponsorSegment[]> segmentBarRenderer = new SegmentBarRenderer<>();
     private static SponsorSegment lastSegmentSkipped;
     private static long lastSegmentSkippedTime;
     private static int toastNumberOfSegmentsSkipped;
@@ -123,6 +130,7 @@ public class SegmentPlaybackController {
     private static void setSegments(@NonNull SponsorSegment[] videoSegments) {
         Arrays.sort(videoSegments);
         segments = videoSegments;
+        timeline = new SegmentTimeline(videoSegments);
         calculateTimeWithoutSegments();
 
         if (SegmentCategory.HIGHLIGHT.behaviour == CategoryBehaviour.SKIP_AUTOMATICALLY
@@ -174,6 +182,7 @@ public class SegmentPlaybackController {
         videoId = "";
         videoLength = 0;
         segments = null;
+        timeline = null;
         highlightSegment = null;
         highlightSegmentInitialShowEndTime = 0;
         timeWithoutSegments = null;
@@ -246,6 +255,22 @@ public class SegmentPlaybackController {
         }
     }
 
+    /**
+     * Downloads the segments of a video that may soon be played,
+     * such as a video that is opening or the next autoplay or playlist video.
+     * Segments are then available before the video starts, instead of after the first seconds of the video already played.
+     */
+    public static void prefetchSegments(@NonNull String videoIdToPrefetch) {
+        try {
+            if (!Settings.SB_ENABLED.get() || videoIdToPrefetch.equals(videoId) || Utils.isNetworkNotConnected()) {
+                return;
+            }
+            SBRequester.prefetchSegments(videoIdToPrefetch);
+        } catch (Exception ex) {
+            Logger.printException(() -> "prefetchSegments failure", ex);
+        }
+    }
+
     /**
      * Id of the last video opened.  Includes Shorts.
      *
@@ -337,41 +362,40 @@ public class SegmentPlaybackController {
             SponsorSegment foundSegmentCurrentlyPlaying = null;
             SponsorSegment foundUpcomingSegment = null;
 
-            for (final SponsorSegment segment : segments) {
-                if (segment.category.behaviour == CategoryBehaviour.SHOW_IN_SEEKBAR
-                        || segment.category.behaviour == CategoryBehaviour.IGNORE
-                        || segment.category == SegmentCategory.HIGHLIGHT) {
-                    continue;
-                }
-                if (segment.end <= millis) {
-                    continue; // past this segment
-                }
+            SegmentTimeline currentTimeline = Objects.requireNonNull(timeline);
+            if (currentTimeline.isOutdated()) {
+                Logger.printDebug(() -> "Category behaviour changed, updating segment timeline");
+                currentTimeline = new SegmentTimeline(segments);
+                timeline = currentTimeline;
+            }
 
-                if (segment.start <= millis) {
-                    // we are in the segment!
-                    if (segment.shouldAutoSkip()) {
-                        skipSegment(segment, false);
-                        return; // must return, as skipping causes a recursive call back into this method
-                    }
+            for (final SponsorSegment segment : currentTimeline.getSegmentsContaining(millis)) {
+                // we are in the segment!
+                if (segment.shouldAutoSkip()) {
+                    skipSegment(segment, false);
+                    return; // must return, as skipping causes a recursive call back into this method
+                }
 
-                    // first found segment, or it's an embedded segment and fully inside the outer segment
-                    if (foundSegmentCurrentlyPlaying == null || foundSegmentCurrentlyPlaying.containsSegment(segment)) {
-                        // If the found segment is not currently displayed, then do not show if the segment is nearly over.
-                        // This check prevents the skip button text from rapidly changing when multiple segments end at nearly the same time.
-                        // Also prevents showing the skip button if user seeks into the last 800ms of the segment.
-                        final long minMillisOfSegmentRemainingThreshold = 800;
-                        if (segmentCurrentlyPlaying == segment
-                                || !segment.endIsNear(millis, minMillisOfSegmentRemainingThreshold)) {
-                            foundSegmentCurrentlyPlaying = segment;
-                        } else {
-                            Logger.printDebug(() -> "Ignoring segment that ends very soon: " + segment);
-                        }
+                // first found segment, or it's an embedded segment and fully inside the outer segment
+                if (foundSegmentCurrentlyPlaying == null || foundSegmentCurrentlyPlaying.containsSegment(segment)) {
+                    // If the found segment is not currently displayed, then do not show if the segment is nearly over.
+                    // This check prevents the skip button text from rapidly changing when multiple segments end at nearly the same time.
+                    // Also prevents showing the skip button if user seeks into the last 800ms of the segment.
+                    final long minMillisOfSegmentRemainingThreshold = 800;
+                    if (segmentCurrentlyPlaying == segment
+                            || !segment.endIsNear(millis, minMillisOfSegmentRemainingThreshold)) {
+                        foundSegmentCurrentlyPlaying = segment;
+                    } else {
+                        Logger.printDebug(() -> "Ignoring segment that ends very soon: " + segment);
                     }
-                    // Keep iterating and looking. There may be an upcoming autoskip,
-                    // or there may be another smaller segment nested inside this segment
-                    continue;
                 }
+                // Keep iterating and looking. There may be an upcoming autoskip,
+                // or there may be another smaller segment nested inside this segment
+            }
 
+            for (int i = currentTimeline.getFirstSegmentIndexStartingAfter(millis),
+                 count = currentTimeline.getPlaybackSegmentCount(); i < count; i++) {
+                final SponsorSegment segment = currentTimeline.getPlaybackSegment(i);
                 // segment is upcoming
                 if (startTimerLookAheadThreshold < segment.start) {
                     break; // segment is not close enough to schedule, and no segments after this are of interest
@@ -715,36 +739,12 @@ public class SegmentPlaybackController {
     @SuppressLint("DefaultLocale")
     private static void calculateTimeWithoutSegments() {
         if (!Settings.SB_VIDEO_LENGTH_WITHOUT_SEGMENTS.get() || videoLength <= 0
-                || segments == null || segments.length == 0) {
+                || timeline == null || !timeline.hasNonHighlightSegments) {
             timeWithoutSegments = null;
             return;
         }
 
-        boolean foundNonhighlightSegments = false;
-        long timeWithoutSegmentsValue = videoLength;
-
-        for (int i = 0, length = segments.length; i < length; i++) {
-            SponsorSegment segment = segments[i];
-            if (segment.category == SegmentCategory.HIGHLIGHT) {
-                continue;
-            }
-            foundNonhighlightSegments = true;
-            long start = segment.start;
-            final long end = segment.end;
-            // To prevent nested segments from incorrectly counting additional time,
-            // check if the segment overlaps any earlier segments.
-            for (int j = 0; j < i; j++) {
-                start = Math.max(start, segments[j].end);
-            }
-            if (start < end) {
-                timeWithoutSegmentsValue -= (end - start);
-            }
-        }
-
-        if (!foundNonhighlightSegments) {
-            timeWithoutSegments = null;
-            return;
-        }
+        final long timeWithoutSegmentsValue = videoLength - timeline.segmentsTotalLength;
 
         final long hours = timeWithoutSegmentsValue / 3600000;
         final long minutes = (timeWithoutSegmentsValue / 60000) % 60;
@@ -770,28 +770,33 @@ public class SegmentPlaybackController {
      */
     public static void drawSponsorTimeBars(final Canvas canvas, final float posY) {
         try {
-            if (segments == null) return;
+            final SponsorSegment[] currentSegments = segments;
+            if (currentSegments == null) return;
             if (videoLength <= 0) return;
 
-            final int thicknessDiv2 = sponsorBarThickness / 2; // rounds down
-            final float top = posY - (sponsorBarThickness - thicknessDiv2);
-            final float bottom = posY + thicknessDiv2;
-            final float videoMillisecondsToPixels = (1f / videoLength) * (sponsorAbsoluteBarRight - sponsorBarAbsoluteLeft);
-            final float leftPadding = sponsorBarAbsoluteLeft;
-
-            for (SponsorSegment segment : segments) {
-                final float left = leftPadding + segment.start * videoMillisecondsToPixels;
-                final float right;
-                if (segment.category == SegmentCategory.HIGHLIGHT) {
-                    right = left + getHighlightSegmentTimeBarScreenWidth();
-                } else {
-                    right = leftPadding + segment.end * videoMillisecondsToPixels;
-                }
-                canvas.drawRect(left, top, right, bottom, segment.category.paint);
-            }
+            segmentBarRenderer.draw(canvas, posY, currentSegments, SegmentCategory.getColorVersion(), videoLength,
+                    sponsorBarAbsoluteLeft, sponsorAbsoluteBarRight, sponsorBarThickness,
+                    SegmentPlaybackController::drawSegments);
         } catch (Exception ex) {
             Logger.printException(() -> "drawSponsorTimeBars failure", ex);
         }
     }
 
+    /**
+     * Draws the segments to the seekbar image of {@link #segmentBarRenderer}.
+     */
+    private static void drawSegments(Canvas imageCanvas, SponsorSegment[] segments,
+                                     float videoMillisecondsToPixels, float imageHeight) {
+        for (SponsorSegment segment : segments) {
+            final float left = segment.start * videoMillisecondsToPixels;
+            final float right;
+            if (segment.category == SegmentCategory.HIGHLIGHT) {
+                right = left + getHighlightSegmentTimeBarScreenWidth();
+            } else {
+                right = segment.end * videoMillisecondsToPixels;
+            }
+            imageCanvas.drawRect(left, 0, right, imageHeight, segment.category.paint);
+        }
+    }
+
 }
@@ -0,0 +1,193 @@
+package app.kitsune.integrations.youtube.sponsorblock;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import app.kitsune.integrations.youtube.sponsorblock.objects.CategoryBehaviour;
+import app.kitsune.integrations.youtube.sponsorblock.objects.SegmentCategory;
+import app.kitsune.integrations.youtube.sponsorblock.objects.SponsorSegment;
+
+/**
+ * Immutable index of the segments of a video, created once when the segments are loaded
+ * so each playback time update does not need to check every segment.
+ * <p>
+ * The video is divided at every segment start and end into intervals,
+ * and each interval has the segments that contain it.
+ * Finding the segments that contain a video time is then a binary search,
+ * and upcoming segments are found with a binary search of the segment start times.
+ * <p>
+ * Only segments that can be skipped during playback are indexed. Segments only shown in the seekbar,
+ * ignored segments, and highlights are not included.
+ * The category behaviours are resolved when the timeline is created,
+ * and a new timeline must be created if any category behaviour changes.
+ */
+final class SegmentTimeline {
+
+    private static final SponsorSegment[] NO_SEGMENTS = new SponsorSegment[0];
+
+    /**
+     * Value of {@link SegmentCategory#getBehaviourVersion()} when this timeline was created.
+     */
+    final int behaviourVersion;
+
+    /**
+     * Segments that can be skipped during playback, in sorted order.
+     */
+    @NonNull
+    private final SponsorSegment[] playbackSegments;
+
+    /**
+     * Start time of each segment in {@link #playbackSegments}.
+     */
+    @NonNull
+    private final long[] playbackSegmentStarts;
+
+    /**
+     * All distinct segment start and end times, in ascending order.
+     */
+    @NonNull
+    private final long[] boundaries;
+
+    /**
+     * The segments containing the interval from boundary i until boundary i + 1, in sorted order.
+     */
+    @NonNull
+    private final SponsorSegment[][] intervalSegments;
+
+    /**
+     * Total length of all non highlight segments, with overlapping segments counted only once.
+     * Includes segments that are only shown in the seekbar.
+     */
+    final long segmentsTotalLength;
+
+    /**
+     * If any segment is not a highlight.
+     */
+    final boolean hasNonHighlightSegments;
+
+    /**
+     * @param segments All segments of the video, in sorted order.
+     */
+    SegmentTimeline(@NonNull SponsorSegment[] segments) {
+        behaviourVersion = SegmentCategory.getBehaviourVersion();
+
+        List<SponsorSegment> playback = new ArrayList<>(segments.length);
+        long totalLength = 0;
+        long coveredUntil = Long.MIN_VALUE;
+        boolean foundNonHighlightSegments = false;
+        for (SponsorSegment segment : segments) {
+            if (segment.category == SegmentCategory.HIGHLIGHT) {
+                continue;
+            }
+            foundNonHighlightSegments = true;
+            // Segments are sorted by start time, so a single sweep finds the covered time.
+            final long start = Math.max(segment.start, coveredUntil);
+            if (start < segment.end) {
+                totalLength += segment.end - start;
+                coveredUntil = segment.end;
+            }
+
+            if (segment.category.behaviour != CategoryBehaviour.SHOW_IN_SEEKBAR
+                    && segment.category.behaviour != CategoryBehaviour.IGNORE) {
+                playback.add(segment);
+            }
+        }
+        segmentsTotalLength = totalLength;
+        hasNonHighlightSegments = foundNonHighlightSegments;
+
+        playbackSegments = playback.toArray(NO_SEGMENTS);
+        final int segmentCount = playbackSegments.length;
+        playbackSegmentStarts = new long[segmentCount];
+        long[] allBoundaries = new long[segmentCount * 2];
+        for (int i = 0; i < segmentCount; i++) {
+            SponsorSegment segment = playbackSegments[i];
+            playbackSegmentStarts[i] = segment.start;
+            allBoundaries[i * 2] = segment.start;
+            allBoundaries[i * 2 + 1] = segment.end;
+        }
+
+        // Remove duplicate boundaries.
+        Arrays.sort(allBoundaries);
+        int boundaryCount = 0;
+        for (long boundary : allBoundaries) {
+            if (boundaryCount == 0 || allBoundaries[boundaryCount - 1] != boundary) {
+                allBoundaries[boundaryCount++] = boundary;
+            }
+        }
+        boundaries = Arrays.copyOf(allBoundaries, boundaryCount);
+
+        final int intervalCount = Math.max(0, boundaryCount - 1);
+        intervalSegments = new SponsorSegment[intervalCount][];
+        List<SponsorSegment> containing = new ArrayList<>();
+        for (int i = 0; i < intervalCount; i++) {
+            final long intervalStart = boundaries[i];
+            final long intervalEnd = boundaries[i + 1];
+            containing.clear();
+            for (SponsorSegment segment : playbackSegments) {
+                if (intervalStart < segment.start) {
+                    break; // This and all remaining segments start after this interval.
+                }
+                if (intervalEnd <= segment.end) {
+                    containing.add(segment);
+                }
+            }
+            intervalSegments[i] = containing.isEmpty()
+                    ? NO_SEGMENTS
+                    : containing.toArray(NO_SEGMENTS);
+        }
+    }
+
+    /**
+     * @return If the category behaviours changed since this timeline was created.
+     */
+    boolean isOutdated() {
+        return behaviourVersion != SegmentCategory.getBehaviourVersion();
+    }
+
+    /**
+     * @return The playback segments that contain the video time, in sorted order.
+     * Nested segments are after the segments containing them.
+     */
+    @NonNull
+    SponsorSegment[] getSegmentsContaining(long videoTime) {
+        // Index of the last boundary at or before the video time.
+        int index = Arrays.binarySearch(boundaries, videoTime);
+        if (index < 0) {
+            index = -index - 2;
+        }
+        if (index < 0 || index >= intervalSegments.length) {
+            return NO_SEGMENTS; // Before the first segment or after the last segment.
+        }
+        return intervalSegments[index];
+    }
+
+    /**
+     * @return Index of the first playback segment that starts after the video time,
+     * or {@link #getPlaybackSegmentCount()} if no segment starts after the video time.
+     */
+    int getFirstSegmentIndexStartingAfter(long videoTime) {
+        int low = 0;
+        int high = playbackSegmentStarts.length;
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (playbackSegmentStarts[middle] <= videoTime) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    int getPlaybackSegmentCount() {
+        return playbackSegments.length;
+    }
+
+    @NonNull
+    SponsorSegment getPlaybackSegment(int index) {
+        return playbackSegments[index];
+    }
+}
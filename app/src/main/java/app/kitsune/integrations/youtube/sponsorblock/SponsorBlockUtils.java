@@ -19,6 +19,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import app.kitsune.integrations.shared.utils.BackgroundLane;
 import app.kitsune.integrations.shared.utils.Logger;
 import app.kitsune.integrations.shared.utils.Utils;
 import app.kitsune.integrations.youtube.settings.Settings;
@@ -179,7 +180,8 @@ public class SponsorBlockUtils {
                         SegmentVote voteOption = voteOptions[which1];
                         switch (voteOption) {
                             case UPVOTE, DOWNVOTE ->
-                                    SBRequester.voteForSegmentOnBackgroundThread(segment, voteOption);
+                                    SBRequester.voteForSegmentOnBackgroundThread(
+                                            SegmentPlaybackController.getVideoId(), segment, voteOption);
                             case CATEGORY_CHANGE -> onNewCategorySelect(segment, context);
                         }
                     })
@@ -319,7 +321,8 @@ public class SponsorBlockUtils {
 
             new AlertDialog.Builder(context)
                     .setTitle(str("revanced_sb_new_segment_choose_category"))
-                    .setItems(titles, (dialog, which) -> SBRequester.voteToChangeCategoryOnBackgroundThread(segment, values[which]))
+                    .setItems(titles, (dialog, which) -> SBRequester.voteToChangeCategoryOnBackgroundThread(
+                            SegmentPlaybackController.getVideoId(), segment, values[which]))
                     .show();
         } catch (Exception ex) {
             Logger.printException(() -> "onNewCategorySelect failure", ex);
@@ -356,7 +359,7 @@ public class SponsorBlockUtils {
         Settings.SB_LOCAL_TIME_SAVED_NUMBER_SEGMENTS.save(Settings.SB_LOCAL_TIME_SAVED_NUMBER_SEGMENTS.get() + 1);
 
         if (Settings.SB_TRACK_SKIP_COUNT.get()) {
-            Utils.runOnBackgroundThread(() -> SBRequester.sendSegmentSkippedViewedRequest(segment));
+            Utils.runOnBackgroundThread(BackgroundLane.HOUSEKEEPING, () -> SBRequester.sendSegmentSkippedViewedRequest(segment));
         }
     }
 
@@ -126,12 +126,37 @@ public enum SegmentCategory {
         return mValuesMap.get(key);
     }
 
+    /**
+     * Incremented each time the enabled categories are updated.
+     */
+    private static int behaviourVersion;
+
+    /**
+     * @return A value that changes every time the behaviour of any category may have changed.
+     */
+    public static int getBehaviourVersion() {
+        return behaviourVersion;
+    }
+
+    /**
+     * Incremented each time the color of any category is changed.
+     */
+    private static int colorVersion;
+
+    /**
+     * @return A value that changes every time the color of any category is changed.
+     */
+    public static int getColorVersion() {
+        return colorVersion;
+    }
+
     /**
      * Must be called if behavior of any category is changed
      */
     public static void updateEnabledCategories() {
         Utils.verifyOnMainThread();
         Logger.printDebug(() -> "updateEnabledCategories");
+        behaviourVersion++;
         SegmentCategory[] categories = categoriesWithoutUnsubmitted();
         List<String> enabledCategories = new ArrayList<>(categories.length);
         for (SegmentCategory category : categories) {
@@ -277,6 +302,7 @@ public enum SegmentCategory {
         this.color = color;
         paint.setColor(color);
         paint.setAlpha(255);
+        colorVersion++;
         colorSetting.save(colorString); // Save after parsing.
     }
 
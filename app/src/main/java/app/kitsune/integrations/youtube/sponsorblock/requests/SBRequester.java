@@ -12,14 +12,28 @@ import org.json.JSONObject;
 import java.io.IOException;
 import java.net.HttpURLConnection;
 import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import app.kitsune.integrations.shared.requests.Requester;
 import app.kitsune.integrations.shared.requests.Route;
 import app.kitsune.integrations.shared.sponsorblock.requests.SBRoutes;
+import app.kitsune.integrations.shared.utils.BackgroundLane;
+import app.kitsune.integrations.shared.utils.ExpiringCache;
 import app.kitsune.integrations.shared.utils.Logger;
 import app.kitsune.integrations.shared.utils.Utils;
 import app.kitsune.integrations.youtube.settings.Settings;
@@ -47,6 +61,34 @@ public class SBRequester {
      */
     private static final int HTTP_STATUS_CODE_SUCCESS = 200;
 
+    /**
+     * Number of hex characters of the video id hash sent when requesting segments.
+     */
+    private static final int HASH_PREFIX_LENGTH = 4;
+
+    /**
+     * Video ids recently prefetched. Value is if the prefetch task ran.
+     * A prefetch that goes stale or is rejected by the lane never runs,
+     * and can be prefetched again once a queued task would have gone stale.
+     */
+    private static final ExpiringCache<String, AtomicBoolean> prefetchedVideoIds = new ExpiringCache<>(
+            "SB prefetch",
+            500,
+            BackgroundLane.PREFETCH.getStaleMillis(),
+            TimeUnit.MINUTES.toMillis(10),
+            AtomicBoolean::get
+    );
+
+    /**
+     * Hash prefix requests in progress.
+     */
+    private static final ConcurrentHashMap<String, CompletableFuture<Map<String, JSONArray>>> hashPrefixRequests
+            = new ConcurrentHashMap<>();
+
+    static {
+        SegmentCache.open();
+    }
+
     private SBRequester() {
     }
 
@@ -59,58 +101,221 @@ public class SBRequester {
         }
     }
 
+    /**
+     * Segments are requested using a prefix of the SHA-256 hash of the video id,
+     * so the server does not know which video is being watched.
+     * The response includes all videos with the same hash prefix.
+     */
     @NonNull
     public static SponsorSegment[] getSegments(@NonNull String videoId) {
         Utils.verifyOffMainThread();
+        final String categories = SegmentCategory.sponsorBlockAPIFetchCategories;
+        try {
+            String cachedSegments = SegmentCache.get(videoId, categories);
+            if (cachedSegments != null) {
+                Logger.printDebug(() -> "Using cached segments for video: " + videoId);
+                return parseSegments(new JSONArray(cachedSegments));
+            }
+
+            Map<String, JSONArray> response = getSegmentsForHashPrefix(getHashPrefix(videoId), categories, true);
+            if (response == null) {
+                return new SponsorSegment[0];
+            }
+            JSONArray videoSegments = saveSegments(videoId, categories, response);
+            if (videoSegments == null) {
+                // no segments are found.  a normal response
+                Logger.printDebug(() -> "No segments found for video: " + videoId);
+                return new SponsorSegment[0];
+            }
+
+            SponsorSegment[] segments = parseSegments(videoSegments);
+            Logger.printDebug(() -> {
+                StringBuilder builder = new StringBuilder("Downloaded segments:");
+                for (SponsorSegment segment : segments) {
+                    builder.append('\n').append(segment);
+                }
+                return builder.toString();
+            });
+            runVipCheckInBackgroundIfNeeded();
+            return segments;
+        } catch (Exception ex) {
+            // Should never happen
+            Logger.printException(() -> "getSegments failure", ex);
+        }
+
+        return new SponsorSegment[0];
+    }
+
+    /**
+     * Downloads the segments of a video that may soon be opened, if not already cached.
+     * Videos are prefetched only once, and prefetches run on {@link BackgroundLane#PREFETCH}.
+     */
+    public static void prefetchSegments(@NonNull String videoId) {
+        Objects.requireNonNull(videoId);
+        prefetchedVideoIds.get(videoId, id -> {
+            AtomicBoolean prefetched = new AtomicBoolean();
+            Utils.runOnBackgroundThread(BackgroundLane.PREFETCH, () -> {
+                prefetched.set(true);
+                try {
+                    final String categories = SegmentCategory.sponsorBlockAPIFetchCategories;
+                    if (SegmentCache.get(id, categories) != null) {
+                        return;
+                    }
+                    Logger.printDebug(() -> "Prefetching segments for video: " + id);
+                    Map<String, JSONArray> response = getSegmentsForHashPrefix(getHashPrefix(id), categories, false);
+                    if (response != null) {
+                        saveSegments(id, categories, response);
+                    }
+                } catch (Exception ex) {
+                    Logger.printException(() -> "prefetchSegments failure", ex); // should never happen
+                }
+            });
+            return prefetched;
+        });
+    }
+
+    @NonNull
+    private static SponsorSegment[] parseSegments(@NonNull JSONArray responseArray) throws JSONException {
         List<SponsorSegment> segments = new ArrayList<>();
+        final long minSegmentDuration = (long) (Settings.SB_SEGMENT_MIN_DURATION.get() * 1000);
+        for (int i = 0, length = responseArray.length(); i < length; i++) {
+            JSONObject obj = (JSONObject) responseArray.get(i);
+            JSONArray segment = obj.getJSONArray("segment");
+            final long start = (long) (segment.getDouble(0) * 1000);
+            final long end = (long) (segment.getDouble(1) * 1000);
+
+            String uuid = obj.getString("UUID");
+            final boolean locked = obj.getInt("locked") == 1;
+            String categoryKey = obj.getString("category");
+            SegmentCategory category = SegmentCategory.byCategoryKey(categoryKey);
+            if (category == null) {
+                Logger.printException(() -> "Received unknown category: " + categoryKey); // should never happen
+            } else if ((end - start) >= minSegmentDuration || category == SegmentCategory.HIGHLIGHT) {
+                segments.add(new SponsorSegment(category, uuid, start, end, locked));
+            }
+        }
+        return segments.toArray(new SponsorSegment[0]);
+    }
+
+    /**
+     * Saves the segments of the video to the segment cache,
+     * and the segments of any other recently prefetched video that is included in the same response.
+     *
+     * @return The segments of the video, or null if the video has no segments.
+     */
+    @Nullable
+    private static JSONArray saveSegments(@NonNull String videoId, @NonNull String categories,
+                                          @NonNull Map<String, JSONArray> response) {
+        for (Map.Entry<String, JSONArray> entry : response.entrySet()) {
+            String responseVideoId = entry.getKey();
+            if (!responseVideoId.equals(videoId) && prefetchedVideoIds.getIfPresent(responseVideoId) != null) {
+                SegmentCache.put(responseVideoId, categories, entry.getValue().toString());
+            }
+        }
+        JSONArray videoSegments = response.get(videoId);
+        SegmentCache.put(videoId, categories, videoSegments == null ? "[]" : videoSegments.toString());
+        return videoSegments;
+    }
+
+    @NonNull
+    private static String getHashPrefix(@NonNull String videoId) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(videoId.getBytes(StandardCharsets.UTF_8));
+            StringBuilder builder = new StringBuilder(HASH_PREFIX_LENGTH);
+            for (int i = 0; builder.length() < HASH_PREFIX_LENGTH; i++) {
+                builder.append(String.format(Locale.US, "%02x", hash[i]));
+            }
+            builder.setLength(HASH_PREFIX_LENGTH);
+            return builder.toString();
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex); // should never happen
+        }
+    }
+
+    /**
+     * If another thread is already requesting the same hash prefix, then waits for that response instead.
+     *
+     * @param showConnectionErrors If connection errors are shown to the user.
+     * @return The segments of each video with the hash prefix, or null if the request failed.
+     */
+    @Nullable
+    private static Map<String, JSONArray> getSegmentsForHashPrefix(@NonNull String hashPrefix, @NonNull String categories,
+                                                                   boolean showConnectionErrors) {
+        final String key = hashPrefix + categories;
+        CompletableFuture<Map<String, JSONArray>> request = new CompletableFuture<>();
+        CompletableFuture<Map<String, JSONArray>> existingRequest = hashPrefixRequests.putIfAbsent(key, request);
+        if (existingRequest != null) {
+            Map<String, JSONArray> response = null;
+            try {
+                response = existingRequest.get(TIMEOUT_TCP_DEFAULT_MILLISECONDS + TIMEOUT_HTTP_DEFAULT_MILLISECONDS,
+                        TimeUnit.MILLISECONDS);
+            } catch (TimeoutException | ExecutionException ex) {
+                Logger.printInfo(() -> "Waiting for segments request failed", ex);
+            } catch (InterruptedException ex) {
+                Logger.printException(() -> "Waiting for segments request interrupted", ex);
+                Thread.currentThread().interrupt(); // Restore interrupt status flag.
+                return null;
+            }
+            if (response != null || !showConnectionErrors) {
+                return response;
+            }
+            // Other request failed, such as a prefetch that does not show errors.
+            return requestSegmentsForHashPrefix(hashPrefix, categories, true);
+        }
+
+        Map<String, JSONArray> response = null;
+        try {
+            response = requestSegmentsForHashPrefix(hashPrefix, categories, showConnectionErrors);
+            return response;
+        } finally {
+            hashPrefixRequests.remove(key, request);
+            request.complete(response);
+        }
+    }
+
+    @Nullable
+    private static Map<String, JSONArray> requestSegmentsForHashPrefix(@NonNull String hashPrefix, @NonNull String categories,
+                                                                       boolean showConnectionErrors) {
         try {
-            HttpURLConnection connection = getConnectionFromRoute(SBRoutes.GET_SEGMENTS, videoId, SegmentCategory.sponsorBlockAPIFetchCategories);
+            HttpURLConnection connection = getConnectionFromRoute(SBRoutes.GET_SEGMENTS_BY_HASH_PREFIX, hashPrefix, categories);
             final int responseCode = connection.getResponseCode();
 
             if (responseCode == HTTP_STATUS_CODE_SUCCESS) {
                 JSONArray responseArray = Requester.parseJSONArray(connection);
-                final long minSegmentDuration = (long) (Settings.SB_SEGMENT_MIN_DURATION.get() * 1000);
+                Map<String, JSONArray> videoSegments = new HashMap<>();
                 for (int i = 0, length = responseArray.length(); i < length; i++) {
-                    JSONObject obj = (JSONObject) responseArray.get(i);
-                    JSONArray segment = obj.getJSONArray("segment");
-                    final long start = (long) (segment.getDouble(0) * 1000);
-                    final long end = (long) (segment.getDouble(1) * 1000);
-
-                    String uuid = obj.getString("UUID");
-                    final boolean locked = obj.getInt("locked") == 1;
-                    String categoryKey = obj.getString("category");
-                    SegmentCategory category = SegmentCategory.byCategoryKey(categoryKey);
-                    if (category == null) {
-                        Logger.printException(() -> "Received unknown category: " + categoryKey); // should never happen
-                    } else if ((end - start) >= minSegmentDuration || category == SegmentCategory.HIGHLIGHT) {
-                        segments.add(new SponsorSegment(category, uuid, start, end, locked));
-                    }
+                    JSONObject video = responseArray.getJSONObject(i);
+                    videoSegments.put(video.getString("videoID"), video.getJSONArray("segments"));
                 }
-                Logger.printDebug(() -> {
-                    StringBuilder builder = new StringBuilder("Downloaded segments:");
-                    for (SponsorSegment segment : segments) {
-                        builder.append('\n').append(segment);
-                    }
-                    return builder.toString();
-                });
-                runVipCheckInBackgroundIfNeeded();
-            } else if (responseCode == 404) {
-                // no segments are found.  a normal response
-                Logger.printDebug(() -> "No segments found for video: " + videoId);
-            } else {
+                return videoSegments;
+            }
+            if (responseCode == 404) {
+                // no segments are found for any video with the hash prefix.  a normal response
+                return Collections.emptyMap();
+            }
+            if (showConnectionErrors) {
                 handleConnectionError(str("revanced_sb_sponsorblock_connection_failure_status", responseCode), null);
-                connection.disconnect(); // something went wrong, might as well disconnect
+            } else {
+                Logger.printDebug(() -> "Segments request failed with response code: " + responseCode);
             }
+            connection.disconnect(); // something went wrong, might as well disconnect
         } catch (SocketTimeoutException ex) {
-            handleConnectionError(str("revanced_sb_sponsorblock_connection_failure_timeout"), ex);
+            if (showConnectionErrors) {
+                handleConnectionError(str("revanced_sb_sponsorblock_connection_failure_timeout"), ex);
+            } else {
+                Logger.printInfo(() -> "Segments request timed out", ex);
+            }
         } catch (IOException ex) {
-            handleConnectionError(str("revanced_sb_sponsorblock_connection_failure_generic"), ex);
+            if (showConnectionErrors) {
+                handleConnectionError(str("revanced_sb_sponsorblock_connection_failure_generic"), ex);
+            } else {
+                Logger.printInfo(() -> "Segments request failed", ex);
+            }
         } catch (Exception ex) {
             // Should never happen
-            Logger.printException(() -> "getSegments failure", ex);
+            Logger.printException(() -> "requestSegmentsForHashPrefix failure", ex);
         }
-
-        return segments.toArray(new SponsorSegment[0]);
+        return null;
     }
 
     public static void submitSegments(@NonNull String videoId, @NonNull String category,
@@ -124,6 +329,10 @@ public class SBRequester {
 
             HttpURLConnection connection = getConnectionFromRoute(SBRoutes.SUBMIT_SEGMENTS, privateUserId, videoId, category, start, end, duration);
             final int responseCode = connection.getResponseCode();
+            if (responseCode == HTTP_STATUS_CODE_SUCCESS) {
+                // Otherwise the segments reloaded after submitting are the cached segments without the new segment.
+                SegmentCache.remove(videoId);
+            }
 
             final String messageToToast = switch (responseCode) {
                 case HTTP_STATUS_CODE_SUCCESS -> str("revanced_sb_submit_succeeded");
@@ -166,15 +375,24 @@ public class SBRequester {
         }
     }
 
-    public static void voteForSegmentOnBackgroundThread(@NonNull SponsorSegment segment, @NonNull SegmentVote voteOption) {
-        voteOrRequestCategoryChange(segment, voteOption, null);
+    /**
+     * @param videoId Video of the segment. Its cached segments are removed if the vote succeeds.
+     */
+    public static void voteForSegmentOnBackgroundThread(@NonNull String videoId, @NonNull SponsorSegment segment,
+                                                        @NonNull SegmentVote voteOption) {
+        voteOrRequestCategoryChange(videoId, segment, voteOption, null);
     }
 
-    public static void voteToChangeCategoryOnBackgroundThread(@NonNull SponsorSegment segment, @NonNull SegmentCategory categoryToVoteFor) {
-        voteOrRequestCategoryChange(segment, SegmentVote.CATEGORY_CHANGE, categoryToVoteFor);
+    /**
+     * @param videoId Video of the segment. Its cached segments are removed if the vote succeeds.
+     */
+    public static void voteToChangeCategoryOnBackgroundThread(@NonNull String videoId, @NonNull SponsorSegment segment,
+                                                              @NonNull SegmentCategory categoryToVoteFor) {
+        voteOrRequestCategoryChange(videoId, segment, SegmentVote.CATEGORY_CHANGE, categoryToVoteFor);
     }
 
-    private static void voteOrRequestCategoryChange(@NonNull SponsorSegment segment, @NonNull SegmentVote voteOption, SegmentCategory categoryToVoteFor) {
+    private static void voteOrRequestCategoryChange(@NonNull String videoId, @NonNull SponsorSegment segment,
+                                                    @NonNull SegmentVote voteOption, SegmentCategory categoryToVoteFor) {
         Utils.runOnBackgroundThread(() -> {
             try {
                 String segmentUuid = segment.UUID;
@@ -187,6 +405,7 @@ public class SBRequester {
                 switch (responseCode) {
                     case HTTP_STATUS_CODE_SUCCESS:
                         Logger.printDebug(() -> "Vote success for segment: " + segment);
+                        SegmentCache.remove(videoId);
                         break;
                     case 403:
                         Utils.showToastLong(
@@ -253,7 +472,7 @@ public class SBRequester {
         if (now < (Settings.SB_LAST_VIP_CHECK.get() + TimeUnit.DAYS.toMillis(3))) {
             return;
         }
-        Utils.runOnBackgroundThread(() -> {
+        Utils.runOnBackgroundThread(BackgroundLane.HOUSEKEEPING, () -> {
             try {
                 JSONObject json = getJSONObject(SBRoutes.IS_USER_VIP, SponsorBlockSettings.getSBPrivateUserID());
                 boolean vip = json.getBoolean("vip");
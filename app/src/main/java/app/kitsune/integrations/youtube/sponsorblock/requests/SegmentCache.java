@@ -0,0 +1,237 @@
+package app.kitsune.integrations.youtube.sponsorblock.requests;
+
+import android.content.Context;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import app.kitsune.integrations.shared.utils.BackgroundLane;
+import app.kitsune.integrations.shared.utils.Logger;
+import app.kitsune.integrations.shared.utils.Utils;
+
+/**
+ * Persistent cache of downloaded segments, so segments of prefetched and recently watched videos
+ * are available before the video starts playing.
+ * <p>
+ * Each video is a file in the app cache directory, and the file modified time is when the segments were downloaded.
+ * The file is the categories the segments were requested with, and the segments json array of the video.
+ * Segments requested with different categories are ignored.
+ * <p>
+ * Videos without segments are also cached, but for less time since new videos often get segments soon after upload.
+ */
+final class SegmentCache {
+
+    private static final String DIRECTORY_NAME = "revanced_sb_segments";
+
+    private static final long SEGMENTS_MAXIMUM_AGE_MILLISECONDS = TimeUnit.HOURS.toMillis(1);
+    private static final long NO_SEGMENTS_MAXIMUM_AGE_MILLISECONDS = TimeUnit.MINUTES.toMillis(15);
+
+    /**
+     * Maximum number of cached videos. Oldest videos are removed when exceeded.
+     */
+    private static final int MAXIMUM_FILE_COUNT = 500;
+
+    /**
+     * Number of saved videos between removing expired videos.
+     */
+    private static final int SAVES_BETWEEN_PRUNING = 100;
+
+    private static final String NO_SEGMENTS = "[]";
+
+    private static final int VIDEO_ID_LENGTH = 11;
+
+    @Nullable
+    private static volatile File directory;
+
+    /**
+     * If the cache was opened, or opening is in progress.
+     */
+    @GuardedBy("SegmentCache.class")
+    private static boolean openStarted;
+
+    private static final AtomicInteger savesSincePruning = new AtomicInteger();
+
+    private SegmentCache() {
+    } // utility class
+
+    /**
+     * Opens the cache on a background thread, if not already open.
+     * Until the cache is open all lookups return null and nothing is saved.
+     */
+    static synchronized void open() {
+        if (openStarted) {
+            return;
+        }
+        openStarted = true;
+        Utils.runOnBackgroundThread(BackgroundLane.HOUSEKEEPING, SegmentCache::openDirectory);
+    }
+
+    private static void openDirectory() {
+        Context context = Utils.getContext();
+        if (context == null) {
+            Logger.printException(() -> "Cannot open segment cache, context is null");
+            return;
+        }
+        File cacheDirectory = new File(context.getCacheDir(), DIRECTORY_NAME);
+        if (!cacheDirectory.isDirectory() && !cacheDirectory.mkdirs()) {
+            Logger.printException(() -> "Failed to create segment cache directory");
+            return;
+        }
+        removeExpiredFiles(cacheDirectory);
+        directory = cacheDirectory;
+    }
+
+    private static boolean isValidVideoId(@NonNull String videoId) {
+        if (videoId.length() != VIDEO_ID_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < VIDEO_ID_LENGTH; i++) {
+            final char c = videoId.charAt(i);
+            if (!((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')
+                    || (c >= '0' && c <= '9') || c == '-' || c == '_')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Nullable
+    private static File getFile(@NonNull String videoId) {
+        File cacheDirectory = directory;
+        if (cacheDirectory == null || !isValidVideoId(videoId)) {
+            return null;
+        }
+        return new File(cacheDirectory, videoId);
+    }
+
+    /**
+     * @return The cached segments json array of the video, or null if not cached or expired.
+     */
+    @Nullable
+    static String get(@NonNull String videoId, @NonNull String categories) {
+        File file = getFile(videoId);
+        if (file == null) {
+            return null;
+        }
+        final long age = System.currentTimeMillis() - file.lastModified();
+        if (age > SEGMENTS_MAXIMUM_AGE_MILLISECONDS) {
+            return null; // Also not cached, as modified time is zero if the file does not exist.
+        }
+
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            if (!categories.equals(reader.readLine())) {
+                return null;
+            }
+            String segments = reader.readLine();
+            if (segments == null) {
+                return null;
+            }
+            if (segments.equals(NO_SEGMENTS) && age > NO_SEGMENTS_MAXIMUM_AGE_MILLISECONDS) {
+                return null;
+            }
+            return segments;
+        } catch (IOException ex) {
+            Logger.printInfo(() -> "Failed to read cached segments: " + videoId, ex);
+            return null;
+        }
+    }
+
+    /**
+     * @param segments Segments json array of the video, or an empty array if the video has no segments.
+     */
+    static void put(@NonNull String videoId, @NonNull String categories, @NonNull String segments) {
+        File file = getFile(videoId);
+        if (file == null) {
+            return;
+        }
+        // Write to a temporary file, so a partially written file is never read.
+        File temporaryFile = new File(file.getParentFile(), videoId + ".tmp");
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(temporaryFile), StandardCharsets.UTF_8)) {
+            writer.write(categories);
+            writer.write('\n');
+            writer.write(segments);
+            writer.write('\n');
+        } catch (IOException ex) {
+            Logger.printInfo(() -> "Failed to save segments: " + videoId, ex);
+            //noinspection ResultOfMethodCallIgnored
+            temporaryFile.delete();
+            return;
+        }
+        if (!temporaryFile.renameTo(file)) {
+            Logger.printInfo(() -> "Failed to save segments: " + videoId);
+            //noinspection ResultOfMethodCallIgnored
+            temporaryFile.delete();
+            return;
+        }
+
+        if (savesSincePruning.incrementAndGet() >= SAVES_BETWEEN_PRUNING) {
+            savesSincePruning.set(0);
+            File cacheDirectory = file.getParentFile();
+            Utils.runOnBackgroundThread(BackgroundLane.HOUSEKEEPING, () -> removeExpiredFiles(cacheDirectory));
+        }
+    }
+
+    /**
+     * Removes the cached segments of a video, so the next request downloads the segments again.
+     * Used after the segments of the video are changed by a submission or a vote.
+     */
+    static void remove(@NonNull String videoId) {
+        File file = getFile(videoId);
+        if (file != null && file.exists() && !file.delete()) {
+            Logger.printInfo(() -> "Failed to remove cached segments: " + videoId);
+        }
+    }
+
+    /**
+     * Removes expired videos, and the oldest videos if there are too many.
+     */
+    private static void removeExpiredFiles(@NonNull File cacheDirectory) {
+        File[] files = cacheDirectory.listFiles();
+        if (files == null) {
+            return;
+        }
+        final long now = System.currentTimeMillis();
+        final long[] modifiedTimes = new long[files.length];
+        Integer[] remaining = new Integer[files.length];
+        int remainingCount = 0;
+        for (int i = 0; i < files.length; i++) {
+            modifiedTimes[i] = files[i].lastModified();
+            if (now - modifiedTimes[i] > SEGMENTS_MAXIMUM_AGE_MILLISECONDS) {
+                //noinspection ResultOfMethodCallIgnored
+                files[i].delete();
+            } else {
+                remaining[remainingCount++] = i;
+            }
+        }
+
+        final int removeCount = remainingCount - MAXIMUM_FILE_COUNT;
+        if (removeCount > 0) {
+            Integer[] oldestFirst = Arrays.copyOf(remaining, remainingCount);
+            Arrays.sort(oldestFirst, Comparator.comparingLong(index -> modifiedTimes[index]));
+            for (int i = 0; i < removeCount; i++) {
+                //noinspection ResultOfMethodCallIgnored
+                files[oldestFirst[i]].delete();
+            }
+        }
+
+        final int expiredCount = files.length - remainingCount;
+        Logger.printDebug(() -> "Removed " + expiredCount + " expired and " + Math.max(0, removeCount)
+                + " excess cached segments");
+    }
+}
@@ -0,0 +1,154 @@
+plugins {
+    java
+    alias(libs.plugins.jmh)
+}
+
+// JVM only benchmarks of the litho filtering pipeline and the RYD puzzle solver.
+//
+// The module is only included if the 'benchmark' property is set, so JMH is not needed to build the app.
+// Run with: ./gradlew -Pbenchmark :benchmark:jmh
+// Use recorded litho logs with: ./gradlew -Pbenchmark :benchmark:jmh -Pcorpus=/path/to/logcat.txt
+//
+// The 'app' source set compiles the pipeline directly from the app sources.
+// The Android backed classes the pipeline uses are replaced by the plain Java versions of the 'fixtures' source set.
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_17
+    targetCompatibility = JavaVersion.VERSION_17
+}
+
+val integrationsPath = "app/kitsune/integrations"
+
+/**
+ * Filters that only use settings, the shared litho components and the fixtures, and can run on the JVM.
+ */
+val benchmarkedFilters = listOf(
+    "$integrationsPath/youtube/patches/components/AdsFilter.java",
+    "$integrationsPath/youtube/patches/components/KeywordContentFilter.java",
+    "$integrationsPath/youtube/patches/components/LayoutComponentsFilter.java",
+)
+
+val lithoFilterPatch = "$integrationsPath/shared/patches/components/LithoFilterPatch.java"
+
+/**
+ * Values of the string settings used by the benchmarked filters. All other settings are enabled boolean settings.
+ */
+val stringSettings = mapOf(
+    // A phrase of the sample corpus, a whole word phrase, and phrases that are not in the corpus.
+    "HIDE_KEYWORD_CONTENT_PHRASES" to listOf(
+        "relaxing piano",
+        "\\\"Maker\\\"",
+        "unboxing",
+        "speedrun",
+        "reaction video",
+    ).joinToString("\\n"),
+)
+
+val appSources = rootProject.file("app/src/main/java")
+
+/**
+ * Same as the litho filter patch, replaces the placeholder with the filters.
+ * This is the only app source that is changed.
+ */
+val patchLithoFilter by tasks.registering(Copy::class) {
+    from(appSources) {
+        include(lithoFilterPatch)
+        filter { line ->
+            line.replace(
+                "new DummyFilter() // Replaced by patch.",
+                benchmarkedFilters.joinToString {
+                    "new " + it.removeSuffix(".java").replace('/', '.') + "()"
+                },
+            )
+        }
+    }
+    into(layout.buildDirectory.dir("generated/sources/patch"))
+}
+
+/**
+ * Creates the settings used by the benchmarked filters.
+ */
+val generateSettings by tasks.registering {
+    val filterFiles = benchmarkedFilters.map { File(appSources, it) }
+    val outputDir = layout.buildDirectory.dir("generated/sources/settings")
+    inputs.files(filterFiles)
+    inputs.property("stringSettings", stringSettings)
+    outputs.dir(outputDir)
+
+    doLast {
+        val settingNames = filterFiles.flatMap { file ->
+            Regex("""\bSettings\.([A-Z0-9_]+)""").findAll(file.readText()).map { it.groupValues[1] }.toList()
+        }.toSortedSet()
+
+        val settingsFile = outputDir.get().file("$integrationsPath/youtube/settings/Settings.java").asFile
+        settingsFile.parentFile.mkdirs()
+        settingsFile.writeText(
+            buildString {
+                appendLine("package app.kitsune.integrations.youtube.settings;")
+                appendLine()
+                appendLine("import app.kitsune.integrations.shared.settings.BooleanSetting;")
+                appendLine("import app.kitsune.integrations.shared.settings.StringSetting;")
+                appendLine()
+                appendLine("public class Settings {")
+                settingNames.forEach { name ->
+                    val key = name.lowercase()
+                    val value = stringSettings[name]
+                    if (value != null) {
+                        appendLine("    public static final StringSetting $name = new StringSetting(\"$key\", \"$value\");")
+                    } else {
+                        appendLine("    public static final BooleanSetting $name = new BooleanSetting(\"$key\", true);")
+                    }
+                }
+                appendLine("}")
+            },
+        )
+    }
+}
+
+sourceSets {
+    val fixtures by creating {
+        java.srcDir(generateSettings)
+    }
+
+    create("app") {
+        java {
+            srcDir(appSources)
+            include("$integrationsPath/shared/utils/TrieSearch.java")
+            include("$integrationsPath/shared/utils/ByteTrieSearch.java")
+            include("$integrationsPath/shared/utils/StringTrieSearch.java")
+            include("$integrationsPath/shared/patches/components/*.java")
+            include("$integrationsPath/shared/returnyoutubedislike/requests/PuzzleSolver.java")
+            include(benchmarkedFilters)
+            exclude(lithoFilterPatch)
+        }
+        compileClasspath += fixtures.output
+        runtimeClasspath += fixtures.output
+    }
+
+    named("jmh") {
+        java.srcDir(patchLithoFilter)
+    }
+}
+
+dependencies {
+    "fixturesImplementation"(libs.annotation)
+    "appImplementation"(libs.annotation)
+    jmh(libs.annotation)
+    jmh(sourceSets["fixtures"].output)
+    jmh(sourceSets["app"].output)
+}
+
+jmh {
+    jmhVersion.set(libs.versions.jmh)
+    fork.set(1)
+    warmupIterations.set(3)
+    iterations.set(5)
+    // Reports the allocation rate of each benchmark.
+    profilers.add("gc")
+    resultFormat.set("JSON")
+
+    val corpus = providers.gradleProperty("corpus")
+    if (corpus.isPresent) {
+        jvmArgs.add("-Dlitho.corpus=" + file(corpus.get()).absolutePath)
+    }
+}
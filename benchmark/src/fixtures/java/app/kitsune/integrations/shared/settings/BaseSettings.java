@@ -0,0 +1,12 @@
+package app.kitsune.integrations.shared.settings;
+
+import static java.lang.Boolean.FALSE;
+
+/**
+ * JVM version of the app settings used by the litho filters.
+ */
+public class BaseSettings {
+    public static final BooleanSetting ENABLE_DEBUG_LOGGING = new BooleanSetting("revanced_enable_debug_logging", FALSE);
+    public static final BooleanSetting ENABLE_DEBUG_BUFFER_LOGGING = new BooleanSetting("revanced_enable_debug_buffer_logging", FALSE);
+    public static final BooleanSetting ENABLE_DEBUG_LITHO_FILTER_STATISTICS = new BooleanSetting("revanced_enable_debug_litho_filter_statistics", FALSE);
+}
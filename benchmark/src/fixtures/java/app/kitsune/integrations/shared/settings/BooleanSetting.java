@@ -0,0 +1,51 @@
+package app.kitsune.integrations.shared.settings;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * JVM version of the app setting, without shared preferences.
+ */
+@SuppressWarnings("unused")
+public class BooleanSetting {
+    private static final AtomicInteger valueChangeCount = new AtomicInteger();
+
+    public static int getValueChangeCount() {
+        return valueChangeCount.get();
+    }
+
+    @NonNull
+    public final String key;
+    @NonNull
+    public final Boolean defaultValue;
+    public final boolean rebootApp;
+    private volatile Boolean value;
+
+    public BooleanSetting(@NonNull String key, @NonNull Boolean defaultValue) {
+        this(key, defaultValue, false);
+    }
+
+    public BooleanSetting(@NonNull String key, @NonNull Boolean defaultValue, boolean rebootApp) {
+        this.key = key;
+        this.defaultValue = defaultValue;
+        this.rebootApp = rebootApp;
+        this.value = defaultValue;
+    }
+
+    public void save(@NonNull Boolean newValue) {
+        value = newValue;
+        valueChangeCount.incrementAndGet();
+    }
+
+    @NonNull
+    public Boolean get() {
+        return value;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return key + "=" + get();
+    }
+}
@@ -0,0 +1,36 @@
+package app.kitsune.integrations.shared.settings;
+
+import androidx.annotation.NonNull;
+
+/**
+ * JVM version of the app setting, without shared preferences.
+ */
+@SuppressWarnings("unused")
+public class StringSetting {
+    @NonNull
+    public final String key;
+    @NonNull
+    public final String defaultValue;
+    private volatile String value;
+
+    public StringSetting(@NonNull String key, @NonNull String defaultValue) {
+        this.key = key;
+        this.defaultValue = defaultValue;
+        this.value = defaultValue;
+    }
+
+    public void save(@NonNull String newValue) {
+        value = newValue;
+    }
+
+    @NonNull
+    public String get() {
+        return value;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return key + "=" + get();
+    }
+}
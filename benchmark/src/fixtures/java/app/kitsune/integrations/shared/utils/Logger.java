@@ -0,0 +1,45 @@
+package app.kitsune.integrations.shared.utils;
+
+import static app.kitsune.integrations.shared.settings.BaseSettings.ENABLE_DEBUG_LOGGING;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * JVM version of the app logger, that prints to the console.
+ */
+public class Logger {
+
+    public interface LogMessage {
+        @NonNull
+        String buildMessageString();
+    }
+
+    public static void printDebug(@NonNull LogMessage message) {
+        if (ENABLE_DEBUG_LOGGING.get()) {
+            System.out.println(message.buildMessageString());
+        }
+    }
+
+    public static void printInfo(@NonNull LogMessage message) {
+        printInfo(message, null);
+    }
+
+    public static void printInfo(@NonNull LogMessage message, @Nullable Exception ex) {
+        System.out.println(message.buildMessageString());
+        if (ex != null) {
+            ex.printStackTrace(System.out);
+        }
+    }
+
+    public static void printException(@NonNull LogMessage message) {
+        printException(message, null);
+    }
+
+    public static void printException(@NonNull LogMessage message, @Nullable Throwable ex) {
+        System.err.println(message.buildMessageString());
+        if (ex != null) {
+            ex.printStackTrace();
+        }
+    }
+}
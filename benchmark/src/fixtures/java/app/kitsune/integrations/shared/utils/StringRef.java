@@ -0,0 +1,23 @@
+package app.kitsune.integrations.shared.utils;
+
+import androidx.annotation.NonNull;
+
+/**
+ * JVM version of the app string resources, that uses the resource name as the string.
+ */
+public class StringRef {
+
+    @NonNull
+    public static String str(@NonNull String id) {
+        return id;
+    }
+
+    @NonNull
+    public static String str(@NonNull String id, Object... args) {
+        StringBuilder builder = new StringBuilder(id);
+        for (Object arg : args) {
+            builder.append(' ').append(arg);
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,17 @@
+package app.kitsune.integrations.shared.utils;
+
+import androidx.annotation.NonNull;
+
+/**
+ * JVM version of the app utilities used by the litho filters, that prints toasts to the console.
+ */
+public class Utils {
+
+    public static void showToastShort(@NonNull String messageToToast) {
+        System.out.println("Toast: " + messageToToast);
+    }
+
+    public static void showToastLong(@NonNull String messageToToast) {
+        System.out.println("Toast: " + messageToToast);
+    }
+}
@@ -0,0 +1,52 @@
+package app.kitsune.integrations.youtube.shared;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * JVM version of the app navigation bar, with the home tab always selected.
+ */
+public final class NavigationBar {
+
+    public static final class NavigationState {
+        public final long version;
+        @Nullable
+        public final NavigationButton button;
+
+        private NavigationState(long version, @Nullable NavigationButton button) {
+            this.version = version;
+            this.button = button;
+        }
+
+        public boolean isSettled() {
+            return true;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return "NavigationState{version=" + version + ", button=" + button + ", settled=" + isSettled() + "}";
+        }
+    }
+
+    private static final NavigationState navigationState = new NavigationState(1, NavigationButton.HOME);
+
+    @NonNull
+    public static NavigationState getNavigationState() {
+        return navigationState;
+    }
+
+    public enum NavigationButton {
+        HOME,
+        SHORTS,
+        CREATE,
+        SUBSCRIPTIONS,
+        NOTIFICATIONS,
+        LIBRARY;
+
+        @Nullable
+        public static NavigationButton getSelectedNavigationButton() {
+            return navigationState.button;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package app.kitsune.integrations.youtube.shared;
+
+/**
+ * JVM version of the app root view, with the search bar and player not on screen.
+ */
+public final class RootView {
+
+    public static boolean isSearchBarActive() {
+        return false;
+    }
+
+    public static boolean isPlayerActive() {
+        return false;
+    }
+}
@@ -0,0 +1,78 @@
+package app.kitsune.integrations.shared.patches.components;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checks the recorded buffers using byte array filter groups,
+ * with patterns taken from the buffer strings of the corpus.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class FilterGroupBenchmark {
+
+    @Param({"1", "3", "16"})
+    public int patternCount;
+
+    /**
+     * If the buffer is indexed, the same as when called from a litho filter.
+     */
+    @Param({"false", "true"})
+    public boolean bufferIndexed;
+
+    private byte[][] buffers;
+    private ByteArrayFilterGroup group;
+    private final ByteArrayFilterGroupList groupList = new ByteArrayFilterGroupList();
+
+    @Setup
+    public void setup() throws IOException {
+        List<LithoCorpus.Component> components = LithoCorpus.load();
+        buffers = new byte[components.size()][];
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = components.get(i).buffer;
+        }
+
+        String[] patterns = LithoCorpus.sampleBufferStrings(components, patternCount).toArray(new String[0]);
+        group = new ByteArrayFilterGroup(null, patterns);
+        for (String pattern : patterns) {
+            groupList.addAll(new ByteArrayFilterGroup(null, pattern));
+        }
+    }
+
+    private void setCurrentBuffer(byte[] buffer) {
+        if (bufferIndexed) {
+            ProtoBufferIndex.setCurrentThreadBuffer(buffer);
+        }
+    }
+
+    @Benchmark
+    public int checkGroup() {
+        int matchCount = 0;
+        for (byte[] buffer : buffers) {
+            setCurrentBuffer(buffer);
+            if (group.check(buffer).isFiltered()) matchCount++;
+        }
+        return matchCount;
+    }
+
+    @Benchmark
+    public int checkGroupList() {
+        int matchCount = 0;
+        for (byte[] buffer : buffers) {
+            setCurrentBuffer(buffer);
+            if (groupList.check(buffer).isFiltered()) matchCount++;
+        }
+        return matchCount;
+    }
+}
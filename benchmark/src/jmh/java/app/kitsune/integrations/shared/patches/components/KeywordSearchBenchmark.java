@@ -0,0 +1,94 @@
+package app.kitsune.integrations.shared.patches.components;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import app.kitsune.integrations.shared.utils.ByteTrieSearch;
+
+/**
+ * Searches the recorded buffers the same way as the keyword filter, with many more keywords.
+ * The keyword filter itself is benchmarked with the other filters by {@link LithoFilterBenchmark}.
+ * <p>
+ * Most keywords are not in the corpus, and a few are words of the buffer strings with changed case.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class KeywordSearchBenchmark {
+
+    @Param({"10", "100", "500"})
+    public int keywordCount;
+
+    /**
+     * If false, then each keyword is added with the common case variations
+     * instead of using a case insensitive search.
+     */
+    @Param({"true", "false"})
+    public boolean caseInsensitive;
+
+    private byte[][] buffers;
+    private ByteTrieSearch search;
+
+    private static String capitalizeFirstLetter(String text) {
+        return text.substring(0, 1).toUpperCase(Locale.ROOT) + text.substring(1);
+    }
+
+    @Setup
+    public void setup() throws IOException {
+        List<LithoCorpus.Component> components = LithoCorpus.load();
+        buffers = new byte[components.size()][];
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = components.get(i).buffer;
+        }
+
+        Set<String> keywords = new LinkedHashSet<>();
+        for (String string : LithoCorpus.sampleBufferStrings(components, Math.min(5, keywordCount))) {
+            keywords.add(string.toUpperCase(Locale.ROOT));
+        }
+        for (int i = 0; keywords.size() < keywordCount; i++) {
+            keywords.add("keyword phrase " + i);
+        }
+
+        search = new ByteTrieSearch(caseInsensitive);
+        for (String keyword : keywords) {
+            if (caseInsensitive) {
+                search.addPattern(keyword.getBytes(StandardCharsets.UTF_8));
+            } else {
+                String lowercase = keyword.toLowerCase(Locale.ROOT);
+                search.addPatterns(ByteTrieSearch.convertStringsToBytes(
+                        keyword,
+                        lowercase,
+                        capitalizeFirstLetter(lowercase),
+                        keyword.toUpperCase(Locale.ROOT)
+                ));
+            }
+        }
+
+        search.matches(new byte[0]); // Compile the search before printing the memory used.
+        System.out.println("Estimated memory: " + search.getEstimatedMemorySize() + " KB"
+                + " patterns: " + search.numberOfPatterns());
+    }
+
+    @Benchmark
+    public int searchBuffers() {
+        int matchCount = 0;
+        for (byte[] buffer : buffers) {
+            if (search.matches(buffer)) matchCount++;
+        }
+        return matchCount;
+    }
+}
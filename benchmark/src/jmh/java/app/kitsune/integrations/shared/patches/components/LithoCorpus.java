@@ -0,0 +1,178 @@
+package app.kitsune.integrations.shared.patches.components;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Litho components recorded by the debug log of {@link LithoFilterPatch}.
+ * <p>
+ * Records are read from the log lines starting with "ID: ", "Path: " and "BufferStrings: ",
+ * and any logcat prefix before these is ignored. Buffer strings are only logged if debug buffer logging is enabled.
+ * <p>
+ * The log contains only the ASCII strings of the proto buffer,
+ * so each buffer is recreated by encoding the strings as length delimited protobuf fields.
+ * <p>
+ * The system property 'litho.corpus' can be set to the path of a recorded log.
+ * Otherwise a small sample is used.
+ */
+final class LithoCorpus {
+
+    /**
+     * Same delimiter used by the debug log.
+     */
+    private static final String BUFFER_STRINGS_DELIMITER = "❙";
+
+    private static final String IDENTIFIER_PREFIX = "ID: ";
+    private static final String PATH_PREFIX = "Path: ";
+    private static final String BUFFER_STRINGS_PREFIX = "BufferStrings: ";
+
+    private static final String SAMPLE_RESOURCE = "/litho/sample.txt";
+
+    static final class Component {
+        @Nullable
+        final String identifier;
+        final String path;
+        final List<String> bufferStrings;
+        final byte[] buffer;
+
+        Component(@Nullable String identifier, String path, List<String> bufferStrings) {
+            this.identifier = identifier;
+            this.path = path;
+            this.bufferStrings = bufferStrings;
+            this.buffer = createBuffer(bufferStrings);
+        }
+    }
+
+    private static List<Component> components;
+
+    /**
+     * @return The recorded components, in the order they were logged.
+     */
+    static synchronized List<Component> load() throws IOException {
+        if (components == null) {
+            String corpusPath = System.getProperty("litho.corpus");
+            try (InputStream stream = (corpusPath == null)
+                    ? Objects.requireNonNull(LithoCorpus.class.getResourceAsStream(SAMPLE_RESOURCE))
+                    : Files.newInputStream(Path.of(corpusPath))) {
+                components = Collections.unmodifiableList(
+                        parse(new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8))));
+            }
+            if (components.isEmpty()) {
+                throw new IOException("No litho components found in: "
+                        + (corpusPath == null ? SAMPLE_RESOURCE : corpusPath));
+            }
+            System.out.println("Loaded " + components.size() + " litho components");
+        }
+        return components;
+    }
+
+    private static List<Component> parse(BufferedReader reader) throws IOException {
+        List<Component> components = new ArrayList<>();
+        String identifier = null;
+        String path = null;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            // Check the buffer strings first, since the strings can contain anything.
+            int index = line.indexOf(BUFFER_STRINGS_PREFIX);
+            if (index >= 0) {
+                if (path != null) {
+                    components.add(new Component(identifier, path,
+                            parseBufferStrings(line.substring(index + BUFFER_STRINGS_PREFIX.length()))));
+                    path = null;
+                }
+                continue;
+            }
+
+            index = line.indexOf(PATH_PREFIX);
+            if (index >= 0) {
+                if (path != null) { // Previous component without buffer strings.
+                    components.add(new Component(identifier, path, Collections.emptyList()));
+                }
+                path = line.substring(index + PATH_PREFIX.length());
+                continue;
+            }
+
+            index = line.indexOf(IDENTIFIER_PREFIX);
+            if (index >= 0) {
+                if (path != null) {
+                    components.add(new Component(identifier, path, Collections.emptyList()));
+                    path = null;
+                }
+                identifier = line.substring(index + IDENTIFIER_PREFIX.length());
+                if (identifier.equals("null")) {
+                    identifier = null;
+                }
+            }
+        }
+        if (path != null) {
+            components.add(new Component(identifier, path, Collections.emptyList()));
+        }
+        return components;
+    }
+
+    private static List<String> parseBufferStrings(String bufferStrings) {
+        List<String> strings = new ArrayList<>();
+        for (String string : bufferStrings.split(BUFFER_STRINGS_DELIMITER)) {
+            if (!string.isEmpty()) {
+                strings.add(string);
+            }
+        }
+        return strings;
+    }
+
+    /**
+     * Encodes each string as field 1 of a protobuf message.
+     */
+    @NonNull
+    private static byte[] createBuffer(List<String> strings) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        for (String string : strings) {
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            buffer.write((1 << 3) | 2); // Field 1, length delimited.
+            int length = bytes.length;
+            while (length >= 0x80) {
+                buffer.write((length & 0x7F) | 0x80);
+                length >>>= 7;
+            }
+            buffer.write(length);
+            buffer.write(bytes, 0, bytes.length);
+        }
+        return buffer.toByteArray();
+    }
+
+    /**
+     * @return Distinct buffer strings, evenly spaced throughout the corpus.
+     */
+    static List<String> sampleBufferStrings(List<Component> components, int count) {
+        List<String> allStrings = new ArrayList<>();
+        for (Component component : components) {
+            for (String string : component.bufferStrings) {
+                if (!allStrings.contains(string)) {
+                    allStrings.add(string);
+                }
+            }
+        }
+        if (allStrings.size() < count) {
+            throw new IllegalArgumentException("Corpus has only " + allStrings.size()
+                    + " distinct buffer strings but " + count + " are required");
+        }
+        List<String> sample = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            sample.add(allStrings.get(i * allStrings.size() / count));
+        }
+        return sample;
+    }
+}
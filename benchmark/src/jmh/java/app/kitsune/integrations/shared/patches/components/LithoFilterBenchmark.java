@@ -0,0 +1,61 @@
+package app.kitsune.integrations.shared.patches.components;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Filters each recorded component using the litho filter injection points,
+ * with the filters and keywords of the benchmark build file.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class LithoFilterBenchmark {
+
+    private StringBuilder[] paths;
+    private String[] identifiers;
+    private ByteBuffer[] buffers;
+
+    @Setup
+    public void setup() throws IOException {
+        List<LithoCorpus.Component> components = LithoCorpus.load();
+        final int count = components.size();
+        paths = new StringBuilder[count];
+        identifiers = new String[count];
+        buffers = new ByteBuffer[count];
+        for (int i = 0; i < count; i++) {
+            LithoCorpus.Component component = components.get(i);
+            paths[i] = new StringBuilder(component.path);
+            identifiers[i] = component.identifier;
+            buffers[i] = ByteBuffer.wrap(component.buffer);
+        }
+    }
+
+    /**
+     * Filters all components of the corpus.
+     *
+     * @return Number of filtered components.
+     */
+    @Benchmark
+    public int filterCorpus() {
+        int filteredCount = 0;
+        for (int i = 0, length = paths.length; i < length; i++) {
+            LithoFilterPatch.setProtoBuffer(buffers[i]);
+            // The litho object is only used for the all value, and the path is used in its place.
+            if (LithoFilterPatch.filter(paths[i], identifiers[i], paths[i])) {
+                filteredCount++;
+            }
+        }
+        return filteredCount;
+    }
+}
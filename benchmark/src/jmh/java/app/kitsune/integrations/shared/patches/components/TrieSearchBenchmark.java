@@ -0,0 +1,119 @@
+package app.kitsune.integrations.shared.patches.components;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import app.kitsune.integrations.shared.utils.ByteTrieSearch;
+import app.kitsune.integrations.shared.utils.StringTrieSearch;
+import app.kitsune.integrations.youtube.patches.components.AdsFilter;
+import app.kitsune.integrations.youtube.patches.components.LayoutComponentsFilter;
+
+/**
+ * Searches the recorded components using the identifier and path patterns of the filters.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class TrieSearchBenchmark {
+
+    private final StringTrieSearch identifierSearch = new StringTrieSearch();
+    private final StringTrieSearch pathSearch = new StringTrieSearch();
+    private final ByteTrieSearch bufferSearch = new ByteTrieSearch();
+
+    private String[] identifiers;
+    private String[] paths;
+    private StringBuilder[] pathBuilders;
+    private byte[][] buffers;
+
+    private static void addPatterns(StringTrieSearch search, List<StringFilterGroup> groups) {
+        for (StringFilterGroup group : groups) {
+            search.addPatterns(group.filters);
+        }
+    }
+
+    private static void addPatterns(ByteTrieSearch search, List<StringFilterGroup> groups) {
+        for (StringFilterGroup group : groups) {
+            for (String pattern : group.filters) {
+                search.addPattern(pattern.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    @Setup
+    public void setup() throws IOException {
+        for (Filter filter : new Filter[]{new AdsFilter(), new LayoutComponentsFilter()}) {
+            addPatterns(identifierSearch, filter.identifierCallbacks);
+            addPatterns(pathSearch, filter.pathCallbacks);
+            addPatterns(bufferSearch, filter.identifierCallbacks);
+            addPatterns(bufferSearch, filter.pathCallbacks);
+        }
+
+        List<LithoCorpus.Component> components = LithoCorpus.load();
+        final int count = components.size();
+        identifiers = new String[count];
+        paths = new String[count];
+        pathBuilders = new StringBuilder[count];
+        buffers = new byte[count][];
+        for (int i = 0; i < count; i++) {
+            LithoCorpus.Component component = components.get(i);
+            identifiers[i] = component.identifier == null ? "" : component.identifier;
+            paths[i] = component.path;
+            pathBuilders[i] = new StringBuilder(component.path);
+            buffers[i] = component.buffer;
+        }
+
+        // Compile the searches before printing the memory used.
+        identifierSearch.matches("");
+        pathSearch.matches("");
+        bufferSearch.matches(new byte[0]);
+        System.out.println("Estimated memory: identifier search: " + identifierSearch.getEstimatedMemorySize() + " KB"
+                + " path search: " + pathSearch.getEstimatedMemorySize() + " KB"
+                + " buffer search: " + bufferSearch.getEstimatedMemorySize() + " KB");
+    }
+
+    @Benchmark
+    public int searchIdentifiers() {
+        int matchCount = 0;
+        for (String identifier : identifiers) {
+            if (identifierSearch.matches(identifier)) matchCount++;
+        }
+        return matchCount;
+    }
+
+    @Benchmark
+    public int searchPaths() {
+        int matchCount = 0;
+        for (String path : paths) {
+            if (pathSearch.matches(path)) matchCount++;
+        }
+        return matchCount;
+    }
+
+    @Benchmark
+    public int searchPathBuilders() {
+        int matchCount = 0;
+        for (StringBuilder path : pathBuilders) {
+            if (pathSearch.matches(path)) matchCount++;
+        }
+        return matchCount;
+    }
+
+    @Benchmark
+    public int searchBuffers() {
+        int matchCount = 0;
+        for (byte[] buffer : buffers) {
+            if (bufferSearch.matches(buffer)) matchCount++;
+        }
+        return matchCount;
+    }
+}
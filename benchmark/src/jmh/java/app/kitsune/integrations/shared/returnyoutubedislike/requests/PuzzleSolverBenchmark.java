@@ -0,0 +1,59 @@
+package app.kitsune.integrations.shared.returnyoutubedislike.requests;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Solves random RYD puzzles, using all cores and using a single thread.
+ * <p>
+ * The 'hashes' counter is the number of hashes calculated per second.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class PuzzleSolverBenchmark {
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class HashCounter {
+        public long hashes;
+    }
+
+    @Param({"12", "16", "18", "20"})
+    public int difficulty;
+
+    private final Random random = new Random(0);
+    private final byte[] challenge = new byte[16];
+
+    @Setup(Level.Invocation)
+    public void createChallenge() {
+        random.nextBytes(challenge);
+    }
+
+    @Benchmark
+    public int solve(HashCounter counter) {
+        PuzzleSolver solver = new PuzzleSolver(challenge, difficulty);
+        final int nonce = solver.solve();
+        counter.hashes += solver.getHashCount();
+        return nonce;
+    }
+
+    @Benchmark
+    public int solveSequentially(HashCounter counter) {
+        PuzzleSolver solver = new PuzzleSolver(challenge, difficulty);
+        final int nonce = solver.solveSequentially();
+        counter.hashes += solver.getHashCount();
+        return nonce;
+    }
+}
@@ -4,6 +4,7 @@ pluginManagement {
     repositories {
         google()
         mavenCentral()
+        gradlePluginPortal()
     }
 }
 
@@ -24,3 +25,8 @@ buildCache {
 
 include(":app")
 include(":stub")
+// The benchmarks use JMH, and are only included when run so the app can be built without it.
+// Run with: ./gradlew -Pbenchmark :benchmark:jmh
+if (providers.gradleProperty("benchmark").isPresent) {
+    include(":benchmark")
+}